@@ -1,20 +1,43 @@
 package com.hlag.oversigt.connect.db;
 
+import static com.hlag.oversigt.util.Utils.logDebug;
+
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.hlag.oversigt.util.CountingThreadFactory;
 import com.hlag.oversigt.util.function.ThrowingFunction;
 
+/**
+ * Keeps the items read from a database in memory. Readers always get the
+ * current snapshot of the items without waiting for the database.
+ *
+ * <p>
+ * If the snapshot is older than the duration between reads, calling
+ * {@link #refresh(ConnectionOpener)} starts reading the items in the background
+ * and the new snapshot replaces the old one as soon as it is complete. Only if
+ * there is no snapshot yet or if the snapshot is older than the maximum age,
+ * the items are read synchronously. Snapshots older than the maximum age are
+ * never served. If reading the items in the background fails, the next call of
+ * {@link #refresh(ConnectionOpener)} reports the failure, so the caller can
+ * retry.
+ * </p>
+ */
 public abstract class DatabaseCache<T> {
 	public static <X> DatabaseCache<X> createCache(final ThrowingFunction<Connection, Collection<X>> readFunction) {
 		return new DatabaseCache<X>() {
@@ -27,13 +50,30 @@ public abstract class DatabaseCache<T> {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(DatabaseCache.class);
 
+	private static final ExecutorService REFRESH_EXECUTOR
+			= Executors.newCachedThreadPool(CountingThreadFactory.createDaemonThreadFactory("DatabaseCache-"));
+
 	private DatabaseCache() {}
 
-	private final AtomicReference<List<T>> items = new AtomicReference<>(new ArrayList<>());
+	private final AtomicReference<Optional<Snapshot<T>>> snapshot = new AtomicReference<>(Optional.empty());
+
+	private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+	private final AtomicReference<Optional<Exception>> backgroundFailure = new AtomicReference<>(Optional.empty());
+
+	private volatile Duration durationBetweenReads = Duration.ofHours(1);
+
+	private volatile Duration maximumAge = Duration.ofHours(4);
+
+	private final AtomicLong refreshes = new AtomicLong(0);
 
-	private final AtomicReference<LocalDateTime> lastAccess = new AtomicReference<>();
+	private final AtomicLong failedRefreshes = new AtomicLong(0);
 
-	private Duration durationBetweenReads = Duration.ofHours(1);
+	private final AtomicLong lastRefreshNanos = new AtomicLong(0);
+
+	private final AtomicLong maximumRefreshNanos = new AtomicLong(0);
+
+	private final AtomicLong totalRefreshNanos = new AtomicLong(0);
 
 	public Duration getDurationBetweenReads() {
 		return durationBetweenReads;
@@ -46,6 +86,19 @@ public abstract class DatabaseCache<T> {
 		this.durationBetweenReads = durationBetweenReads;
 	}
 
+	/**
+	 * Get the maximum age of a snapshot. Older snapshots are not served anymore.
+	 *
+	 * @return the maximum age of a snapshot
+	 */
+	public Duration getMaximumAge() {
+		return maximumAge;
+	}
+
+	public void setMaximumAge(final Duration maximumAge) {
+		this.maximumAge = maximumAge;
+	}
+
 	public Stream<T> stream() {
 		if (LOGGER.isTraceEnabled()) {
 			LOGGER.trace("stream called");
@@ -53,39 +106,201 @@ public abstract class DatabaseCache<T> {
 		return getItems().stream();
 	}
 
+	/**
+	 * Get the items of the current snapshot
+	 *
+	 * @return the current items or an empty list if the items have not been
+	 *         loaded yet or the snapshot is older than the maximum age
+	 */
 	public List<T> getItems() {
-		final List<T> items = this.items.get();
-		if (items.isEmpty()) {
+		final Optional<Snapshot<T>> current = snapshot.get();
+		if (!current.isPresent()) {
 			LOGGER.warn("Items have not been loaded yet.");
+			return Collections.emptyList();
+		}
+		if (current.get().isOlderThan(getMaximumAge())) {
+			LOGGER.warn("Items are older than " + getMaximumAge() + " and will not be used.");
+			return Collections.emptyList();
 		}
-		return items;
+		return current.get().items;
 	}
 
-	public List<T> getItems(final Connection connection) throws SQLException {
-		if (shouldReadItems()) {
-			if (LOGGER.isDebugEnabled()) {
-				LOGGER.debug("Reading items");
-			}
-			final List<T> items = new ArrayList<>(readItems(connection));
-			if (LOGGER.isDebugEnabled()) {
-				LOGGER.debug("Found " + items.size() + " items");
-			}
-			this.items.set(items);
+	/**
+	 * Make sure the items are up to date. If there are no items that may be
+	 * served, they are read before this method returns. If the items are older
+	 * than the duration between reads, they are read in the background while the
+	 * current items are still being served.
+	 *
+	 * @param opener opens the connection to read the items with. The connection
+	 *               is closed once the items have been read.
+	 * @return the current items
+	 * @throws SQLException if the items had to be read synchronously and reading
+	 *                      failed or if the previous background read failed
+	 */
+	public List<T> refresh(final ConnectionOpener opener) throws SQLException {
+		final Optional<Exception> failure = backgroundFailure.getAndSet(Optional.empty());
+		if (failure.isPresent()) {
+			throw new SQLException("Unable to refresh items in the background", failure.get());
 		}
-		return items.get();
+		final long requestedAt = System.nanoTime();
+		final Optional<Snapshot<T>> current = snapshot.get();
+		if (!current.isPresent() || current.get().isOlderThan(getMaximumAge())) {
+			logDebug(LOGGER, "Reading items");
+			load(opener, requestedAt);
+		} else if (current.get().isOlderThan(getDurationBetweenReads()) && refreshing.compareAndSet(false, true)) {
+			logDebug(LOGGER, "Reading items in the background");
+			REFRESH_EXECUTOR.execute(() -> {
+				try {
+					load(opener, requestedAt);
+				} catch (final SQLException | RuntimeException e) {
+					LOGGER.warn("Unable to refresh items in the background", e);
+					backgroundFailure.set(Optional.of(e));
+				} finally {
+					refreshing.set(false);
+				}
+			});
+		}
+		return getItems();
 	}
 
-	private synchronized boolean shouldReadItems() {
-		final LocalDateTime now = LocalDateTime.now();
-		final boolean yes = lastAccess.get() == null || lastAccess.get().plus(getDurationBetweenReads()).isBefore(now);
-		if (yes) {
-			lastAccess.set(now);
+	private void load(final ConnectionOpener opener, final long requestedAt) throws SQLException {
+		final long start = System.nanoTime();
+		boolean success = false;
+		try (Connection connection = opener.open()) {
+			final Collection<T> readItems = readItems(connection);
+			// lists are used as they are instead of being copied
+			final Snapshot<T> loaded = new Snapshot<>(Collections.unmodifiableList(
+					readItems instanceof List ? (List<T>) readItems : new ArrayList<>(readItems)), requestedAt);
+			// a synchronous read may overtake a background read, so keep the most recent one
+			snapshot.accumulateAndGet(Optional.of(loaded),
+					(previous, next) -> previous.isPresent() && previous.get().loadedAt - requestedAt > 0
+							? previous
+							: next);
+			success = true;
+			logDebug(LOGGER, "Found %s items", loaded.items.size());
+		} finally {
+			recordRefresh(System.nanoTime() - start, success);
 		}
-		if (LOGGER.isDebugEnabled()) {
-			LOGGER.debug("Should read items: " + yes);
+	}
+
+	private void recordRefresh(final long nanos, final boolean success) {
+		refreshes.incrementAndGet();
+		if (!success) {
+			failedRefreshes.incrementAndGet();
 		}
-		return yes;
+		lastRefreshNanos.set(nanos);
+		maximumRefreshNanos.accumulateAndGet(nanos, Math::max);
+		totalRefreshNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * Get a snapshot of the refresh metrics of this cache
+	 *
+	 * @return the current statistics of the cache
+	 */
+	public CacheStatistics getStatistics() {
+		final long count = refreshes.get();
+		return new CacheStatistics(count,
+				failedRefreshes.get(),
+				Duration.ofNanos(lastRefreshNanos.get()),
+				Duration.ofNanos(maximumRefreshNanos.get()),
+				count == 0 ? Duration.ZERO : Duration.ofNanos(totalRefreshNanos.get() / count),
+				refreshing.get());
+	}
+
+	/**
+	 * Check whether a refresh is currently running in the background
+	 *
+	 * @return <code>true</code> if the items are being read in the background
+	 */
+	public boolean isRefreshing() {
+		return refreshing.get();
 	}
 
 	protected abstract Collection<T> readItems(Connection connection) throws SQLException;
+
+	public static final class CacheStatistics {
+		private final long refreshes;
+
+		private final long failedRefreshes;
+
+		private final Duration lastRefreshDuration;
+
+		private final Duration maximumRefreshDuration;
+
+		private final Duration averageRefreshDuration;
+
+		private final boolean refreshing;
+
+		private CacheStatistics(final long refreshes,
+				final long failedRefreshes,
+				final Duration lastRefreshDuration,
+				final Duration maximumRefreshDuration,
+				final Duration averageRefreshDuration,
+				final boolean refreshing) {
+			this.refreshes = refreshes;
+			this.failedRefreshes = failedRefreshes;
+			this.lastRefreshDuration = lastRefreshDuration;
+			this.maximumRefreshDuration = maximumRefreshDuration;
+			this.averageRefreshDuration = averageRefreshDuration;
+			this.refreshing = refreshing;
+		}
+
+		/**
+		 * Get the number of reads from the database, including the failed ones
+		 *
+		 * @return the number of reads
+		 */
+		public long getRefreshes() {
+			return refreshes;
+		}
+
+		public long getFailedRefreshes() {
+			return failedRefreshes;
+		}
+
+		public Duration getLastRefreshDuration() {
+			return lastRefreshDuration;
+		}
+
+		public Duration getMaximumRefreshDuration() {
+			return maximumRefreshDuration;
+		}
+
+		public Duration getAverageRefreshDuration() {
+			return averageRefreshDuration;
+		}
+
+		public boolean isRefreshing() {
+			return refreshing;
+		}
+	}
+
+	/**
+	 * Opens a connection to read the items with
+	 */
+	@FunctionalInterface
+	public interface ConnectionOpener {
+		Connection open() throws SQLException;
+	}
+
+	private static final class Snapshot<T> {
+		private final List<T> items;
+
+		/**
+		 * The value of {@link System#nanoTime()} when reading the items has been
+		 * requested. Measuring the age from the request instead of the actual read
+		 * makes sure a background read does not delay the next one.
+		 */
+		private final long loadedAt;
+
+		private Snapshot(final List<T> items, final long loadedAt) {
+			this.items = items;
+			this.loadedAt = loadedAt;
+		}
+
+		private boolean isOlderThan(final Duration age) {
+			return System.nanoTime() - loadedAt > age.toNanos();
+		}
+	}
 }
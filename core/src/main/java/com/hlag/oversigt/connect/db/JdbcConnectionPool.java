@@ -0,0 +1,428 @@
+package com.hlag.oversigt.connect.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * A pool of JDBC connections to one database using one set of credentials.
+ * The number of connections handed out at the same time is limited. Callers
+ * waiting for a connection longer than their timeout receive a
+ * {@link SQLTimeoutException}.
+ *
+ * <p>
+ * Closing a borrowed connection rolls it back and returns it to the pool. The
+ * most recently returned connection is reused first, so surplus connections
+ * stay idle and are closed by {@link #evictIdleConnections()} once they have
+ * been idle for longer than the idle timeout. A connection that has been idle
+ * for some time is validated before it is handed out again. Connections that
+ * failed with a connection error are closed instead of being returned to the
+ * pool.
+ * </p>
+ */
+public final class JdbcConnectionPool {
+	private static final Logger LOGGER = LoggerFactory.getLogger(JdbcConnectionPool.class);
+
+	private static final long VALIDATION_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+	private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+	private final String name;
+
+	private final ConnectionFactory factory;
+
+	private final int maxSize;
+
+	private final long idleTimeoutNanos;
+
+	private final Semaphore permits;
+
+	/**
+	 * The idle connections, most recently returned first. Guarded by
+	 * <code>this</code>.
+	 */
+	private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+
+	/**
+	 * Whether the pool has been closed. Guarded by <code>this</code>.
+	 */
+	private boolean closed = false;
+
+	private final AtomicInteger activeConnections = new AtomicInteger(0);
+
+	private final AtomicLong createdConnections = new AtomicLong(0);
+
+	private final AtomicLong reusedConnections = new AtomicLong(0);
+
+	private final AtomicLong invalidConnections = new AtomicLong(0);
+
+	private final AtomicLong evictedConnections = new AtomicLong(0);
+
+	private final AtomicLong timeouts = new AtomicLong(0);
+
+	/**
+	 * Create a new pool
+	 *
+	 * @param name        a name identifying the database, used for logging and
+	 *                    statistics. Must not contain the password.
+	 * @param factory     opens new physical connections
+	 * @param maxSize     the maximum number of connections handed out at the
+	 *                    same time
+	 * @param idleTimeout how long a connection may stay idle before it is closed
+	 */
+	public JdbcConnectionPool(final String name,
+			final ConnectionFactory factory,
+			final int maxSize,
+			final Duration idleTimeout) {
+		this.name = name;
+		this.factory = factory;
+		this.maxSize = Math.max(1, maxSize);
+		idleTimeoutNanos = Math.max(0, idleTimeout.toNanos());
+		permits = new Semaphore(this.maxSize, true);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Borrow a connection from the pool. If no idle connection is available a
+	 * new one is opened. The connection must be closed to return it to the pool.
+	 *
+	 * @param timeout how long to wait for a connection if the maximum number of
+	 *                connections is already in use
+	 * @return the borrowed connection
+	 * @throws SQLException if no connection is available within the timeout or
+	 *                      the connection cannot be opened
+	 */
+	public Connection getConnection(final Duration timeout) throws SQLException {
+		try {
+			if (!permits.tryAcquire(Math.max(0, timeout.toMillis()), TimeUnit.MILLISECONDS)) {
+				timeouts.incrementAndGet();
+				throw new SQLTimeoutException("No connection to " + name + " available within " + timeout);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a connection to " + name, e);
+		}
+		try {
+			final Connection connection = takeConnection();
+			activeConnections.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class<?>[] { Connection.class },
+					new PooledConnectionHandler(connection));
+		} catch (final SQLException | RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private Connection takeConnection() throws SQLException {
+		while (true) {
+			final IdleConnection idle;
+			synchronized (this) {
+				idle = idleConnections.pollFirst();
+			}
+			if (idle == null) {
+				final Connection connection = factory.open();
+				createdConnections.incrementAndGet();
+				LOGGER.info("Created JDBC connection to " + name);
+				return connection;
+			}
+			if (isValid(idle)) {
+				reusedConnections.incrementAndGet();
+				return idle.connection;
+			}
+			invalidConnections.incrementAndGet();
+			LOGGER.info("Discarding invalid JDBC connection to " + name);
+			closeQuietly(idle.connection);
+		}
+	}
+
+	private static boolean isValid(final IdleConnection idle) {
+		if (System.nanoTime() - idle.idleSince < VALIDATION_INTERVAL_NANOS) {
+			return true;
+		}
+		try {
+			return idle.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+		} catch (@SuppressWarnings("unused") final SQLException e) {
+			return false;
+		}
+	}
+
+	private void release(final Connection connection, final boolean reusable) {
+		activeConnections.decrementAndGet();
+		try {
+			boolean pooled = false;
+			if (reusable) {
+				connection.rollback();
+				synchronized (this) {
+					if (!closed) {
+						idleConnections.addFirst(new IdleConnection(connection, System.nanoTime()));
+						pooled = true;
+					}
+				}
+			}
+			if (!pooled) {
+				closeQuietly(connection);
+			}
+		} catch (final SQLException e) {
+			LOGGER.warn("Unable to rollback JDBC connection to " + name + ". Closing it.", e);
+			closeQuietly(connection);
+		} finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * Close all connections that have been idle for longer than the idle timeout
+	 */
+	public void evictIdleConnections() {
+		final long now = System.nanoTime();
+		final List<Connection> evicted = new ArrayList<>();
+		synchronized (this) {
+			final Iterator<IdleConnection> iterator = idleConnections.descendingIterator();
+			while (iterator.hasNext()) {
+				final IdleConnection idle = iterator.next();
+				if (now - idle.idleSince < idleTimeoutNanos) {
+					// all remaining connections have been returned more recently
+					break;
+				}
+				iterator.remove();
+				evicted.add(idle.connection);
+			}
+		}
+		evictedConnections.addAndGet(evicted.size());
+		evicted.forEach(JdbcConnectionPool::closeQuietly);
+	}
+
+	/**
+	 * Close all idle connections. Borrowed connections are closed when they are
+	 * returned.
+	 */
+	public void close() {
+		final List<IdleConnection> connections;
+		synchronized (this) {
+			closed = true;
+			connections = new ArrayList<>(idleConnections);
+			idleConnections.clear();
+		}
+		connections.forEach(idle -> closeQuietly(idle.connection));
+	}
+
+	private static void closeQuietly(final Connection connection) {
+		try {
+			connection.close();
+		} catch (final SQLException e) {
+			LOGGER.warn("Unable to close JDBC connection", e);
+		}
+	}
+
+	/**
+	 * Check whether an exception indicates that the connection itself is broken
+	 *
+	 * @param exception the exception thrown by the connection
+	 * @return <code>true</code> if the connection must not be reused
+	 */
+	private static boolean isConnectionError(final Throwable exception) {
+		if (exception instanceof SQLNonTransientConnectionException
+				|| exception instanceof SQLRecoverableException) {
+			return true;
+		}
+		if (exception instanceof SQLException) {
+			// SQL state class 08: connection exception
+			final String state = ((SQLException) exception).getSQLState();
+			return state != null && state.startsWith("08");
+		}
+		return false;
+	}
+
+	public synchronized PoolStatistics getStatistics() {
+		return new PoolStatistics(name,
+				maxSize,
+				activeConnections.get(),
+				idleConnections.size(),
+				permits.getQueueLength(),
+				createdConnections.get(),
+				reusedConnections.get(),
+				invalidConnections.get(),
+				evictedConnections.get(),
+				timeouts.get());
+	}
+
+	/**
+	 * Opens a new physical connection to the database
+	 */
+	@FunctionalInterface
+	public interface ConnectionFactory {
+		Connection open() throws SQLException;
+	}
+
+	private static final class IdleConnection {
+		private final Connection connection;
+
+		private final long idleSince;
+
+		private IdleConnection(final Connection connection, final long idleSince) {
+			this.connection = connection;
+			this.idleSince = idleSince;
+		}
+	}
+
+	/**
+	 * Hands all calls to the pooled connection and returns it to the pool when
+	 * it is closed
+	 */
+	private final class PooledConnectionHandler implements InvocationHandler {
+		private final Connection connection;
+
+		private boolean returned = false;
+
+		private boolean broken = false;
+
+		private PooledConnectionHandler(final Connection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		@Nullable
+		public synchronized Object invoke(@SuppressWarnings("unused") @Nullable final Object proxy,
+				@Nullable final Method method,
+				@Nullable final Object[] args) throws Throwable {
+			switch (Objects.requireNonNull(method).getName()) {
+			case "close":
+				if (!returned) {
+					returned = true;
+					release(connection, !broken);
+				}
+				return null;
+			case "isClosed":
+				if (returned) {
+					return true;
+				}
+				break;
+			default:
+				if (returned) {
+					throw new SQLException("The connection has already been returned to the pool.");
+				}
+			}
+			try {
+				return method.invoke(connection, args);
+			} catch (final InvocationTargetException e) {
+				if (isConnectionError(e.getCause())) {
+					broken = true;
+				}
+				throw e.getCause();
+			}
+		}
+	}
+
+	/**
+	 * Snapshot of the state of one connection pool
+	 */
+	public static final class PoolStatistics {
+		private final String name;
+
+		private final int maxSize;
+
+		private final int activeConnections;
+
+		private final int idleConnections;
+
+		private final int waitingCallers;
+
+		private final long createdConnections;
+
+		private final long reusedConnections;
+
+		private final long invalidConnections;
+
+		private final long evictedConnections;
+
+		private final long timeouts;
+
+		private PoolStatistics(final String name,
+				final int maxSize,
+				final int activeConnections,
+				final int idleConnections,
+				final int waitingCallers,
+				final long createdConnections,
+				final long reusedConnections,
+				final long invalidConnections,
+				final long evictedConnections,
+				final long timeouts) {
+			this.name = name;
+			this.maxSize = maxSize;
+			this.activeConnections = activeConnections;
+			this.idleConnections = idleConnections;
+			this.waitingCallers = waitingCallers;
+			this.createdConnections = createdConnections;
+			this.reusedConnections = reusedConnections;
+			this.invalidConnections = invalidConnections;
+			this.evictedConnections = evictedConnections;
+			this.timeouts = timeouts;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public int getActiveConnections() {
+			return activeConnections;
+		}
+
+		public int getIdleConnections() {
+			return idleConnections;
+		}
+
+		public int getWaitingCallers() {
+			return waitingCallers;
+		}
+
+		public long getCreatedConnections() {
+			return createdConnections;
+		}
+
+		public long getReusedConnections() {
+			return reusedConnections;
+		}
+
+		public long getInvalidConnections() {
+			return invalidConnections;
+		}
+
+		public long getEvictedConnections() {
+			return evictedConnections;
+		}
+
+		public long getTimeouts() {
+			return timeouts;
+		}
+	}
+}
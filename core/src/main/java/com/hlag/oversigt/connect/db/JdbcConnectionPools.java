@@ -0,0 +1,112 @@
+package com.hlag.oversigt.connect.db;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.hlag.oversigt.properties.Credentials;
+import com.hlag.oversigt.properties.DatabaseConnection;
+import com.hlag.oversigt.util.CountingThreadFactory;
+
+/**
+ * Hands out the {@link JdbcConnectionPool}s of the event sources. All event
+ * sources connecting to the same database with the same credentials share one
+ * pool, so the connection set-up (e.g. TLS handshake and login) only happens
+ * once instead of once per poll.
+ */
+@Singleton
+public class JdbcConnectionPools {
+	private final ConcurrentMap<List<String>, JdbcConnectionPool> pools = new ConcurrentHashMap<>();
+
+	private final int poolSize;
+
+	private final Duration idleTimeout;
+
+	private final ScheduledExecutorService evictionExecutor
+			= Executors.newSingleThreadScheduledExecutor(CountingThreadFactory.createDaemonThreadFactory("JdbcPool-"));
+
+	@Inject
+	public JdbcConnectionPools(@Named("eventSources.connectionPoolSize") final int poolSize,
+			@Named("eventSources.connectionIdleTimeout") final Duration idleTimeout) {
+		this.poolSize = poolSize;
+		this.idleTimeout = idleTimeout;
+		final long evictionInterval = Math.max(1, idleTimeout.getSeconds() / 2);
+		evictionExecutor.scheduleWithFixedDelay(this::evictIdleConnections,
+				evictionInterval,
+				evictionInterval,
+				TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Get the pool of connections to the given database using the given
+	 * credentials. The JDBC driver is loaded when the first connection is opened.
+	 * New connections do not commit automatically, are read only and read
+	 * uncommitted data.
+	 *
+	 * @param databaseConnection the database to connect to
+	 * @param credentials        the credentials to log in with
+	 * @return the shared pool
+	 */
+	public JdbcConnectionPool getPool(final DatabaseConnection databaseConnection, final Credentials credentials) {
+		// serializable properties are compared by identity, so the key is built from their content
+		final List<String> key = Arrays.asList(databaseConnection.getDriverClassName(),
+				databaseConnection.getJdbcUrl(),
+				credentials.getUsername(),
+				credentials.getPassword());
+		return pools.computeIfAbsent(key,
+				k -> new JdbcConnectionPool(databaseConnection.getJdbcUrl() + " as " + credentials.getUsername(),
+						() -> openConnection(databaseConnection, credentials),
+						poolSize,
+						idleTimeout));
+	}
+
+	private static Connection openConnection(final DatabaseConnection databaseConnection,
+			final Credentials credentials) throws SQLException {
+		try {
+			databaseConnection.loadDriverClass();
+		} catch (final ClassNotFoundException e) {
+			throw new SQLException("Could not load JDBC driver.", e);
+		}
+		final Connection con = DriverManager.getConnection(databaseConnection.getJdbcUrl(),
+				credentials.getUsername(),
+				credentials.getPassword());
+		try {
+			// Commit changes manually
+			con.setAutoCommit(false);
+			con.setReadOnly(true);
+			con.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
+			return con;
+		} catch (final SQLException e) {
+			con.close();
+			throw e;
+		}
+	}
+
+	private void evictIdleConnections() {
+		pools.values().forEach(JdbcConnectionPool::evictIdleConnections);
+	}
+
+	public List<JdbcConnectionPool.PoolStatistics> getStatistics() {
+		return pools.values().stream().map(JdbcConnectionPool::getStatistics).collect(Collectors.toList());
+	}
+
+	/**
+	 * Close all idle connections of all pools
+	 */
+	public void close() {
+		evictionExecutor.shutdownNow();
+		pools.values().forEach(JdbcConnectionPool::close);
+	}
+}
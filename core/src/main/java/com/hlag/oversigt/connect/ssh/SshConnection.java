@@ -3,6 +3,7 @@ package com.hlag.oversigt.connect.ssh;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.PrintStream;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -139,21 +140,28 @@ public abstract class SshConnection {
 		}
 	}
 
-	public double getCpuUsage() {
-		return runSshCommand("lparstat 1 1")//
+	/**
+	 * Measure the CPU usage of the remote host
+	 *
+	 * @param timeout the maximum time to wait for the measurement
+	 * @return the CPU usage between 0 and 1 or {@link Double#NaN} if it cannot be
+	 *         determined in time
+	 */
+	public double getCpuUsage(final Duration timeout) {
+		return runSshCommand("lparstat 1 1", timeout)//
 				.map(SshConnection::parseCpuUsage)
 				.map(SshConnection::capTo0And1)
 				.orElse(Double.NaN);
 	}
 
-	public Optional<String> getTopas() {
+	public Optional<String> getTopas(final Duration timeout) {
 		final String filename = "hl_topas_" + UUID.randomUUID().toString() + ".tmp";
 		final String[] commands = new String[] {
 				"cd /tmp",
 				"(sleep 3; echo q)|topas > " + filename,
 				"cat " + filename,
 				"rm " + filename };
-		return runShellCommands(commands);
+		return runShellCommands(timeout, commands);
 	}
 
 	private static double parseCpuUsage(final String string) {
@@ -177,7 +185,20 @@ public abstract class SshConnection {
 		}
 	}
 
-	private Optional<String> runSshCommand(final String command) {
+	/**
+	 * Check whether a running command has to be aborted because the calling
+	 * thread has been interrupted or the command took too long
+	 *
+	 * @param deadline the point in time (see {@link System#nanoTime()}) the
+	 *                 command has to be finished
+	 * @return <code>true</code> if the command has to be aborted
+	 */
+	private static boolean isAborted(final long deadline) {
+		return Thread.currentThread().isInterrupted() || System.nanoTime() - deadline >= 0;
+	}
+
+	private Optional<String> runSshCommand(final String command, final Duration timeout) {
+		final long deadline = System.nanoTime() + timeout.toNanos();
 		try {
 			final Session session = getSession();
 
@@ -204,10 +225,16 @@ public abstract class SshConnection {
 						}
 						break;
 					}
+					if (isAborted(deadline)) {
+						LOGGER.warn("SSH command did not finish in time. Disconnecting channel.");
+						channel.disconnect();
+						return Optional.empty();
+					}
 					try {
 						Thread.sleep(100);
-					} catch (@SuppressWarnings("unused") final Exception ignore) {
-						// on interruption continue
+					} catch (@SuppressWarnings("unused") final InterruptedException e) {
+						// keep the interruption so the command is aborted
+						Thread.currentThread().interrupt();
 					}
 				}
 				channel.disconnect();
@@ -220,7 +247,8 @@ public abstract class SshConnection {
 		}
 	}
 
-	private Optional<String> runShellCommands(final String... commands) {
+	private Optional<String> runShellCommands(final Duration timeout, final String... commands) {
+		final long deadline = System.nanoTime() + timeout.toNanos();
 		try {
 			final Session session = getSession();
 
@@ -256,10 +284,16 @@ public abstract class SshConnection {
 							.contains("exit")) {
 						break;
 					}
+					if (isAborted(deadline)) {
+						LOGGER.warn("SSH command did not finish in time. Disconnecting channel.");
+						channel.disconnect();
+						return Optional.empty();
+					}
 					try {
 						Thread.sleep(100);
-					} catch (@SuppressWarnings("unused") final Exception ignore) {
-						// on interruption continue
+					} catch (@SuppressWarnings("unused") final InterruptedException e) {
+						// keep the interruption so the command is aborted
+						Thread.currentThread().interrupt();
 					}
 				}
 				channel.disconnect();
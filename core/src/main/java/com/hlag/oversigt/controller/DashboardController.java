@@ -26,9 +26,10 @@ import org.apache.commons.lang3.NotImplementedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.hlag.oversigt.core.event.EventPipeline;
+import com.hlag.oversigt.core.event.EventRoutingIndex;
 import com.hlag.oversigt.model.Dashboard;
 import com.hlag.oversigt.model.EventSourceInstance;
 import com.hlag.oversigt.model.EventSourceProperty;
@@ -68,11 +69,14 @@ public class DashboardController {
 	private Storage storage;
 
 	@Inject
-	private EventBus eventBus;
+	private EventPipeline eventPipeline;
 
 	@Inject
 	private SerializablePropertyController spController;
 
+	@Inject
+	private EventRoutingIndex eventRoutingIndex;
+
 	@Inject
 	private final EventSourceInstanceController eventSourceInstanceController;
 
@@ -111,9 +115,19 @@ public class DashboardController {
 				.peek(db -> LOGGER.info("Loading dashboard: {} ({})", db.getId(), db.getTitle()))
 				.peek(db -> db.getModifiableWidgets()
 						.addAll(storage.loadWidgetDatas(db, eventSourceInstanceController::getEventSourceInstance)))
+				.peek(this::updateEventRoutingIndex)
 				.collect(toMap(Dashboard::getId, Function.identity())));
 	}
 
+	private void updateEventRoutingIndex(final Dashboard dashboard) {
+		eventRoutingIndex.updateDashboard(dashboard.getId(),
+				dashboard.getWidgets()
+						.stream()
+						.map(Widget::getEventSourceInstance)
+						.map(EventSourceInstance::getId)
+						.collect(toSet()));
+	}
+
 	/**
 	 * Creates a new dashboard instance, persists it in the storage and makes it
 	 * available for other users.
@@ -156,12 +170,13 @@ public class DashboardController {
 
 	public boolean deleteDashboard(final Dashboard dashboard) {
 		dashboards.remove(dashboard.getId());
+		eventRoutingIndex.removeDashboard(dashboard.getId());
 		return storage.deleteDashboard(dashboard);
 	}
 
 	public void reloadDashboards(final Dashboard... dashboards) {
 		if (dashboards.length > 0) {
-			eventBus.post(new ReloadEvent(stream(dashboards).map(Dashboard::getId).collect(toList())));
+			eventPipeline.publish(new ReloadEvent(stream(dashboards).map(Dashboard::getId).collect(toList())));
 		}
 	}
 
@@ -182,6 +197,7 @@ public class DashboardController {
 		final Widget widget = new Widget(eventSourceInstanceController.getEventSourceInstance(eventSourceInstanceId));
 		storage.createWidget(dashboard, widget);
 		dashboard.getModifiableWidgets().add(widget);
+		updateEventRoutingIndex(dashboard);
 		reloadDashboards(dashboard);
 		return widget;
 	}
@@ -206,6 +222,7 @@ public class DashboardController {
 			}
 		}
 		storage.updateWidget(widget);
+		updateEventRoutingIndex(dashboard);
 		reloadDashboards(dashboard);
 	}
 
@@ -214,6 +231,7 @@ public class DashboardController {
 		final Widget widgetReference = dashboard.getWidget(widget.getId());
 		dashboard.getModifiableWidgets().remove(widgetReference);
 		storage.deleteWidget(widgetReference);
+		updateEventRoutingIndex(dashboard);
 		reloadDashboards(dashboard);
 	}
 
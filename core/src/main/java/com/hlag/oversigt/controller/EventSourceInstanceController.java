@@ -1,8 +1,11 @@
 package com.hlag.oversigt.controller;
 
 import static com.hlag.oversigt.util.Utils.copyProperties;
+import static com.hlag.oversigt.util.Utils.logInfo;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -17,8 +20,12 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 
 import javax.validation.constraints.NotBlank;
@@ -36,6 +43,7 @@ import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import com.google.inject.util.Modules;
 import com.hlag.oversigt.core.eventsource.EventId;
 import com.hlag.oversigt.core.eventsource.EventSource.NOP;
@@ -47,6 +55,8 @@ import com.hlag.oversigt.model.EventSourceProperty;
 import com.hlag.oversigt.properties.SerializableProperty;
 import com.hlag.oversigt.security.Principal;
 import com.hlag.oversigt.storage.Storage;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesStore;
+import com.hlag.oversigt.util.CountingThreadFactory;
 import com.hlag.oversigt.util.SimpleReadWriteLock;
 import com.hlag.oversigt.util.TypeUtils;
 
@@ -71,6 +81,17 @@ public class EventSourceInstanceController {
 	@Inject
 	private EventSourceStatisticsManager statisticsManager;
 
+	@Inject
+	private TimeSeriesStore timeSeriesStore;
+
+	@Inject
+	@Named("eventSources.startupParallelism")
+	private int startupParallelism;
+
+	@Inject
+	@Named("eventSources.startupWarmUp")
+	private Duration startupWarmUp;
+
 	// access to this map is synchronized through the lock object
 	private final SimpleReadWriteLock eventSourceInstancesLock = new SimpleReadWriteLock();
 
@@ -255,15 +276,76 @@ public class EventSourceInstanceController {
 		return TypeUtils.createInstance(moduleClass);
 	}
 
+	/**
+	 * Start all enabled event source instances. The instances are started in
+	 * parallel by a limited number of threads and their first runs are spread
+	 * evenly across the configured warm up window so that the upstream systems
+	 * are not hit by all event sources at once. Instances failing to start are
+	 * logged and skipped.
+	 */
 	public void startAllInstances() {
-		getEventSourceInstances().stream()
+		final List<String> ids = getEventSourceInstances().stream()
 				.filter(i -> i.getDescriptor().getServiceClass().isPresent())
 				.filter(EventSourceInstance::isEnabled)
 				.map(EventSourceInstance::getId)
-				.forEach(id -> startInstance(id, false));
+				.collect(toList());
+		if (ids.isEmpty()) {
+			return;
+		}
+
+		final int threads = Math.min(ids.size(), Math.max(1, startupParallelism));
+		logInfo(LOGGER,
+				"Starting %s event sources using %s threads. First runs spread across %s.",
+				ids.size(),
+				threads,
+				startupWarmUp);
+		final ExecutorService executor = Executors.newFixedThreadPool(threads,
+				CountingThreadFactory.createDaemonThreadFactory("EventSourceStartup-"));
+		try {
+			final Map<String, Future<?>> startups = new LinkedHashMap<>();
+			for (int i = 0; i < ids.size(); i += 1) {
+				final String id = ids.get(i);
+				final Duration initialDelay = computeInitialDelay(i, ids.size(), startupWarmUp);
+				startups.put(id, executor.submit(() -> startInstance(id, false, initialDelay)));
+			}
+			for (final Map.Entry<String, Future<?>> startup : startups.entrySet()) {
+				try {
+					startup.getValue().get();
+				} catch (final ExecutionException e) {
+					LOGGER.error("Unable to start event source " + startup.getKey(), e.getCause());
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while starting event sources.", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Compute the delay of the first run of an event source started together with
+	 * other event sources so that the first runs are spread evenly across the
+	 * warm up window.
+	 *
+	 * @param index  the position of the event source within all started event
+	 *               sources
+	 * @param count  the number of event sources started together
+	 * @param warmUp the duration to spread the first runs across
+	 * @return the delay of the first run
+	 */
+	static Duration computeInitialDelay(final int index, final int count, final Duration warmUp) {
+		if (count <= 1 || warmUp.isNegative() || warmUp.isZero()) {
+			return Duration.ZERO;
+		}
+		return warmUp.dividedBy(count).multipliedBy(index);
 	}
 
 	public void startInstance(final String id, final boolean automaticallyStarted) {
+		startInstance(id, automaticallyStarted, Duration.ZERO);
+	}
+
+	private void startInstance(final String id, final boolean automaticallyStarted, final Duration initialDelay) {
 		final EventSourceInstance instance = getEventSourceInstance(id);
 
 		if (!instance.isEnabled()) {
@@ -292,6 +374,9 @@ public class EventSourceInstanceController {
 						+ instance.getName()
 						+ "). Automatically: "
 						+ automaticallyStarted);
+				if (service.get() instanceof ScheduledEventSource) {
+					((ScheduledEventSource<?>) service.get()).setInitialDelay(initialDelay);
+				}
 				// TODO better error handling for IllegalStateExceptions
 				service.get().startAsync();
 				service.get().awaitRunning();
@@ -425,6 +510,17 @@ public class EventSourceInstanceController {
 		return getService(instance).isPresent();
 	}
 
+	/**
+	 * Get the service that is currently running for the given instance
+	 *
+	 * @param instance the event source instance to check
+	 * @return the running service or an empty {@link Optional} if the instance
+	 *         is not running
+	 */
+	public Optional<Service> getRunningService(final EventSourceInstance instance) {
+		return getService(instance);
+	}
+
 	public void disableEventSourceInstance(final String id) {
 		final EventSourceInstance instance = getEventSourceInstance(id);
 		if (isRunning(instance)) {
@@ -449,5 +545,12 @@ public class EventSourceInstanceController {
 
 		storage.deleteEventSourceInstance(eventSourceId);
 		removeEventSourceInstance(instance);
+
+		// the history of a deleted event source will never be read again
+		try {
+			timeSeriesStore.delete(eventSourceId);
+		} catch (final IOException e) {
+			LOGGER.warn("Unable to delete the history of event source " + eventSourceId, e);
+		}
 	}
 }
@@ -1,6 +1,7 @@
 package com.hlag.oversigt.core;
 
 import static com.hlag.oversigt.core.event.EventSender.DASHBOARD_KEY;
+import static com.hlag.oversigt.core.event.EventSender.LAST_EVENT_ID_KEY;
 import static com.hlag.oversigt.util.HttpUtils.redirect;
 import static com.hlag.oversigt.util.StringUtils.substringBefore;
 import static com.hlag.oversigt.util.Utils.map;
@@ -50,7 +51,6 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Ascii;
 import com.google.common.base.Strings;
-import com.google.common.eventbus.EventBus;
 import com.google.common.io.Resources;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
@@ -62,6 +62,7 @@ import com.hlag.oversigt.controller.EventSourceInstanceController;
 import com.hlag.oversigt.core.configuration.WroManagerFactory;
 import com.hlag.oversigt.core.configuration.WroManagerFactory.CustomWroConfiguration;
 import com.hlag.oversigt.core.configuration.WroManagerFactory.WroGroupContent;
+import com.hlag.oversigt.core.event.EventPipeline;
 import com.hlag.oversigt.core.event.JsonEvent;
 import com.hlag.oversigt.model.Dashboard;
 import com.hlag.oversigt.model.Widget;
@@ -118,7 +119,7 @@ public class HttpHandlers {
 	private Injector injector;
 
 	@Inject
-	private EventBus eventBus;
+	private EventPipeline eventPipeline;
 
 	@Inject
 	private Configuration templateConfiguration;
@@ -175,7 +176,8 @@ public class HttpHandlers {
 					.map(Deque::getFirst)
 					.flatMap(dashboardController::getDashboard)
 					.ifPresent(dashboard -> connection.putAttachment(DASHBOARD_KEY, dashboard));
-			eventBus.post(connection);
+			Optional.ofNullable(lastEventId).ifPresent(id -> connection.putAttachment(LAST_EVENT_ID_KEY, id));
+			eventPipeline.addConnection(connection);
 		});
 	}
 
@@ -374,7 +376,7 @@ public class HttpHandlers {
 
 		LOGGER.info("Posting event for: " + id);
 		final JsonEvent event = new JsonEvent(json);
-		eventBus.post(event);
+		eventPipeline.publish(event);
 		exchange.setStatusCode(StatusCodes.NO_CONTENT);
 		exchange.endExchange();
 	}
@@ -7,7 +7,6 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.SubscriberExceptionContext;
 import com.google.common.util.concurrent.Service;
 import com.google.inject.Binder;
 import com.google.inject.Guice;
@@ -164,19 +163,20 @@ public final class Oversigt {
 	}
 
 	/**
-	 * Called if an exception occurred when dispatching an event in the
-	 * application's event bus
+	 * Called if an exception occurred when passing an event through the
+	 * application's event pipeline
 	 *
 	 * @param throwable the exception that occurred
-	 * @param context   the context in which the exception occurred
+	 * @param subject   the event, event ID or connection that was processed
 	 */
-	public static void handleEventBusException(final Throwable throwable, final SubscriberExceptionContext context) {
+	public static void handleEventPipelineException(final Throwable throwable, final Object subject) {
 		final StringBuilder sb = new StringBuilder();
 		sb.append("Could not dispatch event");
-		if (context.getEvent() instanceof OversigtEvent) {
-			sb.append(" ID ").append(((OversigtEvent) context.getEvent()).getId());
+		if (subject instanceof OversigtEvent) {
+			sb.append(" ID ").append(((OversigtEvent) subject).getId());
+		} else {
+			sb.append(": ").append(subject);
 		}
-		sb.append(": ").append(context.getSubscriber()).append(" to ").append(context.getSubscriberMethod());
 		LOGGER.error(sb.toString(), throwable);
 	}
 
@@ -7,24 +7,22 @@ import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.Service;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.hlag.oversigt.connect.db.JdbcConnectionPools;
 import com.hlag.oversigt.controller.DashboardController;
 import com.hlag.oversigt.controller.EventSourceInstanceController;
 import com.hlag.oversigt.core.configuration.OversigtConfiguration.HttpListenerConfiguration;
 import com.hlag.oversigt.core.event.EventSender;
-import com.hlag.oversigt.core.event.OversigtEvent;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesStore;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 import io.undertow.Handlers;
@@ -55,14 +53,8 @@ public class OversigtServer extends AbstractIdleService {
 	@Named("listeners")
 	private List<HttpListenerConfiguration> listeners;
 
-	@Inject
-	private EventBus eventBus;
-
 	private Optional<Undertow> server = Optional.empty();
 
-	@Inject
-	private EventSender sender;
-
 	@Inject
 	private HttpHandlers handlers;
 
@@ -72,6 +64,15 @@ public class OversigtServer extends AbstractIdleService {
 	@Inject
 	private DashboardController dashboardController;
 
+	@Inject
+	private EventSender eventSender;
+
+	@Inject
+	private TimeSeriesStore timeSeriesStore;
+
+	@Inject
+	private JdbcConnectionPools connectionPools;
+
 	@Inject
 	@Named("startEventSources")
 	private boolean startEventSources;
@@ -104,19 +105,6 @@ public class OversigtServer extends AbstractIdleService {
 		dashboardController.initialize();
 
 		LOGGER.info("Configuring web server");
-		eventBus.register(new Consumer<OversigtEvent>() {
-			@Subscribe
-			@Override
-			public void accept(@Nullable final OversigtEvent event) {
-				if (event == null) {
-					return;
-				}
-				handlers.getServerSentEventsHandler()
-						.getConnections()
-						.forEach(connection -> sender.sendEventToConnection(event, connection));
-			}
-		});
-
 		// Create Handlers for dynamic content
 		final RoutingHandler routingHandler = Handlers.routing()
 				// dashboard handling
@@ -167,6 +155,9 @@ public class OversigtServer extends AbstractIdleService {
 		final Undertow server = builder.setHandler(accessHandler).build();
 		this.server = Optional.of(server);
 
+		LOGGER.info("Restoring cached events");
+		eventSender.restoreSnapshot();
+
 		LOGGER.info("Starting web server");
 		try {
 			server.start();
@@ -200,6 +191,18 @@ public class OversigtServer extends AbstractIdleService {
 		LOGGER.info("Stopping event sources");
 		instanceController.stopAllInstances();
 
+		/* keep the cached events for the next start */
+		LOGGER.info("Writing cached events");
+		eventSender.writeSnapshot();
+
+		/* write the history of the graphs */
+		LOGGER.info("Closing time series");
+		timeSeriesStore.close();
+
+		/* close idle database connections */
+		LOGGER.info("Closing database connections");
+		connectionPools.close();
+
 		/* close connections */
 		LOGGER.info("Shutting down server sent event connections");
 		handlers.getServerSentEventsHandler().getConnections().forEach(ServerSentEventConnection::shutdown);
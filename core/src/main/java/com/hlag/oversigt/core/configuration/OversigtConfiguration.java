@@ -32,6 +32,7 @@ import com.google.common.io.Resources;
 import com.google.inject.Singleton;
 import com.hlag.oversigt.core.Oversigt;
 import com.hlag.oversigt.core.configuration.WroManagerFactory.CustomWroConfiguration;
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler.ThreadMode;
 import com.hlag.oversigt.sources.AbstractDownloadEventSource;
 import com.hlag.oversigt.storage.SqlDialect;
 import com.hlag.oversigt.util.SSLUtils.TLSConfiguration;
@@ -214,8 +215,24 @@ public final class OversigtConfiguration {
 	static final class EventManagerConfiguration {
 		private long rateLimit = 10;
 
+		private Map<String, Long> dashboardRateLimits = new HashMap<>();
+
 		private Duration discardEventsAfter = Duration.ofHours(1);
 
+		private int dispatchThreads = 4;
+
+		private int connectionQueueSize = 500;
+
+		private int pipelineQueueSize = 4096;
+
+		private boolean deltaEvents = false;
+
+		private int deltaKeyframeInterval = 30;
+
+		private String snapshotFile = "data/events.snapshot";
+
+		private Duration snapshotInterval = Duration.ofSeconds(10);
+
 		private EventManagerConfiguration() {
 			// no fields to be initialized
 		}
@@ -224,9 +241,41 @@ public final class OversigtConfiguration {
 			return rateLimit;
 		}
 
+		public Map<String, Long> getDashboardRateLimits() {
+			return dashboardRateLimits;
+		}
+
 		public Duration getDiscardEventsAfter() {
 			return discardEventsAfter;
 		}
+
+		public int getDispatchThreads() {
+			return dispatchThreads;
+		}
+
+		public int getConnectionQueueSize() {
+			return connectionQueueSize;
+		}
+
+		public int getPipelineQueueSize() {
+			return pipelineQueueSize;
+		}
+
+		public boolean isDeltaEvents() {
+			return deltaEvents;
+		}
+
+		public int getDeltaKeyframeInterval() {
+			return deltaKeyframeInterval;
+		}
+
+		public String getSnapshotFile() {
+			return snapshotFile;
+		}
+
+		public Duration getSnapshotInterval() {
+			return snapshotInterval;
+		}
 	}
 
 	static final class DatabaseConfiguration {
@@ -377,6 +426,38 @@ public final class OversigtConfiguration {
 
 		private String[] widgetsPaths = new String[] { "statics/widgets/" };
 
+		private ThreadMode threadMode = ThreadMode.PLATFORM;
+
+		private int workerThreads = 16;
+
+		private int maxVirtualThreads = 10000;
+
+		private int queueSize = 1000;
+
+		private boolean demandDriven = false;
+
+		private Duration idleFrequency = Duration.ofHours(1);
+
+		private Duration coalescingWindow = Duration.ofSeconds(10);
+
+		private Duration iterationTimeout = Duration.ofMinutes(5);
+
+		private Duration maxBackoff = Duration.ofHours(1);
+
+		private int maxUnchangedSlowdown = 4;
+
+		private int startupParallelism = 8;
+
+		private Duration startupWarmUp = Duration.ofMinutes(1);
+
+		private String historyFolder = "data/history";
+
+		private int connectionPoolSize = 4;
+
+		private Duration connectionIdleTimeout = Duration.ofMinutes(5);
+
+		private int jdbcFetchSize = 500;
+
 		private EventSourceConfiguration() {
 			// no fields to be initialized
 		}
@@ -392,6 +473,70 @@ public final class OversigtConfiguration {
 		public String[] getWidgetsPaths() {
 			return widgetsPaths;
 		}
+
+		public ThreadMode getThreadMode() {
+			return threadMode;
+		}
+
+		public int getWorkerThreads() {
+			return workerThreads;
+		}
+
+		public int getMaxVirtualThreads() {
+			return maxVirtualThreads;
+		}
+
+		public int getQueueSize() {
+			return queueSize;
+		}
+
+		public boolean isDemandDriven() {
+			return demandDriven;
+		}
+
+		public Duration getIdleFrequency() {
+			return idleFrequency;
+		}
+
+		public Duration getCoalescingWindow() {
+			return coalescingWindow;
+		}
+
+		public Duration getIterationTimeout() {
+			return iterationTimeout;
+		}
+
+		public Duration getMaxBackoff() {
+			return maxBackoff;
+		}
+
+		public int getMaxUnchangedSlowdown() {
+			return maxUnchangedSlowdown;
+		}
+
+		public int getStartupParallelism() {
+			return startupParallelism;
+		}
+
+		public Duration getStartupWarmUp() {
+			return startupWarmUp;
+		}
+
+		public String getHistoryFolder() {
+			return historyFolder;
+		}
+
+		public int getConnectionPoolSize() {
+			return connectionPoolSize;
+		}
+
+		public Duration getConnectionIdleTimeout() {
+			return connectionIdleTimeout;
+		}
+
+		public int getJdbcFetchSize() {
+			return jdbcFetchSize;
+		}
 	}
 
 	static final class JiraConfiguration {
@@ -39,6 +39,11 @@ public class OversigtConfigurationModule extends AbstractModule {
 				// just type literal for generics detection
 			};
 
+	private static final TypeLiteral<Map<String, Long>> MAP_OF_STRING_TO_LONG
+			= new TypeLiteral<Map<String, Long>>() {
+				// just type literal for generics detection
+			};
+
 	private static final TypeLiteral<List<String>> LIST_OF_STRINGS = new TypeLiteral<List<String>>() {
 		// just type literal for generics detection
 	};
@@ -85,8 +90,18 @@ public class OversigtConfigurationModule extends AbstractModule {
 				.to(Objects.requireNonNull(config.getApi().getJwtSecretBase64(), "api.jwtSecretBase64"));
 		bind("api.ttl").to(config.getApi().getJwtTimeToLive());
 		bind("rateLimit").to(config.getEventManager().getRateLimit());
+		bind(MAP_OF_STRING_TO_LONG).annotatedWith(Names.named("dashboardRateLimits"))
+				.toInstance(config.getEventManager().getDashboardRateLimits());
 		bind(Duration.class).annotatedWith(Names.named("discardEventsAfter"))
 				.toInstance(config.getEventManager().getDiscardEventsAfter());
+		bind("dispatchThreads").to(config.getEventManager().getDispatchThreads());
+		bind("connectionQueueSize").to(config.getEventManager().getConnectionQueueSize());
+		bind("pipelineQueueSize").to(config.getEventManager().getPipelineQueueSize());
+		bind("deltaEvents").to(config.getEventManager().isDeltaEvents());
+		bind("deltaKeyframeInterval").to(config.getEventManager().getDeltaKeyframeInterval());
+		bind("eventSnapshotFile").to(config.getEventManager().getSnapshotFile());
+		bind(Duration.class).annotatedWith(Names.named("eventSnapshotInterval"))
+				.toInstance(config.getEventManager().getSnapshotInterval());
 		bind("templateNumberFormat").to(config.getTemplateNumberFormat());
 
 		// database
@@ -112,6 +127,28 @@ public class OversigtConfigurationModule extends AbstractModule {
 		bindNamedStringArray("additionalPackages", config.getEventSources().getPackages());
 		bindNamedStringArray("widgetsPaths", config.getEventSources().getWidgetsPaths());
 		bindNamedArray(Path[].class, "addonFolders", Paths::get, config.getEventSources().getAddonFolders());
+		bind("eventSources.threadMode").to(config.getEventSources().getThreadMode());
+		bind("eventSources.workerThreads").to(config.getEventSources().getWorkerThreads());
+		bind("eventSources.maxVirtualThreads").to(config.getEventSources().getMaxVirtualThreads());
+		bind("eventSources.queueSize").to(config.getEventSources().getQueueSize());
+		bind("eventSources.demandDriven").to(config.getEventSources().isDemandDriven());
+		bind(Duration.class).annotatedWith(Names.named("eventSources.idleFrequency"))
+				.toInstance(config.getEventSources().getIdleFrequency());
+		bind(Duration.class).annotatedWith(Names.named("eventSources.coalescingWindow"))
+				.toInstance(config.getEventSources().getCoalescingWindow());
+		bind(Duration.class).annotatedWith(Names.named("eventSources.iterationTimeout"))
+				.toInstance(config.getEventSources().getIterationTimeout());
+		bind(Duration.class).annotatedWith(Names.named("eventSources.maxBackoff"))
+				.toInstance(config.getEventSources().getMaxBackoff());
+		bind("eventSources.maxUnchangedSlowdown").to(config.getEventSources().getMaxUnchangedSlowdown());
+		bind("eventSources.startupParallelism").to(config.getEventSources().getStartupParallelism());
+		bind(Duration.class).annotatedWith(Names.named("eventSources.startupWarmUp"))
+				.toInstance(config.getEventSources().getStartupWarmUp());
+		bind("eventSources.historyFolder").to(config.getEventSources().getHistoryFolder());
+		bind("eventSources.connectionPoolSize").to(config.getEventSources().getConnectionPoolSize());
+		bind(Duration.class).annotatedWith(Names.named("eventSources.connectionIdleTimeout"))
+				.toInstance(config.getEventSources().getConnectionIdleTimeout());
+		bind("eventSources.jdbcFetchSize").to(config.getEventSources().getJdbcFetchSize());
 
 		// Mail Settings
 		bind("mailSenderHost").to(
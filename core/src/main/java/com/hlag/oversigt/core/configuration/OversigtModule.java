@@ -2,13 +2,14 @@ package com.hlag.oversigt.core.configuration;
 
 import java.util.UUID;
 
-import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.Service;
 import com.google.inject.AbstractModule;
 import com.google.inject.Inject;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
+import com.hlag.oversigt.connect.db.JdbcConnectionPools;
 import com.hlag.oversigt.controller.DashboardController;
 import com.hlag.oversigt.controller.EventSourceDescriptorController;
 import com.hlag.oversigt.controller.EventSourceInstanceController;
@@ -16,14 +17,19 @@ import com.hlag.oversigt.controller.EventSourceNameGenerator;
 import com.hlag.oversigt.core.HttpHandlers;
 import com.hlag.oversigt.core.Oversigt;
 import com.hlag.oversigt.core.OversigtServer;
+import com.hlag.oversigt.core.event.EventPipeline;
+import com.hlag.oversigt.core.event.EventRoutingIndex;
 import com.hlag.oversigt.core.event.EventSender;
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager;
+import com.hlag.oversigt.core.eventsource.FetchCoalescer;
 import com.hlag.oversigt.core.eventsource.NightlyDashboardReloaderService;
 import com.hlag.oversigt.core.eventsource.NightlyEventSourceRestarterService;
 import com.hlag.oversigt.properties.SerializablePropertyController;
 import com.hlag.oversigt.security.RoleProvider;
 import com.hlag.oversigt.storage.JdbcDatabase;
 import com.hlag.oversigt.storage.Storage;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesStore;
 import com.hlag.oversigt.util.MailSender;
 
 /**
@@ -51,7 +57,12 @@ public class OversigtModule extends AbstractModule {
 		bind(OversigtServer.class);
 		bind(HttpHandlers.class);
 		bind(EventSourceStatisticsManager.class);
+		bind(EventSourceScheduler.class);
+		bind(FetchCoalescer.class);
+		bind(TimeSeriesStore.class);
+		bind(JdbcConnectionPools.class);
 		bind(EventSender.class);
+		bind(EventRoutingIndex.class);
 		bind(RoleProvider.class);
 		bind(MailSender.class);
 
@@ -73,18 +84,17 @@ public class OversigtModule extends AbstractModule {
 	}
 
 	/**
-	 * Create and configure the event bus used to pass events within this
+	 * Create and configure the event pipeline used to pass events within this
 	 * application
 	 *
-	 * @param sender the sender used to send events to the clients
-	 * @return the event bus
+	 * @param sender    the sender used to send events to the clients
+	 * @param queueSize the capacity of the queues between the pipeline's stages
+	 * @return the event pipeline
 	 */
 	@Singleton
 	@Provides
 	@Inject
-	EventBus provideEventBus(final EventSender sender) {
-		final EventBus eventBus = new EventBus(Oversigt::handleEventBusException);
-		eventBus.register(sender);
-		return eventBus;
+	EventPipeline provideEventPipeline(final EventSender sender, @Named("pipelineQueueSize") final int queueSize) {
+		return new EventPipeline(sender, queueSize, Oversigt::handleEventPipelineException);
 	}
 }
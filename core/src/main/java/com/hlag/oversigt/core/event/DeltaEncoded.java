@@ -0,0 +1,20 @@
+package com.hlag.oversigt.core.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Mark an event class with this annotation to allow the event to be sent as
+ * difference to the previous event with the same ID. Use it for events with
+ * large payloads of which usually only small parts change, e.g. graphs or
+ * lists. Delta encoding needs to be enabled in the configuration, too.
+ */
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface DeltaEncoded {
+	/* just a marker annotation */
+}
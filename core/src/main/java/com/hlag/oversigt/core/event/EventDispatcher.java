@@ -0,0 +1,567 @@
+package com.hlag.oversigt.core.event;
+
+import static com.hlag.oversigt.util.Utils.logDebug;
+import static com.hlag.oversigt.util.Utils.logWarn;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hlag.oversigt.model.Dashboard;
+import com.hlag.oversigt.util.CountingThreadFactory;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import io.undertow.server.handlers.sse.ServerSentEventConnection.EventCallback;
+import io.undertow.util.AttachmentKey;
+
+/**
+ * Dispatches events to server sent event connections. Every connection owns a
+ * bounded queue of pending events. The queue conflates events: if an event
+ * arrives while an older event with the same ID is still waiting to be
+ * written, the older event is replaced in place by the newer one. So a slow
+ * connection never holds more than one pending event per widget.
+ *
+ * <p>
+ * A pool of worker threads takes turns serving the connections: a worker
+ * writes at most {@link #BATCH_SIZE} events of one connection and then puts
+ * the connection back to the end of the line. A connection is never served by
+ * two workers at the same time, so the order of events per connection is
+ * preserved.
+ * </p>
+ *
+ * <p>
+ * Connections may be rate limited. A worker never waits for a throttled
+ * connection. Instead the connection is put aside and served again by a timer
+ * as soon as it is allowed to receive the next event. So throttling one
+ * connection does not delay any other connection.
+ * </p>
+ */
+public final class EventDispatcher {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventDispatcher.class);
+
+	/**
+	 * Number of events a worker writes to a connection before serving the next
+	 * connection
+	 */
+	private static final int BATCH_SIZE = 16;
+
+	/**
+	 * Number of events that may have been handed to a connection without having
+	 * been written to the network. If a connection reaches this limit it will not
+	 * be served until Undertow reports that the events have been written.
+	 */
+	private static final int MAX_EVENTS_IN_FLIGHT = 4;
+
+	private static final AttachmentKey<ConnectionOutbox> OUTBOX_KEY = AttachmentKey.create(ConnectionOutbox.class);
+
+	private final Set<ConnectionOutbox> outboxes = ConcurrentHashMap.newKeySet();
+
+	private final ExecutorService workers;
+
+	private final ScheduledExecutorService throttleTimer = Executors
+			.newSingleThreadScheduledExecutor(CountingThreadFactory.createDaemonThreadFactory("EventDispatcher-Throttle-"));
+
+	private final int queueSize;
+
+	private final ToLongFunction<ServerSentEventConnection> rateLimits;
+
+	private final EventWriter writer;
+
+	/**
+	 * Create a new dispatcher
+	 *
+	 * @param workerThreads the number of threads writing events to connections
+	 * @param queueSize     the maximum number of pending events per connection
+	 * @param rateLimits    function returning the maximum number of events per
+	 *                      second for a connection. Values less than or equal to
+	 *                      zero disable rate limiting for the connection.
+	 * @param writer        the object actually writing the events
+	 */
+	EventDispatcher(final int workerThreads,
+			final int queueSize,
+			final ToLongFunction<ServerSentEventConnection> rateLimits,
+			final EventWriter writer) {
+		this.queueSize = queueSize;
+		this.rateLimits = rateLimits;
+		this.writer = writer;
+		workers = Executors.newFixedThreadPool(workerThreads,
+				new CountingThreadFactory("EventDispatcher-", thread -> {
+					thread.setDaemon(true);
+					thread.setPriority(Thread.NORM_PRIORITY + 1);
+				}));
+	}
+
+	void dispatch(final ServerSentEventConnection connection, final OversigtEvent event) {
+		final ConnectionOutbox outbox = getOutbox(connection);
+		if (!outbox.offer(event, !event.getClass().isAnnotationPresent(NoCache.class))) {
+			logWarn(LOGGER,
+					"Event queue of SSE connection for dashboard [%s] is full. Dropped oldest event.",
+					outbox.getDashboardId());
+		}
+		schedule(outbox);
+	}
+
+	List<ConnectionStatistics> getConnectionStatistics() {
+		return outboxes.stream().map(ConnectionOutbox::getStatistics).collect(Collectors.toList());
+	}
+
+	private ConnectionOutbox getOutbox(final ServerSentEventConnection connection) {
+		synchronized (connection) {
+			final ConnectionOutbox existingOutbox = connection.getAttachment(OUTBOX_KEY);
+			if (existingOutbox != null) {
+				return existingOutbox;
+			}
+			final long rateLimit = rateLimits.applyAsLong(connection);
+			final ConnectionOutbox outbox = new ConnectionOutbox(connection,
+					queueSize,
+					rateLimit > 0 ? Optional.of(new TokenBucket(rateLimit)) : Optional.empty());
+			connection.putAttachment(OUTBOX_KEY, outbox);
+			outboxes.add(outbox);
+			connection.addCloseTask(closedConnection -> {
+				outboxes.remove(outbox);
+				outbox.clear();
+			});
+			return outbox;
+		}
+	}
+
+	private void schedule(final ConnectionOutbox outbox) {
+		if (outbox.hasWork() && outbox.tryMarkScheduled()) {
+			workers.execute(() -> serve(outbox));
+		}
+	}
+
+	private void serve(final ConnectionOutbox outbox) {
+		long throttleNanos = 0;
+		try {
+			int written = 0;
+			while (written < BATCH_SIZE && outbox.hasWork()) {
+				throttleNanos = outbox.acquireToken();
+				if (throttleNanos > 0) {
+					break;
+				}
+				final Optional<PendingEvent> pending = outbox.poll();
+				if (!pending.isPresent()) {
+					outbox.releaseToken();
+					break;
+				}
+				if (write(outbox, pending.get())) {
+					written += 1;
+				} else {
+					// skipped events must not use up the rate limit of the connection
+					outbox.releaseToken();
+				}
+			}
+		} catch (final Exception e) {
+			LOGGER.error("Unable to send events.", e);
+		} finally {
+			if (throttleNanos > 0) {
+				// the connection stays marked as scheduled until the timer fires
+				throttle(outbox, throttleNanos);
+			} else {
+				outbox.unmarkScheduled();
+				schedule(outbox);
+			}
+		}
+	}
+
+	private void throttle(final ConnectionOutbox outbox, final long nanos) {
+		outbox.countThrottling();
+		throttleTimer.schedule(() -> {
+			outbox.unmarkScheduled();
+			schedule(outbox);
+		}, nanos, TimeUnit.NANOSECONDS);
+	}
+
+	private boolean write(final ConnectionOutbox outbox, final PendingEvent pending) {
+		outbox.startWriting();
+		Optional<EventFrame> frame = Optional.empty();
+		try {
+			frame = writer.write(outbox.connection, pending.event, pending.resumeSequence, new EventCallback() {
+				@Override
+				public void done(@Nullable final ServerSentEventConnection connection,
+						@Nullable final String data,
+						@Nullable final String event,
+						@Nullable final String id) {
+					outbox.finishWriting(pending, true);
+					schedule(outbox);
+				}
+
+				@Override
+				public void failed(@Nullable final ServerSentEventConnection connection,
+						@Nullable final String data,
+						@Nullable final String event,
+						@Nullable final String id,
+						@Nullable final IOException e) {
+					logDebug(LOGGER, "Unable to write event [%s]: %s", pending.event.getId(), e);
+					outbox.finishWriting(pending, false);
+					schedule(outbox);
+				}
+			});
+		} catch (final Exception e) {
+			LOGGER.error("Unable to send event.", e);
+		} finally {
+			if (frame.isPresent()) {
+				outbox.countBytes(frame.get().getLength());
+			} else {
+				outbox.abortWriting();
+			}
+		}
+		return frame.isPresent();
+	}
+
+	/**
+	 * Writes events to a server sent event connection
+	 */
+	@FunctionalInterface
+	interface EventWriter {
+		/**
+		 * Write the given event to the given connection
+		 *
+		 * @param connection     the connection to write to
+		 * @param event          the event to write
+		 * @param resumeSequence the sequence up to which the connection will have
+		 *                       received all events once this event has been
+		 *                       written. Zero if unknown.
+		 * @param callback       the callback to be handed to the connection when
+		 *                       sending the event
+		 * @return the frame that has been handed to the connection or
+		 *         {@link Optional#empty()} if the event has been skipped. The
+		 *         callback is only called if a frame has been returned.
+		 */
+		Optional<EventFrame> write(ServerSentEventConnection connection,
+				OversigtEvent event,
+				long resumeSequence,
+				EventCallback callback);
+	}
+
+	private static final class PendingEvent {
+		private final OversigtEvent event;
+
+		private final long enqueuedAt;
+
+		/**
+		 * The sequence up to which the connection has received all events once this
+		 * event has been written. Set when the event is taken out of the queue.
+		 */
+		private long resumeSequence = 0;
+
+		private PendingEvent(final OversigtEvent event) {
+			this(event, System.nanoTime());
+		}
+
+		private PendingEvent(final OversigtEvent event, final long enqueuedAt) {
+			this.event = event;
+			this.enqueuedAt = enqueuedAt;
+		}
+	}
+
+	private static final class ConnectionOutbox {
+		private final ServerSentEventConnection connection;
+
+		private final String dashboardId;
+
+		private final int capacity;
+
+		private final Optional<TokenBucket> tokenBucket;
+
+		/**
+		 * Pending events in the order of their arrival. Events that may be conflated
+		 * are keyed by their ID, all other events are keyed by the pending event
+		 * itself.
+		 */
+		private final Map<Object, PendingEvent> queue = new LinkedHashMap<>();
+
+		private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+		private int eventsInFlight = 0;
+
+		private long sentEvents = 0;
+
+		private long droppedEvents = 0;
+
+		private long conflatedEvents = 0;
+
+		private long throttlings = 0;
+
+		/**
+		 * Highest sequence of all events taken out of the queue so far
+		 */
+		private long highestSequence = 0;
+
+		/**
+		 * The connection never received the events dropped because the queue was
+		 * full, so it must not resume behind them
+		 */
+		private long highestResumableSequence = Long.MAX_VALUE;
+
+		private long sentBytes = 0;
+
+		private final AtomicLong lastLagNanos = new AtomicLong(0);
+
+		private final AtomicLong maxLagNanos = new AtomicLong(0);
+
+		private ConnectionOutbox(final ServerSentEventConnection connection,
+				final int capacity,
+				final Optional<TokenBucket> tokenBucket) {
+			this.connection = connection;
+			this.capacity = capacity;
+			this.tokenBucket = tokenBucket;
+			dashboardId = Optional.ofNullable(connection.getAttachment(EventSender.DASHBOARD_KEY))
+					.map(Dashboard::getId)
+					.orElse("*");
+		}
+
+		private String getDashboardId() {
+			return dashboardId;
+		}
+
+		private synchronized boolean offer(final OversigtEvent event, final boolean conflate) {
+			if (conflate) {
+				final String eventId = Objects.requireNonNull(event.getId());
+				final PendingEvent replaced = queue.get(eventId);
+				if (replaced != null) {
+					// keep the position in the queue, but only send the latest state
+					queue.put(eventId, new PendingEvent(event, replaced.enqueuedAt));
+					conflatedEvents += 1;
+					return true;
+				}
+			}
+
+			boolean accepted = true;
+			if (queue.size() >= capacity) {
+				drop();
+				droppedEvents += 1;
+				accepted = false;
+			}
+			final PendingEvent pending = new PendingEvent(event);
+			queue.put(conflate ? event.getId() : pending, pending);
+			return accepted;
+		}
+
+		private synchronized Optional<PendingEvent> poll() {
+			final Iterator<PendingEvent> iterator = queue.values().iterator();
+			if (!iterator.hasNext()) {
+				return Optional.empty();
+			}
+			final PendingEvent pending = iterator.next();
+			iterator.remove();
+
+			// events still waiting in the queue may be older than the ones sent before
+			highestSequence = Math.max(highestSequence, pending.event.getSequence());
+			pending.resumeSequence = queue.values()
+					.stream()
+					.mapToLong(waiting -> waiting.event.getFirstSequence())
+					.filter(sequence -> sequence > 0)
+					.map(sequence -> sequence - 1)
+					.reduce(Math.min(highestSequence, highestResumableSequence), Math::min);
+			return Optional.of(pending);
+		}
+
+		private synchronized void drop() {
+			final Iterator<PendingEvent> iterator = queue.values().iterator();
+			final long firstSequence = iterator.next().event.getFirstSequence();
+			iterator.remove();
+			if (firstSequence > 0) {
+				highestResumableSequence = Math.min(highestResumableSequence, firstSequence - 1);
+			}
+		}
+
+		private synchronized Optional<PendingEvent> peek() {
+			return queue.values().stream().findFirst();
+		}
+
+		private synchronized void clear() {
+			queue.clear();
+		}
+
+		private synchronized boolean canWrite() {
+			return eventsInFlight < MAX_EVENTS_IN_FLIGHT && connection.isOpen();
+		}
+
+		private synchronized boolean hasWork() {
+			return !queue.isEmpty() && canWrite();
+		}
+
+		/**
+		 * Take a token for the next event
+		 *
+		 * @return <code>0</code> if the next event may be sent immediately,
+		 *         otherwise the number of nanoseconds to wait
+		 */
+		private long acquireToken() {
+			return tokenBucket.map(TokenBucket::tryAcquire).orElse(0L);
+		}
+
+		private void releaseToken() {
+			tokenBucket.ifPresent(TokenBucket::release);
+		}
+
+		private synchronized void countThrottling() {
+			throttlings += 1;
+		}
+
+		private boolean tryMarkScheduled() {
+			return scheduled.compareAndSet(false, true);
+		}
+
+		private void unmarkScheduled() {
+			scheduled.set(false);
+		}
+
+		private synchronized void startWriting() {
+			eventsInFlight += 1;
+		}
+
+		private synchronized void abortWriting() {
+			eventsInFlight -= 1;
+		}
+
+		private synchronized void countBytes(final int bytes) {
+			sentBytes += bytes;
+		}
+
+		private void finishWriting(final PendingEvent pending, final boolean success) {
+			synchronized (this) {
+				eventsInFlight -= 1;
+				if (success) {
+					sentEvents += 1;
+				}
+			}
+			final long lag = System.nanoTime() - pending.enqueuedAt;
+			lastLagNanos.set(lag);
+			maxLagNanos.accumulateAndGet(lag, Math::max);
+		}
+
+		private synchronized ConnectionStatistics getStatistics() {
+			final long oldestPendingNanos = peek()
+					.map(pending -> System.nanoTime() - pending.enqueuedAt)
+					.orElse(0L);
+			return new ConnectionStatistics(dashboardId,
+					queue.size(),
+					eventsInFlight,
+					sentEvents,
+					droppedEvents,
+					conflatedEvents,
+					throttlings,
+					sentBytes,
+					Duration.ofNanos(oldestPendingNanos),
+					Duration.ofNanos(lastLagNanos.get()),
+					Duration.ofNanos(maxLagNanos.get()));
+		}
+	}
+
+	/**
+	 * Snapshot of the delivery state of one server sent event connection
+	 */
+	public static final class ConnectionStatistics {
+		private final String dashboardId;
+
+		private final int queueDepth;
+
+		private final int eventsInFlight;
+
+		private final long sentEvents;
+
+		private final long droppedEvents;
+
+		private final long conflatedEvents;
+
+		private final long throttlings;
+
+		private final long sentBytes;
+
+		private final Duration oldestPendingEventAge;
+
+		private final Duration lastLag;
+
+		private final Duration maxLag;
+
+		private ConnectionStatistics(final String dashboardId,
+				final int queueDepth,
+				final int eventsInFlight,
+				final long sentEvents,
+				final long droppedEvents,
+				final long conflatedEvents,
+				final long throttlings,
+				final long sentBytes,
+				final Duration oldestPendingEventAge,
+				final Duration lastLag,
+				final Duration maxLag) {
+			this.dashboardId = dashboardId;
+			this.queueDepth = queueDepth;
+			this.eventsInFlight = eventsInFlight;
+			this.sentEvents = sentEvents;
+			this.droppedEvents = droppedEvents;
+			this.conflatedEvents = conflatedEvents;
+			this.throttlings = throttlings;
+			this.sentBytes = sentBytes;
+			this.oldestPendingEventAge = oldestPendingEventAge;
+			this.lastLag = lastLag;
+			this.maxLag = maxLag;
+		}
+
+		public String getDashboardId() {
+			return dashboardId;
+		}
+
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		public int getEventsInFlight() {
+			return eventsInFlight;
+		}
+
+		public long getSentEvents() {
+			return sentEvents;
+		}
+
+		public long getDroppedEvents() {
+			return droppedEvents;
+		}
+
+		public long getConflatedEvents() {
+			return conflatedEvents;
+		}
+
+		public long getThrottlings() {
+			return throttlings;
+		}
+
+		public long getSentBytes() {
+			return sentBytes;
+		}
+
+		public Duration getOldestPendingEventAge() {
+			return oldestPendingEventAge;
+		}
+
+		public Duration getLastLag() {
+			return lastLag;
+		}
+
+		public Duration getMaxLag() {
+			return maxLag;
+		}
+	}
+}
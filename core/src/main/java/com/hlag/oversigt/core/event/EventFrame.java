@@ -0,0 +1,161 @@
+package com.hlag.oversigt.core.event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Utf8;
+import com.hlag.oversigt.util.JsonUtils;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The serialized form of an {@link OversigtEvent}. An event is serialized only
+ * once and the resulting frame is shared by all connections the event is sent
+ * to.
+ */
+final class EventFrame {
+	/**
+	 * Name of the server sent event carrying a patch to be applied to the
+	 * previous event with the same ID
+	 */
+	static final String PATCH_EVENT_TYPE = "patch";
+
+	private static final AtomicLong SERIALS = new AtomicLong(0);
+
+	static EventFrame of(final String data) {
+		return of(null, data);
+	}
+
+	static EventFrame of(@Nullable final String type, final String data) {
+		return new EventFrame(type, data);
+	}
+
+	/**
+	 * Create a frame containing the given frames, so they can be sent as one
+	 * server sent event
+	 *
+	 * @param frames the frames to bundle
+	 * @return the frame containing all given frames
+	 */
+	static EventFrame snapshot(final List<EventFrame> frames) {
+		final StringBuilder data = new StringBuilder("{\"events\":[");
+		for (int i = 0; i < frames.size(); i += 1) {
+			if (i > 0) {
+				data.append(',');
+			}
+			data.append(frames.get(i).getData());
+		}
+		return new EventFrame(SnapshotEvent.SNAPSHOT_EVENT_TYPE, data.append("]}").toString());
+	}
+
+	/**
+	 * Unique number identifying this frame
+	 */
+	private final long serial = SERIALS.incrementAndGet();
+
+	/**
+	 * The name of the server sent event or <code>null</code> for a plain message
+	 */
+	@Nullable
+	private final String type;
+
+	/**
+	 * The JSON representation of the event
+	 */
+	private final String data;
+
+	/**
+	 * The number of bytes of the complete server sent event frame encoded as
+	 * UTF-8
+	 */
+	private final int length;
+
+	/**
+	 * Patches transforming other frames into this frame, keyed by the serial of
+	 * the frame the patch has to be applied to. The patches are computed only
+	 * once for all connections that received the same previous frame.
+	 */
+	private final Map<Long, Optional<EventFrame>> patches = new ConcurrentHashMap<>();
+
+	private EventFrame(@Nullable final String type, final String data) {
+		this.type = type;
+		this.data = data;
+		length = computeLength(type, data);
+	}
+
+	@Nullable
+	String getType() {
+		return type;
+	}
+
+	String getData() {
+		return data;
+	}
+
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Get a frame containing a patch that transforms the given previous frame
+	 * into this frame
+	 *
+	 * @param eventId  the ID of the event both frames belong to
+	 * @param previous the frame the client received before
+	 * @return the patch frame or {@link Optional#empty()} if the patch would not
+	 *         be smaller than this frame
+	 */
+	Optional<EventFrame> getPatch(final String eventId, final EventFrame previous) {
+		return patches.computeIfAbsent(previous.serial, serial -> createPatch(eventId, previous));
+	}
+
+	private Optional<EventFrame> createPatch(final String eventId, final EventFrame previous) {
+		final ArrayNode operations = JsonPatch.diff(JsonUtils.fromJson(previous.getData(), JsonNode.class),
+				JsonUtils.fromJson(getData(), JsonNode.class));
+		final ObjectNode patch = JsonNodeFactory.instance.objectNode();
+		patch.put("id", eventId);
+		patch.set("patch", operations);
+		final EventFrame frame = new EventFrame(PATCH_EVENT_TYPE, JsonUtils.toJson(patch));
+		return frame.getLength() < getLength() ? Optional.of(frame) : Optional.empty();
+	}
+
+	/**
+	 * Compute the length of the UTF-8 encoded server sent event frame without
+	 * encoding it. Every line of the data is prefixed with <code>data:</code> and
+	 * terminated by a line feed and the frame ends with an empty line.
+	 *
+	 * @param type the name of the server sent event or <code>null</code>
+	 * @param data the data of the event
+	 * @return the number of bytes of the frame
+	 */
+	private static int computeLength(@Nullable final String type, final String data) {
+		int lineFeeds = 0;
+		for (int i = 0; i < data.length(); i += 1) {
+			if (data.charAt(i) == '\n') {
+				lineFeeds += 1;
+			}
+		}
+		int length = utf8Length(data) + (lineFeeds + 1) * "data:".length() + 2;
+		if (type != null) {
+			length += "event:".length() + utf8Length(type) + 1;
+		}
+		return length;
+	}
+
+	private static int utf8Length(final String string) {
+		try {
+			return Utf8.encodedLength(string);
+		} catch (@SuppressWarnings("unused") final IllegalArgumentException e) {
+			// unpaired surrogates are replaced while encoding
+			return string.getBytes(StandardCharsets.UTF_8).length;
+		}
+	}
+}
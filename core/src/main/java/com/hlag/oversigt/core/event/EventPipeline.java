@@ -0,0 +1,358 @@
+package com.hlag.oversigt.core.event;
+
+import static com.hlag.oversigt.util.Utils.logWarn;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hlag.oversigt.util.CountingThreadFactory;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+
+/**
+ * Passes events from the event sources to the clients. The pipeline consists
+ * of the following stages, each of them connected to the next one by a bounded
+ * {@link RingBuffer}:
+ * <ol>
+ * <li><b>ingest</b>: producers hand events to the pipeline. This never blocks:
+ * if the pipeline is overloaded, the event is dropped.</li>
+ * <li><b>cache</b>: one thread numbers the events and stores them in the
+ * cache of the {@link EventSender}.</li>
+ * <li><b>route</b>: one thread looks up the connections interested in an
+ * event and hands the event to them.</li>
+ * <li><b>dispatch</b>: the {@link EventDispatcher} writes the events to the
+ * connections.</li>
+ * </ol>
+ * Every stage is processed by exactly one thread, so all commands pass the
+ * pipeline in the order they have been ingested.
+ */
+public final class EventPipeline {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventPipeline.class);
+
+	/**
+	 * Maximum time a stage sleeps before checking its input again
+	 */
+	private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	/**
+	 * Time a stage waits before retrying to hand a command to the next stage
+	 */
+	private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final EventSender sender;
+
+	private final BiConsumer<Throwable, Object> exceptionHandler;
+
+	private final Stage routeStage;
+
+	private final Stage cacheStage;
+
+	private final AtomicLong droppedEvents = new AtomicLong(0);
+
+	/**
+	 * Create and start a new event pipeline
+	 *
+	 * @param sender           the sender caching and sending the events
+	 * @param queueSize        the capacity of the queues between the stages
+	 * @param exceptionHandler called with the exception and the subject of the
+	 *                         command if processing a command fails
+	 */
+	public EventPipeline(final EventSender sender,
+			final int queueSize,
+			final BiConsumer<Throwable, Object> exceptionHandler) {
+		this.sender = sender;
+		this.exceptionHandler = exceptionHandler;
+		routeStage = new Stage("EventPipeline-Route-", queueSize, command -> command.route(sender), null);
+		cacheStage = new Stage("EventPipeline-Cache-", queueSize, command -> command.cache(sender), routeStage);
+	}
+
+	/**
+	 * Publish an event to all interested clients
+	 *
+	 * @param event the event to publish
+	 */
+	public void publish(final OversigtEvent event) {
+		Objects.requireNonNull(event, "The event must not be null.");
+		if (!cacheStage.offer(new PublishCommand(event))) {
+			final long dropped = droppedEvents.incrementAndGet();
+			logWarn(LOGGER,
+					"Event pipeline is full. Dropped event [%s]. Events dropped so far: %s",
+					event.getId(),
+					dropped);
+		}
+	}
+
+	/**
+	 * Publish an event the event source considers to have the same content as its
+	 * previous event. If the cached event has the same content, only its lifetime
+	 * is extended and the interested clients receive a small touch message.
+	 * Otherwise the event is published like by {@link #publish(OversigtEvent)}.
+	 *
+	 * @param event the unchanged event
+	 */
+	public void publishUnchanged(final OversigtEvent event) {
+		Objects.requireNonNull(event, "The event must not be null.");
+		if (!cacheStage.offer(new TouchCommand(event))) {
+			final long dropped = droppedEvents.incrementAndGet();
+			logWarn(LOGGER,
+					"Event pipeline is full. Dropped unchanged event [%s]. Events dropped so far: %s",
+					event.getId(),
+					dropped);
+		}
+	}
+
+	/**
+	 * Remove the cached event with the given ID, so new clients do not receive it
+	 * anymore
+	 *
+	 * @param eventId the ID of the event to remove
+	 */
+	public void removeEvent(final String eventId) {
+		final RemoveCommand command = new RemoveCommand(eventId);
+		if (!cacheStage.offer(command)) {
+			// removals are rare and cheap, so do not lose them
+			process(command, () -> command.cache(sender));
+		}
+	}
+
+	/**
+	 * Register a new client connection
+	 *
+	 * @param connection the connection of the client
+	 */
+	public void addConnection(final ServerSentEventConnection connection) {
+		final ConnectCommand command = new ConnectCommand(connection);
+		if (!cacheStage.offer(command)) {
+			// a client without a connection would not show anything, so do not lose it
+			process(command, () -> command.route(sender));
+		}
+	}
+
+	/**
+	 * Get a snapshot of the state of the pipeline
+	 *
+	 * @return the current statistics of the pipeline
+	 */
+	public PipelineStatistics getStatistics() {
+		return new PipelineStatistics(droppedEvents.get(), cacheStage.queue.size() + routeStage.queue.size());
+	}
+
+	private void process(final Command command, final Runnable action) {
+		try {
+			action.run();
+		} catch (final Exception e) {
+			exceptionHandler.accept(e, command.getSubject());
+		}
+	}
+
+	/**
+	 * One stage of the pipeline: a thread processing the commands of a queue and
+	 * handing them to the next stage afterwards
+	 */
+	private final class Stage {
+		private final RingBuffer<Command> queue;
+
+		private final Consumer<Command> action;
+
+		@Nullable
+		private final Stage next;
+
+		private final Thread thread;
+
+		private final AtomicBoolean sleeping = new AtomicBoolean(false);
+
+		private Stage(final String name,
+				final int queueSize,
+				final Consumer<Command> action,
+				@Nullable final Stage next) {
+			queue = new RingBuffer<>(queueSize);
+			this.action = action;
+			this.next = next;
+			thread = CountingThreadFactory.createDaemonThreadFactory(name).newThread(this::run);
+			thread.start();
+		}
+
+		private boolean offer(final Command command) {
+			if (!queue.offer(command)) {
+				return false;
+			}
+			if (sleeping.get()) {
+				LockSupport.unpark(thread);
+			}
+			return true;
+		}
+
+		private void run() {
+			while (!Thread.currentThread().isInterrupted()) {
+				final Command command = queue.poll();
+				if (command == null) {
+					sleeping.set(true);
+					if (queue.isEmpty()) {
+						LockSupport.parkNanos(this, MAX_IDLE_NANOS);
+					}
+					sleeping.set(false);
+					continue;
+				}
+
+				process(command, () -> action.accept(command));
+
+				// stages are allowed to wait for each other, only producers must not block
+				if (next != null) {
+					while (!next.offer(command)) {
+						LockSupport.parkNanos(this, BACKOFF_NANOS);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Something to be passed through the pipeline. Every stage calls its
+	 * corresponding method.
+	 */
+	/**
+	 * Snapshot of the state of the event pipeline
+	 */
+	public static final class PipelineStatistics {
+		private final long droppedEvents;
+
+		private final int queueDepth;
+
+		private PipelineStatistics(final long droppedEvents, final int queueDepth) {
+			this.droppedEvents = droppedEvents;
+			this.queueDepth = queueDepth;
+		}
+
+		/**
+		 * Get the number of events that have been dropped because the pipeline was
+		 * full
+		 *
+		 * @return the number of dropped events
+		 */
+		public long getDroppedEvents() {
+			return droppedEvents;
+		}
+
+		/**
+		 * Get the number of commands waiting to be processed
+		 *
+		 * @return the number of waiting commands
+		 */
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+	}
+
+	private abstract static class Command {
+		void cache(@SuppressWarnings("unused") final EventSender sender) {
+			// nothing to do by default
+		}
+
+		void route(@SuppressWarnings("unused") final EventSender sender) {
+			// nothing to do by default
+		}
+
+		abstract Object getSubject();
+	}
+
+	private static final class PublishCommand extends Command {
+		private final OversigtEvent event;
+
+		private PublishCommand(final OversigtEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		void cache(final EventSender sender) {
+			sender.cacheEvent(event);
+		}
+
+		@Override
+		void route(final EventSender sender) {
+			sender.routeEvent(event);
+		}
+
+		@Override
+		Object getSubject() {
+			return event;
+		}
+	}
+
+	private static final class TouchCommand extends Command {
+		private final OversigtEvent event;
+
+		/**
+		 * Whether the cached event has been touched instead of caching this event.
+		 * Written by the cache stage and read by the route stage afterwards.
+		 */
+		private boolean touched = false;
+
+		private TouchCommand(final OversigtEvent event) {
+			this.event = event;
+		}
+
+		@Override
+		void cache(final EventSender sender) {
+			touched = sender.touchEvent(event);
+		}
+
+		@Override
+		void route(final EventSender sender) {
+			if (touched) {
+				sender.routeTouch(Objects.requireNonNull(event.getId()));
+			} else {
+				sender.routeEvent(event);
+			}
+		}
+
+		@Override
+		Object getSubject() {
+			return event;
+		}
+	}
+
+	private static final class RemoveCommand extends Command {
+		private final String eventId;
+
+		private RemoveCommand(final String eventId) {
+			this.eventId = eventId;
+		}
+
+		@Override
+		void cache(final EventSender sender) {
+			sender.removeEventWithId(eventId);
+		}
+
+		@Override
+		Object getSubject() {
+			return eventId;
+		}
+	}
+
+	private static final class ConnectCommand extends Command {
+		private final ServerSentEventConnection connection;
+
+		private ConnectCommand(final ServerSentEventConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		void route(final EventSender sender) {
+			sender.newConnectionAdded(connection);
+		}
+
+		@Override
+		Object getSubject() {
+			return connection;
+		}
+	}
+}
@@ -0,0 +1,209 @@
+package com.hlag.oversigt.core.event;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.inject.Singleton;
+import com.hlag.oversigt.model.Dashboard;
+
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+
+/**
+ * Index telling which server sent event connections are interested in which
+ * events. The index maps the ID of an event source instance to the dashboards
+ * using it and each dashboard to its open connections. Connections that are
+ * not bound to a dashboard are interested in all events.
+ *
+ * <p>
+ * The dashboard part of the index is maintained incrementally by the
+ * {@link com.hlag.oversigt.controller.DashboardController} whenever widgets
+ * change. The connection part is maintained by the {@link EventSender}.
+ * </p>
+ *
+ * <p>
+ * Event sources may register a viewer listener to be notified when a client
+ * showing their event connects, e.g. to poll immediately after having been
+ * idle.
+ * </p>
+ */
+@Singleton
+public class EventRoutingIndex {
+	private final Map<String, Set<String>> dashboardIdsByEventId = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<String>> eventIdsByDashboardId = new ConcurrentHashMap<>();
+
+	private final Map<String, Set<ServerSentEventConnection>> connectionsByDashboardId = new ConcurrentHashMap<>();
+
+	private final Set<ServerSentEventConnection> unboundConnections = ConcurrentHashMap.newKeySet();
+
+	private final Set<ServerSentEventConnection> allConnections = ConcurrentHashMap.newKeySet();
+
+	private final Map<String, Runnable> viewerListenersByEventId = new ConcurrentHashMap<>();
+
+	public EventRoutingIndex() {
+		// no fields to be initialized
+	}
+
+	/**
+	 * Set the IDs of the events shown on the given dashboard
+	 *
+	 * @param dashboardId the ID of the dashboard
+	 * @param eventIds    the IDs of all events shown on the dashboard
+	 */
+	public synchronized void updateDashboard(final String dashboardId, final Collection<String> eventIds) {
+		final Set<String> newEventIds = Collections.unmodifiableSet(new HashSet<>(eventIds));
+		final Set<String> oldEventIds
+				= Optional.ofNullable(eventIdsByDashboardId.put(dashboardId, newEventIds)).orElse(Collections.emptySet());
+		oldEventIds.stream()
+				.filter(eventId -> !newEventIds.contains(eventId))
+				.forEach(eventId -> removeDashboardFromEvent(eventId, dashboardId));
+		newEventIds.stream()
+				.filter(eventId -> !oldEventIds.contains(eventId))
+				.forEach(eventId -> dashboardIdsByEventId
+						.computeIfAbsent(eventId, x -> ConcurrentHashMap.newKeySet())
+						.add(dashboardId));
+	}
+
+	/**
+	 * Remove a dashboard from the index
+	 *
+	 * @param dashboardId the ID of the dashboard to remove
+	 */
+	public synchronized void removeDashboard(final String dashboardId) {
+		Optional.ofNullable(eventIdsByDashboardId.remove(dashboardId))
+				.ifPresent(eventIds -> eventIds.forEach(eventId -> removeDashboardFromEvent(eventId, dashboardId)));
+	}
+
+	private void removeDashboardFromEvent(final String eventId, final String dashboardId) {
+		dashboardIdsByEventId.computeIfPresent(eventId, (id, dashboardIds) -> {
+			dashboardIds.remove(dashboardId);
+			return dashboardIds.isEmpty() ? null : dashboardIds;
+		});
+	}
+
+	/**
+	 * Check whether the given dashboard shows the given event
+	 *
+	 * @param dashboardId the ID of the dashboard
+	 * @param eventId     the ID of the event
+	 * @return <code>true</code> if the dashboard contains a widget showing the
+	 *         event
+	 */
+	public boolean isEventShownOnDashboard(final String dashboardId, final String eventId) {
+		return eventIdsByDashboardId.getOrDefault(dashboardId, Collections.emptySet()).contains(eventId);
+	}
+
+	/**
+	 * Register a new connection. The connection will be removed from the index
+	 * automatically once it has been closed.
+	 *
+	 * @param connection the connection to add
+	 */
+	void addConnection(final ServerSentEventConnection connection) {
+		final Optional<String> dashboardId
+				= Optional.ofNullable(connection.getAttachment(EventSender.DASHBOARD_KEY)).map(Dashboard::getId);
+		if (dashboardId.isPresent()) {
+			connectionsByDashboardId.compute(dashboardId.get(), (id, connections) -> {
+				final Set<ServerSentEventConnection> result
+						= connections != null ? connections : ConcurrentHashMap.newKeySet();
+				result.add(connection);
+				return result;
+			});
+		} else {
+			unboundConnections.add(connection);
+		}
+		allConnections.add(connection);
+		connection.addCloseTask(closedConnection -> removeConnection(connection, dashboardId));
+
+		// notify the event sources about their new viewer
+		if (dashboardId.isPresent()) {
+			eventIdsByDashboardId.getOrDefault(dashboardId.get(), Collections.emptySet())
+					.stream()
+					.map(viewerListenersByEventId::get)
+					.filter(Objects::nonNull)
+					.forEach(Runnable::run);
+		} else {
+			viewerListenersByEventId.values().forEach(Runnable::run);
+		}
+	}
+
+	private void removeConnection(final ServerSentEventConnection connection, final Optional<String> dashboardId) {
+		allConnections.remove(connection);
+		if (dashboardId.isPresent()) {
+			connectionsByDashboardId.computeIfPresent(dashboardId.get(), (id, connections) -> {
+				connections.remove(connection);
+				return connections.isEmpty() ? null : connections;
+			});
+		} else {
+			unboundConnections.remove(connection);
+		}
+	}
+
+	/**
+	 * Find all connections interested in the event with the given ID
+	 *
+	 * @param eventId the ID of the event
+	 * @return the connections showing a dashboard containing the event and all
+	 *         connections not bound to a dashboard
+	 */
+	Set<ServerSentEventConnection> getConnections(final String eventId) {
+		final Set<ServerSentEventConnection> connections = new HashSet<>(unboundConnections);
+		dashboardIdsByEventId.getOrDefault(eventId, Collections.emptySet())
+				.stream()
+				.map(connectionsByDashboardId::get)
+				.filter(Objects::nonNull)
+				.forEach(connections::addAll);
+		return connections;
+	}
+
+	/**
+	 * Check whether any client is showing the event with the given ID
+	 *
+	 * @param eventId the ID of the event
+	 * @return <code>true</code> if at least one connection is interested in the
+	 *         event
+	 */
+	public boolean hasViewers(final String eventId) {
+		return !unboundConnections.isEmpty()
+				|| dashboardIdsByEventId.getOrDefault(eventId, Collections.emptySet())
+						.stream()
+						.anyMatch(connectionsByDashboardId::containsKey);
+	}
+
+	/**
+	 * Register a listener called whenever a client showing the event with the
+	 * given ID connects. The listener is called by the thread adding the
+	 * connection, so it must return quickly.
+	 *
+	 * @param eventId  the ID of the event
+	 * @param listener the listener to call
+	 */
+	public void addViewerListener(final String eventId, final Runnable listener) {
+		viewerListenersByEventId.put(eventId, listener);
+	}
+
+	/**
+	 * Remove a listener registered by {@link #addViewerListener(String, Runnable)}
+	 *
+	 * @param eventId  the ID of the event
+	 * @param listener the listener to remove
+	 */
+	public void removeViewerListener(final String eventId, final Runnable listener) {
+		viewerListenersByEventId.remove(eventId, listener);
+	}
+
+	/**
+	 * Get all open connections
+	 *
+	 * @return all open connections
+	 */
+	Set<ServerSentEventConnection> getAllConnections() {
+		return Collections.unmodifiableSet(allConnections);
+	}
+}
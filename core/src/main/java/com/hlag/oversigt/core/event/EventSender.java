@@ -3,116 +3,428 @@ package com.hlag.oversigt.core.event;
 import static com.hlag.oversigt.util.Utils.logDebug;
 import static com.hlag.oversigt.util.Utils.logInfo;
 import static com.hlag.oversigt.util.Utils.logWarn;
+import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.WeakHashMap;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.Subscribe;
-import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.hlag.oversigt.core.event.EventDispatcher.ConnectionStatistics;
+import com.hlag.oversigt.core.event.EventSnapshotFile.Entry;
 import com.hlag.oversigt.model.Dashboard;
-import com.hlag.oversigt.model.EventSourceInstance;
-import com.hlag.oversigt.model.Widget;
+import com.hlag.oversigt.util.CountingThreadFactory;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
 import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import io.undertow.server.handlers.sse.ServerSentEventConnection.EventCallback;
 import io.undertow.util.AttachmentKey;
 
 @Singleton
 public class EventSender {
 	private static final Logger LOGGER = LoggerFactory.getLogger(EventSender.class);
 
-	private static final AttachmentKey<RateLimiter> RATE_LIMITER_KEY = AttachmentKey.create(RateLimiter.class);
-
 	public static final AttachmentKey<Dashboard> DASHBOARD_KEY = AttachmentKey.create(Dashboard.class);
 
+	public static final AttachmentKey<String> LAST_EVENT_ID_KEY = AttachmentKey.create(String.class);
+
+	/**
+	 * Separates the application ID and the sequence in the ID of a server sent
+	 * event
+	 */
+	private static final char EVENT_ID_SEPARATOR = ':';
+
 	@Named("application-id")
 	@Inject
 	private String applicationId;
 
+	@Inject
+	private EventRoutingIndex routingIndex;
+
 	private final long rateLimit;
 
-	// Send events in another thread
-	private final BlockingQueue<EventSendTask> eventsToSend = new LinkedBlockingQueue<>();
+	private final Map<String, Long> dashboardRateLimits;
+
+	// Send events in other threads
+	private final EventDispatcher dispatcher;
+
+	private final EventStore cachedEvents = new EventStore();
 
-	private final Thread thread;
+	/**
+	 * Sequence of the last published event
+	 */
+	private final AtomicLong sequence = new AtomicLong(0);
 
-	private final Map<String, OversigtEvent> cachedEvents = Collections.synchronizedMap(new HashMap<>());
+	/**
+	 * Deadlines of the cached events. There is at most one entry per event ID,
+	 * which is rescheduled if the cached event has been replaced by a newer one.
+	 */
+	private final DelayQueue<CacheExpiration> expirations = new DelayQueue<>();
+
+	/**
+	 * IDs of the events having an entry in {@link #expirations}
+	 */
+	private final Set<String> expiringEventIds = ConcurrentHashMap.newKeySet();
 
 	private final Map<ServerSentEventConnection, Map<String, LocalDateTime>> sentEventTimestamps
 			= Collections.synchronizedMap(new WeakHashMap<>());
 
+	private final boolean deltaEvents;
+
+	private final int deltaKeyframeInterval;
+
+	private final Map<ServerSentEventConnection, Map<String, DeltaState>> deltaStates
+			= Collections.synchronizedMap(new WeakHashMap<>());
+
 	private final Duration defaultEventLifetime;
 
+	/**
+	 * File keeping the cached events across restarts
+	 */
+	private final Optional<EventSnapshotFile> snapshotFile;
+
+	/**
+	 * IDs of the cached events that changed since the last write of the snapshot
+	 * file
+	 */
+	private final Set<String> changedEventIds = ConcurrentHashMap.newKeySet();
+
 	@Inject
 	public EventSender(@Named("discardEventsAfter") final Duration discardEventsAfter,
-			@Named("rateLimit") final long rateLimit) {
+			@Named("rateLimit") final long rateLimit,
+			@Named("dashboardRateLimits") final Map<String, Long> dashboardRateLimits,
+			@Named("dispatchThreads") final int dispatchThreads,
+			@Named("connectionQueueSize") final int connectionQueueSize,
+			@Named("deltaEvents") final boolean deltaEvents,
+			@Named("deltaKeyframeInterval") final int deltaKeyframeInterval,
+			@Named("eventSnapshotFile") final String eventSnapshotFile,
+			@Named("eventSnapshotInterval") final Duration eventSnapshotInterval) {
 		defaultEventLifetime = discardEventsAfter;
 		this.rateLimit = rateLimit;
+		this.dashboardRateLimits = dashboardRateLimits;
+		this.deltaEvents = deltaEvents;
+		this.deltaKeyframeInterval = deltaKeyframeInterval;
+		dispatcher = new EventDispatcher(dispatchThreads, connectionQueueSize, this::getRateLimit, this::processTask);
+		CountingThreadFactory.createDaemonThreadFactory("EventSender-Expiry-").newThread(this::expireEvents).start();
+		snapshotFile = Strings.isNullOrEmpty(eventSnapshotFile)
+				? Optional.empty()
+				: Optional.of(new EventSnapshotFile(Paths.get(eventSnapshotFile)));
+		if (snapshotFile.isPresent()) {
+			final long intervalMillis = eventSnapshotInterval.toMillis();
+			Executors
+					.newSingleThreadScheduledExecutor(
+							CountingThreadFactory.createDaemonThreadFactory("EventSender-Snapshot-"))
+					.scheduleWithFixedDelay(this::writeSnapshot, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Put the events of the snapshot file into the cache, so clients get the last
+	 * known data until the event sources have sent new events. The restored
+	 * events keep the lifetime they had when they were written. This method
+	 * should be called before the event sources are started.
+	 */
+	public void restoreSnapshot() {
+		if (!snapshotFile.isPresent()) {
+			return;
+		}
+		final Instant now = Instant.now();
+		final List<Entry> entries = snapshotFile.get().read(now);
+		int restored = 0;
+		for (final Entry entry : entries) {
+			try {
+				final JsonEvent event = new JsonEvent(entry.getJson().get());
+				event.setLifetime(Duration.between(now, entry.getExpiresAt()));
+				event.setSequence(sequence.incrementAndGet());
+				// events sent in the meantime are newer than the restored ones
+				if (cachedEvents.putIf(event, current -> false)) {
+					scheduleExpiration(event);
+					restored += 1;
+				}
+			} catch (final RuntimeException e) {
+				logWarn(LOGGER, "Unable to restore cached event [%s]: %s", entry.getEventId(), e.getMessage());
+			}
+		}
+		logInfo(LOGGER, "Restored %s cached events from %s", restored, snapshotFile.get().getPath());
+	}
+
+	/**
+	 * Append the cached events that changed since the last call to the snapshot
+	 * file. If the file grew too much, it is rewritten containing the currently
+	 * cached events only.
+	 */
+	public void writeSnapshot() {
+		if (!snapshotFile.isPresent()) {
+			return;
+		}
+		try {
+			final List<Entry> entries = new ArrayList<>();
+			for (final String eventId : new ArrayList<>(changedEventIds)) {
+				changedEventIds.remove(eventId);
+				entries.add(createSnapshotEntry(eventId));
+			}
+			snapshotFile.get().append(entries);
+			if (snapshotFile.get().needsCompaction(cachedEvents.size())) {
+				final List<Entry> currentEntries = new ArrayList<>();
+				cachedEvents.getEvents()
+						.stream()
+						.map(OversigtEvent::getId)
+						.filter(Objects::nonNull)
+						.map(this::createSnapshotEntry)
+						.filter(entry -> entry.getJson().isPresent())
+						.forEach(currentEntries::add);
+				snapshotFile.get().rewrite(currentEntries);
+			}
+		} catch (final IOException | RuntimeException e) {
+			LOGGER.error("Unable to write event snapshot.", e);
+		}
+	}
 
-		thread = new Thread(this::sendQueuedTasks, "EventSender");
-		thread.setDaemon(true);
-		thread.setPriority(Thread.NORM_PRIORITY + 1);
-		thread.start();
+	private Entry createSnapshotEntry(final String eventId) {
+		final Optional<OversigtEvent> event = cachedEvents.get(eventId)
+				.filter(cached -> !(cached instanceof ErrorEvent))
+				.filter(cached -> !isExpired(cached));
+		if (!event.isPresent()) {
+			return Entry.removed(eventId);
+		}
+		final Instant expiresAt = Instant.now().plusNanos(event.get().getExpiresAtNanos() - System.nanoTime());
+		return Entry.cached(eventId, event.get().toJson(), expiresAt);
 	}
 
-	@Subscribe
+	/**
+	 * Number the given event and put it into the cache. This method is called by
+	 * the cache stage of the {@link EventPipeline}, so events are numbered in the
+	 * order they have been published.
+	 *
+	 * @param event the event to cache
+	 */
 	void cacheEvent(final OversigtEvent event) {
 		if (shouldCacheEvent(event)) {
+			event.setSequence(sequence.incrementAndGet());
 			if (event.getLifetime() == null) {
 				event.setLifetime(defaultEventLifetime);
 			}
 			logDebug(LOGGER, "Caching event [%s]. Lifetime [%s].", event.getId(), event.getLifetime());
+			changedEventIds.add(Objects.requireNonNull(event.getId()));
 			if (!(event instanceof ErrorEvent)) {
-				cachedEvents.put(event.getId(), event);
+				cachedEvents.put(event);
+				scheduleExpiration(event);
 			} else {
-				synchronized (cachedEvents) {
-					if (!cachedEvents.containsKey(event.getId())
-							|| shouldRemoveEvent(cachedEvents.get(event.getId()))) {
-						cachedEvents.put(event.getId(), event);
-					}
-				}
+				// error events must not replace valid events
+				cachedEvents.putIf(event, EventSender::isExpired);
 			}
 		}
 	}
 
-	@Subscribe
+	/**
+	 * Extend the lifetime of the cached event if it has the same content as the
+	 * given event. Otherwise the given event is cached like by
+	 * {@link #cacheEvent(OversigtEvent)}.
+	 *
+	 * @param event the event the event source considers to be unchanged
+	 * @return <code>true</code> if the lifetime of the cached event has been
+	 *         extended or <code>false</code> if the given event has to be sent
+	 */
+	boolean touchEvent(final OversigtEvent event) {
+		final Optional<OversigtEvent> cachedEvent = cachedEvents.get(Objects.requireNonNull(event.getId()))
+				.filter(cached -> !(cached instanceof ErrorEvent))
+				.filter(cached -> !isExpired(cached))
+				.filter(cached -> cached.getFingerprint().equals(event.getFingerprint()));
+		if (!cachedEvent.isPresent()) {
+			cacheEvent(event);
+			return false;
+		}
+		if (event.getLifetime() == null) {
+			event.setLifetime(defaultEventLifetime);
+		}
+		logDebug(LOGGER, "Event [%s] is unchanged. Lifetime [%s].", event.getId(), event.getLifetime());
+		cachedEvent.get().extendLifetime(event);
+		changedEventIds.add(Objects.requireNonNull(event.getId()));
+		return true;
+	}
+
+	private void scheduleExpiration(final OversigtEvent event) {
+		final String eventId = Objects.requireNonNull(event.getId());
+		if (expiringEventIds.add(eventId)) {
+			expirations.add(new CacheExpiration(eventId, event.getExpiresAtNanos()));
+		}
+	}
+
+	/**
+	 * Remove cached events as soon as their lifetime ends and tell the clients
+	 * showing them that their data is stale.
+	 */
+	private void expireEvents() {
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				expire(expirations.take());
+			} catch (@SuppressWarnings("unused") final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (final Exception e) {
+				LOGGER.error("Unable to expire cached event.", e);
+			}
+		}
+	}
+
+	private void expire(final CacheExpiration expiration) {
+		final String eventId = expiration.eventId;
+		final Optional<OversigtEvent> cachedEvent = cachedEvents.get(eventId);
+		if (!cachedEvent.isPresent() || cachedEvent.get() instanceof ErrorEvent) {
+			// error events never expire
+			unscheduleExpiration(eventId);
+			return;
+		}
+		final OversigtEvent expiredEvent = cachedEvent.get();
+		if (!isExpired(expiredEvent) || !cachedEvents.remove(expiredEvent)) {
+			// the event has been replaced by a newer one in the meantime
+			expirations.add(new CacheExpiration(eventId, cachedEvents.get(eventId)
+					.map(OversigtEvent::getExpiresAtNanos)
+					.orElseGet(System::nanoTime)));
+			return;
+		}
+		if (!isExpired(expiredEvent) && cachedEvents.putIf(expiredEvent, current -> false)) {
+			// the lifetime of the event has been extended while removing it
+			expirations.add(new CacheExpiration(eventId, expiredEvent.getExpiresAtNanos()));
+			return;
+		}
+
+		logWarn(LOGGER,
+				"Deleting cached event [%s]. Event lifetime was [%s]",
+				eventId,
+				expiredEvent.getLifetime());
+		unscheduleExpiration(eventId);
+		final StaleEvent staleEvent = new StaleEvent(eventId);
+		routingIndex.getConnections(eventId).forEach(connection -> sendEventToConnection(staleEvent, connection));
+	}
+
+	private void unscheduleExpiration(final String eventId) {
+		expiringEventIds.remove(eventId);
+		// an event may have been cached while the ID was still scheduled, so check again
+		cachedEvents.get(eventId).filter(event -> !(event instanceof ErrorEvent)).ifPresent(this::scheduleExpiration);
+	}
+
+	/**
+	 * Tell all connections interested in the event with the given ID that the
+	 * event is still up to date
+	 *
+	 * @param eventId the ID of the unchanged event
+	 */
+	void routeTouch(final String eventId) {
+		final TouchEvent touchEvent = new TouchEvent(eventId);
+		routingIndex.getConnections(eventId).forEach(connection -> sendEventToConnection(touchEvent, connection));
+	}
+
+	/**
+	 * Hand the given event to all connections interested in it. This method is
+	 * called by the route stage of the {@link EventPipeline}, so every connection
+	 * receives the events in the order of their sequence.
+	 *
+	 * @param event the event to send
+	 */
+	void routeEvent(final OversigtEvent event) {
+		// only look at the connections that are interested in the event
+		final Set<ServerSentEventConnection> connections = shouldCacheEvent(event)
+				? routingIndex.getConnections(Objects.requireNonNull(event.getId()))
+				: routingIndex.getAllConnections();
+		connections.forEach(connection -> sendEventToConnection(event, connection));
+	}
+
 	void newConnectionAdded(final ServerSentEventConnection connection) {
-		connection.putAttachment(RATE_LIMITER_KEY, RateLimiter.create(rateLimit));
+		routingIndex.addConnection(connection);
 		logInfo(LOGGER,
 				"Starting new SSE connection. Dashboard filter: '%s'. Rate limit: %s",
 				Optional.ofNullable(connection.getAttachment(DASHBOARD_KEY)).map(Dashboard::getId).orElse("*"),
-				rateLimit);
-		synchronized (cachedEvents) {
-			cachedEvents.values().removeIf(EventSender::shouldRemoveEvent);
-			cachedEvents.values().forEach(event -> sendEventToConnection(event, connection));
+				getRateLimit(connection));
+		final long resumeAfter = getResumeSequence(connection);
+		if (resumeAfter > 0) {
+			logDebug(LOGGER, "Resuming SSE connection after event sequence %s", resumeAfter);
+		}
+		// send all events in one message, so the dashboard is complete at once
+		final List<OversigtEvent> events = cachedEvents.getEvents()
+				.stream()
+				.filter(event -> event.getSequence() > resumeAfter)
+				.filter(event -> !isExpired(event))
+				.filter(event -> shouldSendEventToConnection(event, connection))
+				.sorted(Comparator.comparingLong(OversigtEvent::getSequence))
+				.collect(toList());
+		if (!events.isEmpty()) {
+			dispatcher.dispatch(connection, new SnapshotEvent(events));
 		}
 	}
 
-	@Subscribe
+	/**
+	 * Determine the sequence of the last event the client of a reconnecting
+	 * connection has received completely. The client transmits the ID of the last
+	 * event it has received. If this ID has been created by another application
+	 * instance, e.g. before a restart, or cannot be parsed the client receives a
+	 * full snapshot of all cached events.
+	 *
+	 * @param connection the connection to check
+	 * @return the sequence after which events need to be sent or zero to send
+	 *         all cached events
+	 */
+	private long getResumeSequence(final ServerSentEventConnection connection) {
+		final String lastEventId = connection.getAttachment(LAST_EVENT_ID_KEY);
+		if (lastEventId == null) {
+			return 0;
+		}
+		final int separator = lastEventId.lastIndexOf(EVENT_ID_SEPARATOR);
+		if (separator < 0 || !applicationId.equals(lastEventId.substring(0, separator))) {
+			return 0;
+		}
+		try {
+			final long lastSequence = Long.parseLong(lastEventId.substring(separator + 1));
+			return lastSequence <= sequence.get() ? lastSequence : 0;
+		} catch (final NumberFormatException e) {
+			logDebug(LOGGER, "Unable to parse last event ID [%s]", lastEventId);
+			return 0;
+		}
+	}
+
+	/**
+	 * Determine the maximum number of events per second to be sent to the given
+	 * connection. Dashboards may have their own rate limit, all other connections
+	 * use the global rate limit.
+	 *
+	 * @param connection the connection to check
+	 * @return the rate limit of the connection
+	 */
+	private long getRateLimit(final ServerSentEventConnection connection) {
+		return Optional.ofNullable(connection.getAttachment(DASHBOARD_KEY))
+				.map(Dashboard::getId)
+				.map(dashboardRateLimits::get)
+				.orElse(rateLimit);
+	}
+
 	void removeEventWithId(final String id) {
-		synchronized (cachedEvents) {
-			final boolean deleted
-					= cachedEvents.values().removeIf(event -> Objects.requireNonNull(event.getId()).equals(id));
-			if (deleted) {
-				logWarn(LOGGER, "Deleted cached events for ID [%s]", id);
-			}
+		changedEventIds.add(id);
+		if (cachedEvents.remove(id)) {
+			logWarn(LOGGER, "Deleted cached events for ID [%s]", id);
 		}
 	}
 
@@ -124,125 +436,196 @@ public class EventSender {
 
 		// filter for current dashboard
 		if (!Optional.ofNullable(connection.getAttachment(DASHBOARD_KEY))
-				.map(d -> doesDashboardContainEventId(d, Objects.requireNonNull(event.getId())))
+				.map(d -> routingIndex.isEventShownOnDashboard(d.getId(), Objects.requireNonNull(event.getId())))
 				.orElse(true)) {
 			return false;
 		}
 
 		// special handling for error events
 		if (event instanceof ErrorEvent) {
-			final OversigtEvent cachedEvent = cachedEvents.get(event.getId());
+			final OversigtEvent cachedEvent = cachedEvents.get(Objects.requireNonNull(event.getId())).orElse(null);
 			return cachedEvent == null || cachedEvent instanceof ErrorEvent;
 		}
 
 		return true;
 	}
 
-	public void sendEventToConnection(final OversigtEvent event, final ServerSentEventConnection connection) {
+	private void sendEventToConnection(final OversigtEvent event, final ServerSentEventConnection connection) {
 		if (shouldSendEventToConnection(event, connection)) {
-			eventsToSend.add(new EventSendTask(connection, event));
+			dispatcher.dispatch(connection, event);
 		}
 	}
 
-	private void sendQueuedTasks() {
-		while (true) {
-			try {
-				final EventSendTask task = eventsToSend.take();
-				processTask(task);
-				moveTasksForConnectionToBack(task.connection);
-			} catch (final InterruptedException e) {
-				LOGGER.error("Waiting for new events has been interrupted.", e);
+	private Optional<EventFrame> processTask(final ServerSentEventConnection connection,
+			final OversigtEvent event,
+			final long resumeSequence,
+			final EventCallback callback) {
+		final Map<String, LocalDateTime> timestampsForConnection
+				= sentEventTimestamps.computeIfAbsent(connection, c -> Collections.synchronizedMap(new HashMap<>()));
+
+		final EventFrame frame;
+		if (event instanceof SnapshotEvent) {
+			final List<EventFrame> frames = ((SnapshotEvent) event).getEvents()
+					.stream()
+					.filter(e -> !isOutdated(e, timestampsForConnection))
+					.peek(e -> rememberSentEvent(e, timestampsForConnection))
+					.map(e -> rememberFullFrame(connection, e, e.getFrame(applicationId)))
+					.collect(toList());
+			if (frames.isEmpty()) {
+				return Optional.empty();
+			}
+			logDebug(LOGGER, "Sending snapshot of %s events", frames.size());
+			frame = EventFrame.snapshot(frames);
+		} else {
+			if (isOutdated(event, timestampsForConnection)) {
+				return Optional.empty();
 			}
+			// Send event - it will be serialized only once for all connections
+			logDebug(LOGGER, "Sending event [%s]", event.getId());
+			frame = encodeDelta(connection, event, event.getFrame(applicationId));
+			rememberSentEvent(event, timestampsForConnection);
 		}
-	}
 
-	private void processTask(final EventSendTask task) {
-		try {
-			processTask(task.connection, task.event);
-		} catch (final Exception e) {
-			LOGGER.error("Unable to send event.", e);
-		}
+		final String sseId = resumeSequence > 0 ? applicationId + EVENT_ID_SEPARATOR + resumeSequence : null;
+		connection.send(frame.getData(), frame.getType(), sseId, callback);
+		return Optional.of(frame);
 	}
 
-	private void processTask(final ServerSentEventConnection connection, final OversigtEvent event) {
-		final boolean isErrorEvent = event instanceof ErrorEvent;
-		final Map<String, LocalDateTime> timestampsForConnection
-				= sentEventTimestamps.computeIfAbsent(connection, c -> Collections.synchronizedMap(new HashMap<>()));
-		final LocalDateTime lastEventTimestamp = timestampsForConnection.get(event.getId());
-		if (isErrorEvent
-				|| lastEventTimestamp == null
-				|| lastEventTimestamp.isEqual(event.getCreatedOn())
-				|| lastEventTimestamp.isBefore(event.getCreatedOn())) {
-			// wait if there is rate limiter
-			Optional.ofNullable(connection.getAttachment(RATE_LIMITER_KEY)).ifPresent(RateLimiter::acquire);
-
-			// put application ID into event
-			event.setApplicationId(applicationId);
-
-			// Send event
-			logDebug(LOGGER, "Sending event [%s]", event.getId());
-			final String json = event.toJson();
-			connection.send(json);
+	/**
+	 * Check whether an error event with the same ID has been sent to the
+	 * connection after the given event has been created
+	 */
+	private static boolean isOutdated(final OversigtEvent event, final Map<String, LocalDateTime> timestamps) {
+		final LocalDateTime lastEventTimestamp = timestamps.get(event.getId());
+		return !(event instanceof ErrorEvent)
+				&& lastEventTimestamp != null
+				&& lastEventTimestamp.isAfter(event.getCreatedOn());
+	}
 
-			// note when this connection got the last event of this ID
-			if (isErrorEvent) {
-				timestampsForConnection.put(event.getId(), event.getCreatedOn());
-			}
+	private static void rememberSentEvent(final OversigtEvent event, final Map<String, LocalDateTime> timestamps) {
+		// note when this connection got the last event of this ID
+		if (event instanceof ErrorEvent) {
+			timestamps.put(event.getId(), event.getCreatedOn());
 		}
 	}
 
-	private void moveTasksForConnectionToBack(final ServerSentEventConnection connection) {
-		synchronized (eventsToSend) {
-			// find tasks with the same connection
-			final List<EventSendTask> tasksWithSameConnection = new LinkedList<>();
-			for (final EventSendTask task : eventsToSend) {
-				if (task.connection == connection) {
-					tasksWithSameConnection.add(task);
+	/**
+	 * If delta encoding is enabled and the event supports it, replace the frame
+	 * by a patch against the frame last sent to the connection for the same
+	 * event ID. Every {@link #deltaKeyframeInterval} patches the full frame is
+	 * sent again.
+	 *
+	 * @param connection the connection to send the frame to
+	 * @param event      the event to be sent
+	 * @param frame      the full frame of the event
+	 * @return the frame to actually send
+	 */
+	private EventFrame encodeDelta(final ServerSentEventConnection connection,
+			final OversigtEvent event,
+			final EventFrame frame) {
+		final String eventId = event.getId();
+		if (deltaEvents && eventId != null && event.getClass().isAnnotationPresent(DeltaEncoded.class)) {
+			final Map<String, DeltaState> states
+					= deltaStates.computeIfAbsent(connection, c -> Collections.synchronizedMap(new HashMap<>()));
+			final DeltaState previous = states.get(eventId);
+			if (previous != null && previous.patches < deltaKeyframeInterval) {
+				final Optional<EventFrame> patch = frame.getPatch(eventId, previous.frame);
+				if (patch.isPresent()) {
+					states.put(eventId, new DeltaState(frame, previous.patches + 1));
+					return patch.get();
 				}
 			}
+		}
+		return rememberFullFrame(connection, event, frame);
+	}
 
-			// move tasks to end of list
-			if (!tasksWithSameConnection.isEmpty()) {
-				eventsToSend.removeAll(tasksWithSameConnection);
-				eventsToSend.addAll(tasksWithSameConnection);
+	/**
+	 * Remember that the connection received the full frame of an event, so the
+	 * frame can be used as base for following patches
+	 *
+	 * @param connection the connection receiving the frame
+	 * @param event      the event the frame belongs to
+	 * @param frame      the full frame of the event
+	 * @return the given frame
+	 */
+	private EventFrame rememberFullFrame(final ServerSentEventConnection connection,
+			final OversigtEvent event,
+			final EventFrame frame) {
+		final String eventId = event.getId();
+		if (deltaEvents && eventId != null) {
+			final Map<String, DeltaState> states
+					= deltaStates.computeIfAbsent(connection, c -> Collections.synchronizedMap(new HashMap<>()));
+			if (event.getClass().isAnnotationPresent(DeltaEncoded.class)) {
+				states.put(eventId, new DeltaState(frame, 0));
+			} else {
+				// the client's state of this ID cannot be used as delta base anymore
+				states.remove(eventId);
 			}
 		}
+		return frame;
 	}
 
 	public Collection<OversigtEvent> getCachedEvents() {
-		synchronized (cachedEvents) {
-			return new ArrayList<>(cachedEvents.values());
-		}
+		return cachedEvents.getEvents();
 	}
 
-	private static boolean doesDashboardContainEventId(final Dashboard dashboard, final String eventId) {
-		return dashboard.getWidgets()
-				.stream()
-				.map(Widget::getEventSourceInstance)
-				.map(EventSourceInstance::getId)
-				.anyMatch(eventId::equals);
+	/**
+	 * Get the delivery state of all currently open server sent event connections
+	 *
+	 * @return a list containing the statistics of every connection
+	 */
+	public List<ConnectionStatistics> getConnectionStatistics() {
+		return dispatcher.getConnectionStatistics();
 	}
 
-	private static boolean shouldRemoveEvent(final OversigtEvent event) {
-		final boolean remove = !(event instanceof ErrorEvent) && !event.isValid();
-		if (remove) {
-			logWarn(LOGGER, "Deleting cached event [%s]. Event lifetime was [%s]", event.getId(), event.getLifetime());
-		}
-		return remove;
+	private static boolean isExpired(final OversigtEvent event) {
+		return !(event instanceof ErrorEvent) && !event.isValid();
 	}
 
 	private static boolean shouldCacheEvent(final OversigtEvent event) {
 		return !event.getClass().isAnnotationPresent(NoCache.class);
 	}
 
-	private static final class EventSendTask {
-		private ServerSentEventConnection connection;
+	/**
+	 * The deadline of the cached event with a given ID
+	 */
+	private static final class CacheExpiration implements Delayed {
+		private final String eventId;
+
+		private final long deadlineNanos;
+
+		private CacheExpiration(final String eventId, final long deadlineNanos) {
+			this.eventId = eventId;
+			this.deadlineNanos = deadlineNanos;
+		}
+
+		@Override
+		public long getDelay(@Nullable final TimeUnit unit) {
+			return Objects.requireNonNull(unit).convert(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(@Nullable final Delayed that) {
+			if (that instanceof CacheExpiration) {
+				return Long.signum(deadlineNanos - ((CacheExpiration) that).deadlineNanos);
+			}
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS),
+					Objects.requireNonNull(that).getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+
+	/**
+	 * The last full frame of an event ID a connection received and the number of
+	 * patches sent since then
+	 */
+	private static final class DeltaState {
+		private final EventFrame frame;
 
-		private OversigtEvent event;
+		private final int patches;
 
-		private EventSendTask(final ServerSentEventConnection connection, final OversigtEvent event) {
-			this.connection = connection;
-			this.event = event;
+		private DeltaState(final EventFrame frame, final int patches) {
+			this.frame = frame;
+			this.patches = patches;
 		}
 	}
 }
@@ -0,0 +1,246 @@
+package com.hlag.oversigt.core.event;
+
+import static com.hlag.oversigt.util.Utils.logInfo;
+import static com.hlag.oversigt.util.Utils.logWarn;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Append-only file keeping the cached events across restarts. Every change of a
+ * cached event appends one line containing the event's JSON and the point in
+ * time the event expires. Removed events are recorded as lines without JSON.
+ * When reading the file, the last line of an event ID wins.
+ *
+ * <p>
+ * As the file only grows, it is rewritten containing the current events only
+ * as soon as it contains a lot more lines than events.
+ * </p>
+ */
+final class EventSnapshotFile {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventSnapshotFile.class);
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	/**
+	 * Files with less lines are never compacted
+	 */
+	private static final int MIN_LINES_TO_COMPACT = 1000;
+
+	/**
+	 * Files are compacted if they contain this many lines per current event
+	 */
+	private static final int LINES_PER_EVENT_TO_COMPACT = 4;
+
+	private final Path path;
+
+	/**
+	 * Number of lines written to the file, guarded by <code>this</code>
+	 */
+	private int lines = 0;
+
+	EventSnapshotFile(final Path path) {
+		this.path = path;
+	}
+
+	Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Read the latest state of every event recorded in the file
+	 *
+	 * @param now the point in time to check the expiration of the events against
+	 * @return the events that are neither removed nor expired
+	 */
+	synchronized List<Entry> read(final Instant now) {
+		final List<String> content;
+		try {
+			content = Files.readAllLines(path, StandardCharsets.UTF_8);
+		} catch (@SuppressWarnings("unused") final NoSuchFileException e) {
+			return new ArrayList<>();
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Unable to read event snapshot " + path, e);
+		}
+		lines = content.size();
+
+		final Map<String, Entry> entries = new LinkedHashMap<>();
+		for (final String line : content) {
+			try {
+				final Entry entry = Entry.fromLine(line);
+				entries.remove(entry.getEventId());
+				entries.put(entry.getEventId(), entry);
+			} catch (final IOException | RuntimeException e) {
+				// e.g. the last line has not been written completely
+				logWarn(LOGGER, "Ignoring invalid line in event snapshot %s: %s", path, e.getMessage());
+			}
+		}
+
+		final List<Entry> validEntries = new ArrayList<>();
+		entries.values()
+				.stream()
+				.filter(entry -> entry.getJson().isPresent())
+				.filter(entry -> entry.getExpiresAt().isAfter(now))
+				.forEach(validEntries::add);
+		return validEntries;
+	}
+
+	/**
+	 * Append the given entries to the file
+	 *
+	 * @param entries the entries to append
+	 * @throws IOException if the file cannot be written
+	 */
+	synchronized void append(final Collection<Entry> entries) throws IOException {
+		if (entries.isEmpty()) {
+			return;
+		}
+		final List<String> newLines = toLines(entries);
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		Files.write(path,
+				newLines,
+				StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE,
+				StandardOpenOption.APPEND,
+				StandardOpenOption.WRITE);
+		lines += newLines.size();
+	}
+
+	/**
+	 * Check whether the file should be rewritten
+	 *
+	 * @param numberOfEvents the number of events currently cached
+	 * @return <code>true</code> if the file contains a lot more lines than events
+	 */
+	synchronized boolean needsCompaction(final int numberOfEvents) {
+		return lines >= MIN_LINES_TO_COMPACT && lines > LINES_PER_EVENT_TO_COMPACT * numberOfEvents;
+	}
+
+	/**
+	 * Replace the content of the file by the given entries. The new content is
+	 * written to a temporary file first, so the file is never left incomplete.
+	 *
+	 * @param entries the entries the file shall contain
+	 * @throws IOException if the file cannot be written
+	 */
+	synchronized void rewrite(final Collection<Entry> entries) throws IOException {
+		final List<String> newLines = toLines(entries);
+		final Path directory = path.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path temporaryFile = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+		try {
+			Files.write(temporaryFile, newLines, StandardCharsets.UTF_8);
+			Files.move(temporaryFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporaryFile);
+		}
+		logInfo(LOGGER, "Compacted event snapshot %s from %s to %s lines", path, lines, newLines.size());
+		lines = newLines.size();
+	}
+
+	private static List<String> toLines(final Collection<Entry> entries) throws IOException {
+		final List<String> lines = new ArrayList<>(entries.size());
+		for (final Entry entry : entries) {
+			lines.add(entry.toLine());
+		}
+		return lines;
+	}
+
+	/**
+	 * The state of a cached event
+	 */
+	static final class Entry {
+		/**
+		 * Create an entry for an event that is cached until the given point in time
+		 *
+		 * @param eventId   the ID of the event
+		 * @param json      the JSON representation of the event
+		 * @param expiresAt the point in time the event expires
+		 * @return the entry
+		 */
+		static Entry cached(final String eventId, final String json, final Instant expiresAt) {
+			return new Entry(eventId, Optional.of(json), expiresAt);
+		}
+
+		/**
+		 * Create an entry for an event that has been removed from the cache
+		 *
+		 * @param eventId the ID of the event
+		 * @return the entry
+		 */
+		static Entry removed(final String eventId) {
+			return new Entry(eventId, Optional.empty(), Instant.EPOCH);
+		}
+
+		private static Entry fromLine(final String line) throws IOException {
+			final JsonNode node = OBJECT_MAPPER.readTree(line);
+			final String eventId = Objects.requireNonNull(node.get("id"), "id").asText();
+			final JsonNode event = node.get("event");
+			if (event == null || event.isNull()) {
+				return removed(eventId);
+			}
+			final long expiresAt = Objects.requireNonNull(node.get("expiresAt"), "expiresAt").asLong();
+			return cached(eventId, event.toString(), Instant.ofEpochMilli(expiresAt));
+		}
+
+		private final String eventId;
+
+		private final Optional<String> json;
+
+		private final Instant expiresAt;
+
+		private Entry(final String eventId, final Optional<String> json, final Instant expiresAt) {
+			this.eventId = eventId;
+			this.json = json;
+			this.expiresAt = expiresAt;
+		}
+
+		String getEventId() {
+			return eventId;
+		}
+
+		Optional<String> getJson() {
+			return json;
+		}
+
+		Instant getExpiresAt() {
+			return expiresAt;
+		}
+
+		private String toLine() throws IOException {
+			final ObjectNode node = OBJECT_MAPPER.createObjectNode();
+			node.put("id", eventId);
+			if (json.isPresent()) {
+				final JsonNode event = OBJECT_MAPPER.readTree(json.get());
+				if (event instanceof ObjectNode) {
+					// the application ID belongs to the instance that created the event
+					((ObjectNode) event).remove("applicationId");
+				}
+				node.put("expiresAt", expiresAt.toEpochMilli());
+				node.set("event", event);
+			}
+			return OBJECT_MAPPER.writeValueAsString(node);
+		}
+	}
+}
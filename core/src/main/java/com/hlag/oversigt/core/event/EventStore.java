@@ -0,0 +1,138 @@
+package com.hlag.oversigt.core.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+/**
+ * Lock-free store of the latest event per event ID. Every stored event is
+ * versioned by its sequence, so an event never replaces a newer one with the
+ * same ID. All modifications are compare-and-set operations on the single
+ * entry affected, so readers and writers never wait for each other and
+ * iterating over the store does not block producers.
+ *
+ * <p>
+ * The events are wrapped in {@link Entry} objects because
+ * {@link OversigtEvent#equals(Object)} only compares the IDs of events, while
+ * compare-and-set needs to compare identities.
+ * </p>
+ */
+final class EventStore {
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	EventStore() {
+		// no fields to be initialized
+	}
+
+	Optional<OversigtEvent> get(final String eventId) {
+		return Optional.ofNullable(entries.get(eventId)).map(Entry::getEvent);
+	}
+
+	/**
+	 * Store the given event unless a newer event with the same ID is stored
+	 * already
+	 *
+	 * @param event the event to store
+	 * @return <code>true</code> if the event has been stored
+	 */
+	boolean put(final OversigtEvent event) {
+		return putIf(event, current -> true);
+	}
+
+	/**
+	 * Store the given event if the currently stored event with the same ID
+	 * fulfills the given condition. The event is stored unconditionally if there
+	 * is no event with the same ID. Like {@link #put(OversigtEvent)} the event
+	 * never replaces a newer event.
+	 *
+	 * @param event     the event to store
+	 * @param condition the condition the currently stored event has to fulfill
+	 * @return <code>true</code> if the event has been stored
+	 */
+	boolean putIf(final OversigtEvent event, final Predicate<OversigtEvent> condition) {
+		final String eventId = event.getId();
+		if (eventId == null) {
+			throw new IllegalArgumentException("Events without ID cannot be stored.");
+		}
+		final Entry entry = new Entry(event);
+		while (true) {
+			final Entry current = entries.get(eventId);
+			if (current == null) {
+				if (entries.putIfAbsent(eventId, entry) == null) {
+					return true;
+				}
+			} else if (current.getVersion() > entry.getVersion() || !condition.test(current.getEvent())) {
+				return false;
+			} else if (entries.replace(eventId, current, entry)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Remove the event with the given ID
+	 *
+	 * @param eventId the ID of the event to remove
+	 * @return <code>true</code> if an event has been removed
+	 */
+	boolean remove(final String eventId) {
+		return entries.remove(eventId) != null;
+	}
+
+	/**
+	 * Remove the given event if it is still the one stored for its ID
+	 *
+	 * @param event the event to remove
+	 * @return <code>true</code> if the event has been removed or
+	 *         <code>false</code> if it has been replaced in the meantime
+	 */
+	boolean remove(final OversigtEvent event) {
+		final String eventId = event.getId();
+		if (eventId == null) {
+			return false;
+		}
+		final Entry current = entries.get(eventId);
+		return current != null && current.getEvent() == event && entries.remove(eventId, current);
+	}
+
+	/**
+	 * Get all stored events. The returned collection is a copy. Modifications
+	 * happening while the copy is created may or may not be reflected.
+	 *
+	 * @return all stored events
+	 */
+	Collection<OversigtEvent> getEvents() {
+		final Collection<OversigtEvent> events = new ArrayList<>(entries.size());
+		entries.values().forEach(entry -> events.add(entry.getEvent()));
+		return events;
+	}
+
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * A stored event and its version
+	 */
+	private static final class Entry {
+		private final OversigtEvent event;
+
+		private final long version;
+
+		private Entry(final OversigtEvent event) {
+			this.event = event;
+			version = event.getSequence();
+		}
+
+		private OversigtEvent getEvent() {
+			return event;
+		}
+
+		private long getVersion() {
+			return version;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.hlag.oversigt.core.event;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Computes the structural difference of two JSON documents as a JSON Patch
+ * (RFC 6902). Besides the usual element wise comparison of arrays this
+ * implementation detects arrays that have been shifted, i.e. elements have
+ * been removed at the beginning and appended at the end. This is the typical
+ * change of a graph showing a sliding time window.
+ */
+final class JsonPatch {
+	private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+	/**
+	 * Compute the operations transforming one document into another
+	 *
+	 * @param source the original document
+	 * @param target the changed document
+	 * @return an array of JSON Patch operations. The array is empty if both
+	 *         documents are equal.
+	 */
+	static ArrayNode diff(final JsonNode source, final JsonNode target) {
+		final ArrayNode operations = FACTORY.arrayNode();
+		diff(operations, "", source, target);
+		return operations;
+	}
+
+	private static void diff(final ArrayNode operations,
+			final String path,
+			final JsonNode source,
+			final JsonNode target) {
+		if (source.equals(target)) {
+			return;
+		}
+		if (source.isObject() && target.isObject()) {
+			diffObjects(operations, path, (ObjectNode) source, (ObjectNode) target);
+		} else if (source.isArray() && target.isArray()) {
+			diffArrays(operations, path, (ArrayNode) source, (ArrayNode) target);
+		} else {
+			addOperation(operations, "replace", path).set("value", target);
+		}
+	}
+
+	private static void diffObjects(final ArrayNode operations,
+			final String path,
+			final ObjectNode source,
+			final ObjectNode target) {
+		final Iterator<String> sourceNames = source.fieldNames();
+		while (sourceNames.hasNext()) {
+			final String name = sourceNames.next();
+			if (!target.has(name)) {
+				addOperation(operations, "remove", path + "/" + escape(name));
+			}
+		}
+		final Iterator<Entry<String, JsonNode>> targetFields = target.fields();
+		while (targetFields.hasNext()) {
+			final Entry<String, JsonNode> field = targetFields.next();
+			final String fieldPath = path + "/" + escape(field.getKey());
+			final JsonNode sourceValue = source.get(field.getKey());
+			if (sourceValue == null) {
+				addOperation(operations, "add", fieldPath).set("value", field.getValue());
+			} else {
+				diff(operations, fieldPath, sourceValue, field.getValue());
+			}
+		}
+	}
+
+	private static void diffArrays(final ArrayNode operations,
+			final String path,
+			final ArrayNode source,
+			final ArrayNode target) {
+		final int shift = findShift(source, target);
+		if (shift > 0) {
+			for (int i = 0; i < shift; i += 1) {
+				addOperation(operations, "remove", path + "/0");
+			}
+			for (int i = source.size() - shift; i < target.size(); i += 1) {
+				addOperation(operations, "add", path + "/-").set("value", target.get(i));
+			}
+			return;
+		}
+
+		final int common = Math.min(source.size(), target.size());
+		for (int i = 0; i < common; i += 1) {
+			diff(operations, path + "/" + i, source.get(i), target.get(i));
+		}
+		for (int i = source.size() - 1; i >= common; i -= 1) {
+			addOperation(operations, "remove", path + "/" + i);
+		}
+		for (int i = common; i < target.size(); i += 1) {
+			addOperation(operations, "add", path + "/-").set("value", target.get(i));
+		}
+	}
+
+	/**
+	 * Find the number of elements that have been removed from the beginning of
+	 * the source array, so that the rest of the source array is the beginning of
+	 * the target array.
+	 *
+	 * @return the number of removed elements or zero if the target array is not a
+	 *         shifted version of the source array
+	 */
+	private static int findShift(final ArrayNode source, final ArrayNode target) {
+		if (target.size() == 0) {
+			return 0;
+		}
+		final JsonNode first = target.get(0);
+		for (int shift = 1; shift < source.size(); shift += 1) {
+			if (source.get(shift).equals(first) && isShiftedBy(source, target, shift)) {
+				return shift;
+			}
+		}
+		return 0;
+	}
+
+	private static boolean isShiftedBy(final ArrayNode source, final ArrayNode target, final int shift) {
+		if (source.size() - shift > target.size()) {
+			return false;
+		}
+		for (int i = shift; i < source.size(); i += 1) {
+			if (!source.get(i).equals(target.get(i - shift))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static ObjectNode addOperation(final ArrayNode operations, final String op, final String path) {
+		final ObjectNode operation = operations.addObject();
+		operation.put("op", op);
+		operation.put("path", path);
+		return operation;
+	}
+
+	private static String escape(final String name) {
+		return name.replace("~", "~0").replace("/", "~1");
+	}
+
+	private JsonPatch() {
+		throw new UnsupportedOperationException();
+	}
+}
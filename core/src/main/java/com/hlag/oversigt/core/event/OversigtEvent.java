@@ -6,17 +6,25 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.Objects;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
 import com.hlag.oversigt.util.JsonUtils;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
- * Base Event for all Oversigt events
+ * Base Event for all Oversigt events. The serialized form of an event is
+ * created when the event is sent for the first time and is shared by all
+ * connections receiving the event. The setters of this class discard the
+ * serialized form, so subclasses changing their content after the event has
+ * been posted need to call {@link #invalidateFrame()}.
  *
  * @author avarabyeu
  */
@@ -36,13 +44,33 @@ public class OversigtEvent implements Comparable<OversigtEvent> {
 
 	private final transient LocalDateTime createdOn = now();
 
+	/**
+	 * Start of the lifetime of this event in terms of {@link System#nanoTime()}.
+	 * Initially this is the creation time of the event.
+	 */
+	private transient volatile long validSinceNanos = System.nanoTime();
+
 	@Nullable
 	private transient Duration lifetime = null;
 
+	private transient volatile long lifetimeNanos = DEFAULT_LIFETIME.toNanos();
+
 	/* Do not populate if you don't need dynamic title */
 	@Nullable
 	private String title;
 
+	@Nullable
+	private transient volatile EventFrame frame = null;
+
+	@Nullable
+	private transient volatile String fingerprint = null;
+
+	/**
+	 * Position of this event in the stream of all events published by this
+	 * application. Zero if the event has not been published yet.
+	 */
+	private transient volatile long sequence = 0;
+
 	public OversigtEvent() {
 		// nothing to do
 	}
@@ -54,10 +82,12 @@ public class OversigtEvent implements Comparable<OversigtEvent> {
 
 	public void setId(final String id) {
 		this.id = id;
+		invalidateFrame();
 	}
 
 	public void setLifetime(final Duration lifetime) {
 		this.lifetime = lifetime;
+		lifetimeNanos = lifetime.toNanos();
 	}
 
 	@Nullable
@@ -65,12 +95,51 @@ public class OversigtEvent implements Comparable<OversigtEvent> {
 		return lifetime;
 	}
 
+	/**
+	 * Get the point in time this event expires in terms of
+	 * {@link System#nanoTime()}
+	 *
+	 * @return the expiry deadline
+	 */
+	long getExpiresAtNanos() {
+		return validSinceNanos + lifetimeNanos;
+	}
+
+	/**
+	 * Restart the lifetime of this event, because an event with the same content
+	 * has been produced. The new lifetime starts when the unchanged event has
+	 * been created and has the unchanged event's length.
+	 *
+	 * @param unchangedEvent the newer event having the same content as this event
+	 */
+	void extendLifetime(final OversigtEvent unchangedEvent) {
+		Objects.requireNonNull(unchangedEvent.getLifetime(), "The unchanged event must have a lifetime.");
+		lifetime = unchangedEvent.lifetime;
+		lifetimeNanos = unchangedEvent.lifetimeNanos;
+		validSinceNanos = unchangedEvent.validSinceNanos;
+	}
+
 	boolean isValid() {
-		return createdOn.plus(lifetime != null ? lifetime : DEFAULT_LIFETIME).isAfter(now());
+		// compare the difference to be safe in case of numerical overflow
+		return System.nanoTime() - getExpiresAtNanos() < 0;
+	}
+
+	long getSequence() {
+		return sequence;
+	}
+
+	void setSequence(final long sequence) {
+		this.sequence = sequence;
 	}
 
-	void setApplicationId(final String applicationId) {
-		this.applicationId = applicationId;
+	/**
+	 * Get the lowest sequence of all events contained in this event. Usually this
+	 * is the sequence of this event itself.
+	 *
+	 * @return the lowest sequence
+	 */
+	long getFirstSequence() {
+		return getSequence();
 	}
 
 	@Nullable
@@ -89,6 +158,7 @@ public class OversigtEvent implements Comparable<OversigtEvent> {
 
 	public void setTitle(@Nullable final String title) {
 		this.title = title;
+		invalidateFrame();
 	}
 
 	@Nullable
@@ -98,6 +168,7 @@ public class OversigtEvent implements Comparable<OversigtEvent> {
 
 	public void setMoreinfo(final String moreinfo) {
 		this.moreinfo = moreinfo;
+		invalidateFrame();
 	}
 
 	@JsonIgnore
@@ -143,4 +214,67 @@ public class OversigtEvent implements Comparable<OversigtEvent> {
 	public String toJson() {
 		return JsonUtils.toJson(this);
 	}
+
+	/**
+	 * Get a hash of the content of this event. Two events having the same
+	 * fingerprint show the same data, even if they have been created at different
+	 * points in time.
+	 *
+	 * @return the fingerprint of this event
+	 */
+	@JsonIgnore
+	public String getFingerprint() {
+		final String currentFingerprint = fingerprint;
+		if (currentFingerprint != null) {
+			return currentFingerprint;
+		}
+		final ObjectNode json = Objects.requireNonNull(JsonUtils.fromJson(toJson(), ObjectNode.class));
+		// these properties do not belong to the content
+		Stream.of("applicationId", "updatedAt").forEach(json::remove);
+		final String newFingerprint = Hashing.sha256().hashString(json.toString(), Charsets.UTF_8).toString();
+		fingerprint = newFingerprint;
+		return newFingerprint;
+	}
+
+	/**
+	 * Get the name of the server sent event used to send this event
+	 *
+	 * @return the name of the server sent event or <code>null</code> to send a
+	 *         plain message
+	 */
+	@Nullable
+	String getFrameType() {
+		return null;
+	}
+
+	/**
+	 * Get the serialized form of this event. If the event has not been serialized
+	 * yet, the given application ID is put into the event and the event is
+	 * serialized.
+	 *
+	 * @param applicationId the ID of the running application
+	 * @return the serialized form of this event
+	 */
+	EventFrame getFrame(final String applicationId) {
+		final EventFrame currentFrame = frame;
+		if (currentFrame != null) {
+			return currentFrame;
+		}
+		synchronized (this) {
+			if (frame == null) {
+				this.applicationId = applicationId;
+				frame = EventFrame.of(getFrameType(), toJson());
+			}
+			return Objects.requireNonNull(frame);
+		}
+	}
+
+	/**
+	 * Discard the serialized form of this event. Call this method whenever the
+	 * content of the event changes.
+	 */
+	protected final void invalidateFrame() {
+		frame = null;
+		fingerprint = null;
+	}
 }
@@ -0,0 +1,121 @@
+package com.hlag.oversigt.core.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Bounded, lock-free queue backed by an array that is used as ring. Every slot
+ * carries a sequence telling whether the slot may be written or read in the
+ * current round, so producers and consumers only need to agree on their
+ * position using compare-and-set. Neither {@link #offer(Object)} nor
+ * {@link #poll()} ever blocks.
+ *
+ * @param <T> the type of the elements
+ */
+final class RingBuffer<T> {
+	private final int mask;
+
+	private final AtomicReferenceArray<T> elements;
+
+	private final AtomicLongArray sequences;
+
+	private final AtomicLong producerPosition = new AtomicLong(0);
+
+	private final AtomicLong consumerPosition = new AtomicLong(0);
+
+	/**
+	 * Create a new ring buffer
+	 *
+	 * @param minimumCapacity the minimum number of elements the buffer can hold.
+	 *                        The actual capacity is the next power of two.
+	 */
+	RingBuffer(final int minimumCapacity) {
+		if (minimumCapacity < 1) {
+			throw new IllegalArgumentException("The capacity must be positive: " + minimumCapacity);
+		}
+		final int capacity = Integer.highestOneBit(minimumCapacity) == minimumCapacity
+				? minimumCapacity
+				: Integer.highestOneBit(minimumCapacity) << 1;
+		mask = capacity - 1;
+		elements = new AtomicReferenceArray<>(capacity);
+		sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i += 1) {
+			sequences.set(i, i);
+		}
+	}
+
+	int getCapacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Add an element to the buffer
+	 *
+	 * @param element the element to add
+	 * @return <code>true</code> if the element has been added or
+	 *         <code>false</code> if the buffer is full
+	 */
+	boolean offer(final T element) {
+		long position = producerPosition.get();
+		while (true) {
+			final int index = (int) (position & mask);
+			final long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (producerPosition.compareAndSet(position, position + 1)) {
+					elements.set(index, element);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = producerPosition.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = producerPosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Take the oldest element out of the buffer
+	 *
+	 * @return the oldest element or <code>null</code> if the buffer is empty
+	 */
+	@Nullable
+	T poll() {
+		long position = consumerPosition.get();
+		while (true) {
+			final int index = (int) (position & mask);
+			final long difference = sequences.get(index) - (position + 1);
+			if (difference == 0) {
+				if (consumerPosition.compareAndSet(position, position + 1)) {
+					final T element = elements.get(index);
+					elements.set(index, null);
+					sequences.set(index, position + mask + 1);
+					return element;
+				}
+				position = consumerPosition.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = consumerPosition.get();
+			}
+		}
+	}
+
+	/**
+	 * Get the number of elements in the buffer. The value is only an estimate if
+	 * the buffer is modified concurrently.
+	 *
+	 * @return the number of elements in the buffer
+	 */
+	int size() {
+		return (int) Math.max(0, Math.min(getCapacity(), producerPosition.get() - consumerPosition.get()));
+	}
+
+	boolean isEmpty() {
+		return size() == 0;
+	}
+}
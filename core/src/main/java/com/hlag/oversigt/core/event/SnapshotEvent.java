@@ -0,0 +1,34 @@
+package com.hlag.oversigt.core.event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bundles the cached events a newly connected client needs to render its
+ * dashboard, so they can be sent as one single server sent event.
+ */
+@NoCache
+final class SnapshotEvent extends OversigtEvent {
+	/**
+	 * Name of the server sent event carrying a snapshot
+	 */
+	static final String SNAPSHOT_EVENT_TYPE = "snapshot";
+
+	private final transient List<OversigtEvent> events;
+
+	SnapshotEvent(final Collection<OversigtEvent> events) {
+		setId(SNAPSHOT_EVENT_TYPE);
+		this.events = new ArrayList<>(events);
+		setSequence(this.events.stream().mapToLong(OversigtEvent::getSequence).max().orElse(0));
+	}
+
+	List<OversigtEvent> getEvents() {
+		return events;
+	}
+
+	@Override
+	long getFirstSequence() {
+		return events.stream().mapToLong(OversigtEvent::getSequence).min().orElse(0);
+	}
+}
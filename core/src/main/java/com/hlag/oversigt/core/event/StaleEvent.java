@@ -0,0 +1,22 @@
+package com.hlag.oversigt.core.event;
+
+/**
+ * Tells the clients that the cached event with the given ID has expired, so
+ * the data shown by the corresponding widgets is outdated.
+ */
+@NoCache
+final class StaleEvent extends OversigtEvent {
+	/**
+	 * Name of the server sent event telling that an event is stale
+	 */
+	static final String STALE_EVENT_TYPE = "stale";
+
+	StaleEvent(final String eventId) {
+		setId(eventId);
+	}
+
+	@Override
+	String getFrameType() {
+		return STALE_EVENT_TYPE;
+	}
+}
@@ -0,0 +1,62 @@
+package com.hlag.oversigt.core.event;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking token bucket used to limit the number of events per second
+ * sent to one connection. In contrast to Guava's
+ * {@link com.google.common.util.concurrent.RateLimiter} the bucket never puts
+ * the calling thread to sleep. Instead it tells the caller how long to wait
+ * until the next token will be available.
+ */
+final class TokenBucket {
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final double nanosPerToken;
+
+	private final double capacity;
+
+	private double tokens;
+
+	private long lastRefill;
+
+	/**
+	 * Create a new token bucket
+	 *
+	 * @param tokensPerSecond the number of tokens refilled per second. The
+	 *                        bucket holds at most one second worth of tokens.
+	 */
+	TokenBucket(final double tokensPerSecond) {
+		if (tokensPerSecond <= 0) {
+			throw new IllegalArgumentException("The rate must be positive: " + tokensPerSecond);
+		}
+		nanosPerToken = NANOS_PER_SECOND / tokensPerSecond;
+		capacity = Math.max(1, tokensPerSecond);
+		tokens = 1;
+		lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Try to take one token out of the bucket
+	 *
+	 * @return <code>0</code> if a token has been taken, otherwise the number of
+	 *         nanoseconds to wait until the next token will be available
+	 */
+	synchronized long tryAcquire() {
+		final long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) / nanosPerToken);
+		lastRefill = now;
+		if (tokens >= 1) {
+			tokens -= 1;
+			return 0;
+		}
+		return Math.max(1, (long) Math.ceil((1 - tokens) * nanosPerToken));
+	}
+
+	/**
+	 * Put a token back into the bucket that has been taken but not been used
+	 */
+	synchronized void release() {
+		tokens = Math.min(capacity, tokens + 1);
+	}
+}
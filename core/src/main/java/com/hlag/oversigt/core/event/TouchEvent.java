@@ -0,0 +1,23 @@
+package com.hlag.oversigt.core.event;
+
+/**
+ * Tells the clients that the event with the given ID has been produced again
+ * without any changes, so the data shown by the corresponding widgets is still
+ * up to date.
+ */
+@NoCache
+final class TouchEvent extends OversigtEvent {
+	/**
+	 * Name of the server sent event telling that an event is unchanged
+	 */
+	static final String TOUCH_EVENT_TYPE = "touch";
+
+	TouchEvent(final String eventId) {
+		setId(eventId);
+	}
+
+	@Override
+	String getFrameType() {
+		return TOUCH_EVENT_TYPE;
+	}
+}
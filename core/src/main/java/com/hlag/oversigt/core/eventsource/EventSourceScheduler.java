@@ -0,0 +1,529 @@
+package com.hlag.oversigt.core.eventsource;
+
+import static com.hlag.oversigt.util.Utils.logInfo;
+import static com.hlag.oversigt.util.Utils.logWarn;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.hlag.oversigt.util.CountingThreadFactory;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Scheduler shared by all {@link ScheduledEventSource}s. Instead of one thread
+ * per event source a single timer thread keeps track of the points in time the
+ * event sources have to run. When an event source is due, the timer hands it
+ * to a bounded pool of worker threads, which actually run the event source.
+ *
+ * <p>
+ * If all workers are busy and the queue of waiting tasks is full, a task is
+ * handed to the workers again after {@link #RETRY_DELAY_MILLIS} instead of
+ * blocking the timer thread.
+ * </p>
+ *
+ * <p>
+ * Event sources mostly wait for I/O, e.g. for JDBC, HTTP, SSH or EWS calls.
+ * These calls are made from within the event sources' iterations, so in
+ * {@link ThreadMode#VIRTUAL} they block a cheap virtual thread instead of a
+ * platform thread and thousands of event sources can poll at the same time.
+ * </p>
+ *
+ * <p>
+ * The timer thread also enforces the {@link IterationDeadline}s of running
+ * event sources. Clean up actions of expired iterations run in separate
+ * threads, so neither the timer nor the possibly exhausted workers are blocked.
+ * </p>
+ */
+@Singleton
+public final class EventSourceScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+	private static final Logger LOGGER = LoggerFactory.getLogger(EventSourceScheduler.class);
+
+	private static final long RETRY_DELAY_MILLIS = 1000;
+
+	private static final long WORKER_KEEP_ALIVE_SECONDS = 60;
+
+	private static final String WORKER_NAME_PREFIX = "EventSourceScheduler-Worker-";
+
+	private final ScheduledThreadPoolExecutor timer;
+
+	private final ThreadPoolExecutor workers;
+
+	private final ExecutorService cleanUpExecutor = Executors
+			.newCachedThreadPool(CountingThreadFactory.createDaemonThreadFactory("EventSourceScheduler-CleanUp-"));
+
+	private final AtomicLong rejectedTasks = new AtomicLong(0);
+
+	private final ThreadMode threadMode;
+
+	/**
+	 * Create a new scheduler
+	 *
+	 * @param threadMode        the kind of threads running the event sources
+	 * @param workerThreads     the maximum number of event sources running at
+	 *                          the same time in {@link ThreadMode#PLATFORM}
+	 * @param maxVirtualThreads the maximum number of event sources running at
+	 *                          the same time in {@link ThreadMode#VIRTUAL}
+	 * @param queueSize         the maximum number of due event sources waiting
+	 *                          for a free worker
+	 */
+	@Inject
+	public EventSourceScheduler(@Named("eventSources.threadMode") final ThreadMode threadMode,
+			@Named("eventSources.workerThreads") final int workerThreads,
+			@Named("eventSources.maxVirtualThreads") final int maxVirtualThreads,
+			@Named("eventSources.queueSize") final int queueSize) {
+		final Optional<ThreadFactory> virtualThreadFactory = threadMode == ThreadMode.VIRTUAL
+				? CountingThreadFactory.createVirtualThreadFactory(WORKER_NAME_PREFIX)
+				: Optional.empty();
+		if (threadMode == ThreadMode.VIRTUAL && !virtualThreadFactory.isPresent()) {
+			logWarn(LOGGER, "Virtual threads are not supported by this JVM. Using platform threads instead.");
+		}
+		this.threadMode = virtualThreadFactory.isPresent() ? ThreadMode.VIRTUAL : ThreadMode.PLATFORM;
+		final int maximumWorkers = virtualThreadFactory.isPresent() ? maxVirtualThreads : workerThreads;
+		if (maximumWorkers < 1) {
+			throw new IllegalArgumentException("The number of worker threads must be positive: " + maximumWorkers);
+		}
+		logInfo(LOGGER, "Running event sources on up to %s %s threads", maximumWorkers, this.threadMode);
+
+		timer = new ScheduledThreadPoolExecutor(1,
+				CountingThreadFactory.createDaemonThreadFactory("EventSourceScheduler-Timer-"));
+		timer.setRemoveOnCancelPolicy(true);
+		final ThreadFactory threadFactory = virtualThreadFactory
+				.orElseGet(() -> CountingThreadFactory.createDaemonThreadFactory(WORKER_NAME_PREFIX));
+		workers = new ThreadPoolExecutor(maximumWorkers,
+				maximumWorkers,
+				WORKER_KEEP_ALIVE_SECONDS,
+				TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+				threadFactory);
+		// threads of an idle pool are not needed
+		workers.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Get the kind of threads actually running the event sources. This may differ
+	 * from the configured mode if the JVM does not support virtual threads.
+	 *
+	 * @return the kind of threads running the event sources
+	 */
+	public ThreadMode getThreadMode() {
+		return threadMode;
+	}
+
+	/**
+	 * Get a snapshot of the state of the scheduler
+	 *
+	 * @return the current statistics of the scheduler
+	 */
+	public SchedulerStatistics getStatistics() {
+		return new SchedulerStatistics(threadMode,
+				workers.getActiveCount(),
+				workers.getQueue().size(),
+				rejectedTasks.get());
+	}
+
+	/**
+	 * Hand the given task to the workers. If the workers are overloaded, try again
+	 * later.
+	 *
+	 * @param task the task to run
+	 */
+	private void dispatch(final Runnable task) {
+		try {
+			workers.execute(task);
+		} catch (final RejectedExecutionException e) {
+			if (isShutdown()) {
+				throw e;
+			}
+			final long rejected = rejectedTasks.incrementAndGet();
+			logWarn(LOGGER,
+					"All %s event source workers are busy and the queue is full. Retrying in %s ms. Rejected tasks so far: %s",
+					workers.getMaximumPoolSize(),
+					RETRY_DELAY_MILLIS,
+					rejected);
+			timer.schedule(() -> dispatch(task), RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void execute(@Nullable final Runnable command) {
+		if (command == null) {
+			throw new NullPointerException("The command must not be null.");
+		}
+		dispatch(command);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(@Nullable final Runnable command, final long delay, final TimeUnit unit) {
+		return schedule(Executors.callable(command), delay, unit);
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(@Nullable final Callable<V> callable,
+			final long delay,
+			final TimeUnit unit) {
+		return scheduleTask(callable, delay, 0, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(@Nullable final Runnable command,
+			final long initialDelay,
+			final long period,
+			final TimeUnit unit) {
+		if (period <= 0) {
+			throw new IllegalArgumentException("The period must be positive: " + period);
+		}
+		return scheduleTask(Executors.callable(command), initialDelay, period, unit);
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(@Nullable final Runnable command,
+			final long initialDelay,
+			final long delay,
+			final TimeUnit unit) {
+		if (delay <= 0) {
+			throw new IllegalArgumentException("The delay must be positive: " + delay);
+		}
+		return scheduleTask(Executors.callable(command), initialDelay, -delay, unit);
+	}
+
+	private <V> ScheduledTask<V> scheduleTask(@Nullable final Callable<V> callable,
+			final long delay,
+			final long period,
+			final TimeUnit unit) {
+		if (callable == null) {
+			throw new NullPointerException("The callable must not be null.");
+		}
+		final long triggerTime = System.nanoTime() + unit.toNanos(Math.max(0, delay));
+		return new ScheduledTask<>(callable, triggerTime, unit.toNanos(period)).schedule();
+	}
+
+	/**
+	 * Start the time budget for an iteration running in the current thread. If
+	 * the iteration does not close the returned deadline in time, the current
+	 * thread is interrupted and the deadline's clean up actions are run.
+	 *
+	 * @param timeout the maximum duration of the iteration
+	 * @return the started deadline
+	 */
+	public IterationDeadline startDeadline(final Duration timeout) {
+		final IterationDeadline deadline = new IterationDeadline(Thread.currentThread(), timeout);
+		deadline.setTimerFuture(timer
+				.schedule(() -> deadline.expire(cleanUpExecutor), timeout.toNanos(), TimeUnit.NANOSECONDS));
+		return deadline;
+	}
+
+	/**
+	 * Create an executor for a single service. The executor runs all tasks in
+	 * this scheduler and remembers the task scheduled last, so the service's next
+	 * run can be started early using {@link ServiceExecutor#runNow()}.
+	 *
+	 * @return the executor for a single service
+	 */
+	public ServiceExecutor createServiceExecutor() {
+		return new ServiceExecutor();
+	}
+
+	@Override
+	public void shutdown() {
+		timer.shutdown();
+		workers.shutdown();
+		cleanUpExecutor.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		final List<Runnable> tasks = new ArrayList<>(timer.shutdownNow());
+		tasks.addAll(workers.shutdownNow());
+		cleanUpExecutor.shutdownNow();
+		return tasks;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return workers.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return timer.isTerminated() && workers.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+		final long deadline = System.nanoTime() + unit.toNanos(timeout);
+		return timer.awaitTermination(timeout, unit)
+				&& workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * The kind of threads running the event sources
+	 */
+	public enum ThreadMode {
+		/**
+		 * Run the event sources on a fixed number of operating system threads
+		 */
+		PLATFORM,
+		/**
+		 * Run the event sources on virtual threads if the JVM supports them (Java 21
+		 * and later) or on platform threads otherwise
+		 */
+		VIRTUAL
+	}
+
+	/**
+	 * View on the {@link EventSourceScheduler} used by a single service. Shutting
+	 * down the view does not shut down the shared scheduler.
+	 */
+	public final class ServiceExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+		private final AtomicReference<ScheduledTask<?>> lastScheduledTask = new AtomicReference<>();
+
+		private ServiceExecutor() {
+			// no fields to be initialized
+		}
+
+		private <T extends ScheduledTask<?>> T remember(final T task) {
+			lastScheduledTask.set(task);
+			return task;
+		}
+
+		/**
+		 * Start the task scheduled last right now instead of waiting for its delay
+		 * to elapse
+		 *
+		 * @return <code>true</code> if the task has been started early or
+		 *         <code>false</code> if it is running or done already
+		 */
+		public boolean runNow() {
+			final ScheduledTask<?> task = lastScheduledTask.get();
+			return task != null && task.runNow();
+		}
+
+		@Override
+		public void execute(@Nullable final Runnable command) {
+			EventSourceScheduler.this.execute(command);
+		}
+
+		@Override
+		public ScheduledFuture<?> schedule(@Nullable final Runnable command, final long delay, final TimeUnit unit) {
+			return remember(scheduleTask(Executors.callable(command), delay, 0, unit));
+		}
+
+		@Override
+		public <V> ScheduledFuture<V> schedule(@Nullable final Callable<V> callable,
+				final long delay,
+				final TimeUnit unit) {
+			return remember(scheduleTask(callable, delay, 0, unit));
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleAtFixedRate(@Nullable final Runnable command,
+				final long initialDelay,
+				final long period,
+				final TimeUnit unit) {
+			return remember((ScheduledTask<?>) EventSourceScheduler.this
+					.scheduleAtFixedRate(command, initialDelay, period, unit));
+		}
+
+		@Override
+		public ScheduledFuture<?> scheduleWithFixedDelay(@Nullable final Runnable command,
+				final long initialDelay,
+				final long delay,
+				final TimeUnit unit) {
+			return remember((ScheduledTask<?>) EventSourceScheduler.this
+					.scheduleWithFixedDelay(command, initialDelay, delay, unit));
+		}
+
+		@Override
+		public void shutdown() {
+			// the shared scheduler keeps running
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return Collections.emptyList();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return EventSourceScheduler.this.isShutdown();
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return EventSourceScheduler.this.isTerminated();
+		}
+
+		@Override
+		public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+			return EventSourceScheduler.this.awaitTermination(timeout, unit);
+		}
+	}
+
+	/**
+	 * A task waiting in the timer until it is due and running in a worker
+	 * afterwards. Periodic tasks schedule their next run after finishing their
+	 * current run.
+	 *
+	 * @param <V> the type of the task's result
+	 */
+	private final class ScheduledTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+		/**
+		 * Period in nanoseconds: positive for fixed rate, negative for fixed delay
+		 * and zero for tasks running only once
+		 */
+		private final long period;
+
+		private volatile long triggerTime;
+
+		@Nullable
+		private volatile ScheduledFuture<?> timerFuture = null;
+
+		private ScheduledTask(final Callable<V> callable, final long triggerTime, final long period) {
+			super(callable);
+			this.triggerTime = triggerTime;
+			this.period = period;
+		}
+
+		private synchronized ScheduledTask<V> schedule() {
+			timerFuture = timer.schedule(() -> dispatch(this), getDelay(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+			return this;
+		}
+
+		/**
+		 * Hand the task to the workers now if it is still waiting in the timer
+		 *
+		 * @return <code>true</code> if the task has been started early
+		 */
+		private synchronized boolean runNow() {
+			final ScheduledFuture<?> future = timerFuture;
+			if (isDone() || future == null || !future.cancel(false)) {
+				return false;
+			}
+			triggerTime = System.nanoTime();
+			schedule();
+			return true;
+		}
+
+		@Override
+		public void run() {
+			if (!isPeriodic()) {
+				super.run();
+			} else if (runAndReset()) {
+				triggerTime = period > 0 ? triggerTime + period : System.nanoTime() - period;
+				schedule();
+			}
+		}
+
+		@Override
+		public boolean cancel(final boolean mayInterruptIfRunning) {
+			final boolean cancelled = super.cancel(mayInterruptIfRunning);
+			final ScheduledFuture<?> future = timerFuture;
+			if (cancelled && future != null) {
+				future.cancel(false);
+			}
+			return cancelled;
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return period != 0;
+		}
+
+		@Override
+		public long getDelay(@Nullable final TimeUnit unit) {
+			return unit.convert(triggerTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(@Nullable final Delayed other) {
+			return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+		}
+	}
+
+	/**
+	 * Snapshot of the state of the event source scheduler
+	 */
+	public static final class SchedulerStatistics {
+		private final ThreadMode threadMode;
+
+		private final int activeWorkers;
+
+		private final int queueDepth;
+
+		private final long rejectedTasks;
+
+		private SchedulerStatistics(final ThreadMode threadMode,
+				final int activeWorkers,
+				final int queueDepth,
+				final long rejectedTasks) {
+			this.threadMode = threadMode;
+			this.activeWorkers = activeWorkers;
+			this.queueDepth = queueDepth;
+			this.rejectedTasks = rejectedTasks;
+		}
+
+		/**
+		 * Get the kind of threads running the event sources
+		 *
+		 * @return the kind of threads running the event sources
+		 */
+		public ThreadMode getThreadMode() {
+			return threadMode;
+		}
+
+		/**
+		 * Get the number of event sources currently running
+		 *
+		 * @return the number of busy workers
+		 */
+		public int getActiveWorkers() {
+			return activeWorkers;
+		}
+
+		/**
+		 * Get the number of due event sources waiting for a free worker
+		 *
+		 * @return the number of waiting tasks
+		 */
+		public int getQueueDepth() {
+			return queueDepth;
+		}
+
+		/**
+		 * Get the number of times a task could not be handed to the workers because
+		 * the queue was full
+		 *
+		 * @return the number of rejected tasks
+		 */
+		public long getRejectedTasks() {
+			return rejectedTasks;
+		}
+	}
+}
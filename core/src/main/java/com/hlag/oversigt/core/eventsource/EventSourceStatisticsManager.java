@@ -8,7 +8,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,10 +49,58 @@ public class EventSourceStatisticsManager {
 
 		private final AtomicBoolean automticallyStarted = new AtomicBoolean(false);
 
+		private final AtomicLong producedEvents = new AtomicLong(0);
+
+		private final AtomicLong skippedEvents = new AtomicLong(0);
+
+		private final AtomicLong timedOutRuns = new AtomicLong(0);
+
 		private EventSourceStatistics() {
 			// hide constructor and nothing to initialize
 		}
 
+		/**
+		 * Count an event produced by the event source
+		 *
+		 * @param unchanged <code>true</code> if the event has the same content as
+		 *                  the previous event, so sending it has been skipped
+		 */
+		public void countProducedEvent(final boolean unchanged) {
+			producedEvents.incrementAndGet();
+			if (unchanged) {
+				skippedEvents.incrementAndGet();
+			}
+		}
+
+		public long getProducedEvents() {
+			return producedEvents.get();
+		}
+
+		public long getSkippedEvents() {
+			return skippedEvents.get();
+		}
+
+		/**
+		 * Get the share of produced events that have not been sent because they
+		 * did not contain any changes
+		 *
+		 * @return the skip ratio between 0 and 1
+		 */
+		public double getSkipRatio() {
+			final long produced = producedEvents.get();
+			return produced == 0 ? 0 : (double) skippedEvents.get() / produced;
+		}
+
+		/**
+		 * Get the number of runs that have been interrupted because they exceeded
+		 * their timeout
+		 *
+		 * @return the number of timed out runs
+		 */
+		public long getTimedOutRuns() {
+			return timedOutRuns.get();
+		}
+
 		public boolean isAutomticallyStarted() {
 			return automticallyStarted.get();
 		}
@@ -84,6 +134,9 @@ public class EventSourceStatisticsManager {
 			} else {
 				lastFailedRun = Optional.of(statistics);
 			}
+			if (statistics.getFailureKind().filter(FailureKind.TIMEOUT::equals).isPresent()) {
+				timedOutRuns.incrementAndGet();
+			}
 
 			lastRuns.add(statistics);
 			while (lastRuns.size() > MAX_RUN_HISTORY) {
@@ -99,6 +152,8 @@ public class EventSourceStatisticsManager {
 
 		private final boolean success;
 
+		private final Optional<FailureKind> failureKind;
+
 		private final boolean automaticallyStarted;
 
 		private final Optional<String> message;
@@ -109,14 +164,15 @@ public class EventSourceStatisticsManager {
 
 		private RunStatistic(final ZonedDateTime startTime,
 				final Duration duration,
-				final boolean success,
+				final Optional<FailureKind> failureKind,
 				final boolean automaticallyStarted,
 				final Optional<String> message,
 				final Optional<Throwable> throwable,
 				final List<Action> actions) {
 			this.startTime = startTime;
 			this.duration = duration;
-			this.success = success;
+			success = !failureKind.isPresent();
+			this.failureKind = failureKind;
 			this.automaticallyStarted = automaticallyStarted;
 			this.message = message;
 			this.throwable = throwable;
@@ -148,6 +204,10 @@ public class EventSourceStatisticsManager {
 			return success;
 		}
 
+		public Optional<FailureKind> getFailureKind() {
+			return failureKind;
+		}
+
 		public boolean isAutomaticallyStarted() {
 			return automaticallyStarted;
 		}
@@ -157,6 +217,21 @@ public class EventSourceStatisticsManager {
 		}
 	}
 
+	/**
+	 * The reason why a run of an event source failed
+	 */
+	public enum FailureKind {
+		/**
+		 * The event source threw an exception or did not produce an event
+		 */
+		EXCEPTION,
+		/**
+		 * The event source did not finish within its timeout and has been
+		 * interrupted
+		 */
+		TIMEOUT
+	}
+
 	public static final class Action {
 		private final String name;
 
@@ -195,7 +270,11 @@ public class EventSourceStatisticsManager {
 
 		private final ZonedDateTime startTime;
 
-		private final List<Action> actions = new ArrayList<>();
+		/**
+		 * Actions may also be added by background work of the event source, e.g.
+		 * a refresh of a {@link com.hlag.oversigt.connect.db.DatabaseCache}
+		 */
+		private final List<Action> actions = new CopyOnWriteArrayList<>();
 
 		private StatisticsCollector(final EventSourceStatistics eventSourceStatistics) {
 			this.eventSourceStatistics = eventSourceStatistics;
@@ -212,27 +291,36 @@ public class EventSourceStatisticsManager {
 		}
 
 		void success() {
-			addRun(true, Optional.empty(), Optional.empty());
+			addRun(Optional.empty(), Optional.empty(), Optional.empty());
 		}
 
 		void failure(final String message) {
-			addRun(false, Optional.of(message), Optional.empty());
+			addRun(Optional.of(FailureKind.EXCEPTION), Optional.of(message), Optional.empty());
 		}
 
 		void failure(final String message, final Throwable throwable) {
-			addRun(false, Optional.of(message), Optional.of(throwable));
+			addRun(Optional.of(FailureKind.EXCEPTION), Optional.of(message), Optional.of(throwable));
 		}
 
 		void failure(final String message, final Optional<Throwable> throwable) {
-			addRun(false, Optional.of(message), throwable);
+			addRun(Optional.of(FailureKind.EXCEPTION), Optional.of(message), throwable);
+		}
+
+		void timeout(final String message, final Optional<Throwable> throwable) {
+			addRun(Optional.of(FailureKind.TIMEOUT), Optional.of(message), throwable);
 		}
 
-		private void addRun(final boolean success,
+		private void addRun(final Optional<FailureKind> failureKind,
 				final Optional<String> message,
 				final Optional<Throwable> throwable) {
 			final Duration duration = Duration.between(startTime, ZonedDateTime.now());
-			final RunStatistic stats
-					= new RunStatistic(startTime, duration, success, automaticallyStarted, message, throwable, actions);
+			final RunStatistic stats = new RunStatistic(startTime,
+					duration,
+					failureKind,
+					automaticallyStarted,
+					message,
+					throwable,
+					actions);
 			eventSourceStatistics.addExecution(stats);
 			LOGGER.info(String.format("Execution duration: %s %s",
 					Utils.formatDuration(stats.getDuration()),
@@ -0,0 +1,262 @@
+package com.hlag.oversigt.core.eventsource;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector;
+import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector.StartedAction;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Shares upstream calls between event sources asking for the same data. All
+ * fetches with an equal {@link Key} that happen while a call for this key is in
+ * flight wait for that call and receive its result instead of calling the
+ * upstream system themselves. A successful result is reused for further
+ * fetches within the configured freshness window. Failures are handed to all
+ * waiting callers but are never reused.
+ *
+ * <p>
+ * Results are shared between several callers, so callers must not modify
+ * them.
+ * </p>
+ */
+@Singleton
+public class FetchCoalescer {
+	private final ConcurrentMap<Key, Fetch<?>> fetches = new ConcurrentHashMap<>();
+
+	private final long freshnessNanos;
+
+	private final AtomicLong nextCleanUpNanos;
+
+	private final AtomicLong upstreamFetches = new AtomicLong(0);
+
+	private final AtomicLong sharedFetches = new AtomicLong(0);
+
+	@Inject
+	public FetchCoalescer(@Named("eventSources.coalescingWindow") final Duration freshness) {
+		freshnessNanos = Math.max(0, freshness.toNanos());
+		nextCleanUpNanos = new AtomicLong(System.nanoTime() + freshnessNanos);
+	}
+
+	/**
+	 * Fetch data from an upstream system or share the result of a fetch with an
+	 * equal key that is currently running or completed within the freshness
+	 * window.
+	 *
+	 * @param <V>     the type of the fetched data
+	 * @param <E>     the type of exception the fetcher may throw
+	 * @param key     the normalized key describing the upstream call
+	 * @param fetcher the actual upstream call
+	 * @return the fetched or shared data
+	 * @throws E if the upstream call failed
+	 */
+	public <V, E extends Exception> V fetch(final Key key, final Fetcher<V, E> fetcher) throws E {
+		return fetch(key, Optional.empty(), "", fetcher);
+	}
+
+	/**
+	 * Fetch data like {@link #fetch(Key, Fetcher)}. If the data is shared with
+	 * another fetch, the time waiting for it is recorded as action
+	 * <code>Shared fetch</code> in the given statistics. The upstream call itself
+	 * only shows up in the statistics of the caller that made it.
+	 *
+	 * @param <V>       the type of the fetched data
+	 * @param <E>       the type of exception the fetcher may throw
+	 * @param key       the normalized key describing the upstream call
+	 * @param collector the statistics of the calling event source
+	 * @param detail    the detail of the recorded action, e.g. the query
+	 * @param fetcher   the actual upstream call
+	 * @return the fetched or shared data
+	 * @throws E if the upstream call failed
+	 */
+	public <V, E extends Exception> V fetch(final Key key,
+			final StatisticsCollector collector,
+			final String detail,
+			final Fetcher<V, E> fetcher) throws E {
+		return fetch(key, Optional.of(collector), detail, fetcher);
+	}
+
+	private <V, E extends Exception> V fetch(final Key key,
+			final Optional<StatisticsCollector> collector,
+			final String detail,
+			final Fetcher<V, E> fetcher) throws E {
+		removeStaleFetches();
+		while (true) {
+			final Fetch<V> fetch = new Fetch<>();
+			final Fetch<?> current = fetches.putIfAbsent(key, fetch);
+			if (current == null) {
+				upstreamFetches.incrementAndGet();
+				return fetch.run(key, fetcher);
+			} else if (current.isStale(System.nanoTime())) {
+				fetches.remove(key, current);
+			} else {
+				sharedFetches.incrementAndGet();
+				final Optional<StartedAction> action = collector.map(c -> c.startAction("Shared fetch", detail));
+				try {
+					return this.<V, E>await(current);
+				} finally {
+					action.ifPresent(StartedAction::close);
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <V, E extends Exception> V await(final Fetch<?> fetch) throws E {
+		try {
+			return (V) fetch.future.get();
+		} catch (final InterruptedException e) {
+			// e.g. the waiting event source exceeded its iteration timeout
+			Thread.currentThread().interrupt();
+			final CancellationException exception
+					= new CancellationException("Interrupted while waiting for a shared fetch.");
+			exception.initCause(e);
+			throw exception;
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			// equal keys describe equal upstream calls, so the cause has been thrown by a
+			// fetcher of the same type
+			throw (E) cause;
+		}
+	}
+
+	private void removeStaleFetches() {
+		final long now = System.nanoTime();
+		final long nextCleanUp = nextCleanUpNanos.get();
+		if (now - nextCleanUp >= 0 && nextCleanUpNanos.compareAndSet(nextCleanUp, now + freshnessNanos)) {
+			fetches.values().removeIf(fetch -> fetch.isStale(now));
+		}
+	}
+
+	/**
+	 * Get the number of fetches that actually called an upstream system
+	 *
+	 * @return the number of upstream calls
+	 */
+	public long getUpstreamFetches() {
+		return upstreamFetches.get();
+	}
+
+	/**
+	 * Get the number of fetches that have been served by another fetch with an
+	 * equal key
+	 *
+	 * @return the number of shared fetches
+	 */
+	public long getSharedFetches() {
+		return sharedFetches.get();
+	}
+
+	/**
+	 * A single upstream call and its result
+	 *
+	 * @param <V> the type of the fetched data
+	 */
+	private final class Fetch<V> {
+		private final CompletableFuture<V> future = new CompletableFuture<>();
+
+		private volatile long completedAtNanos = 0;
+
+		private Fetch() {
+			// no fields to be initialized
+		}
+
+		private <E extends Exception> V run(final Key key, final Fetcher<V, E> fetcher) throws E {
+			try {
+				final V value = fetcher.fetch();
+				completedAtNanos = System.nanoTime();
+				future.complete(value);
+				if (freshnessNanos == 0) {
+					fetches.remove(key, this);
+				}
+				return value;
+			} catch (final Exception | Error e) {
+				fetches.remove(key, this);
+				future.completeExceptionally(e);
+				throw e;
+			}
+		}
+
+		private boolean isStale(final long now) {
+			return future.isDone() && (future.isCompletedExceptionally() || now - completedAtNanos >= freshnessNanos);
+		}
+	}
+
+	/**
+	 * Normalized description of an upstream call. Two keys are equal if all of
+	 * their parts are equal. As the parts usually contain credentials they are
+	 * not part of the key's string representation.
+	 */
+	public static final class Key {
+		/**
+		 * Create a key for an upstream call
+		 *
+		 * @param type  the kind of upstream call, e.g. <code>jdbc</code>
+		 * @param parts everything describing the upstream call like connection,
+		 *              credentials, query and parameters
+		 * @return the key
+		 */
+		public static Key of(final String type, final Object... parts) {
+			return new Key(type, parts);
+		}
+
+		private final String type;
+
+		private final Object[] parts;
+
+		private Key(final String type, final Object[] parts) {
+			this.type = type;
+			this.parts = parts.clone();
+		}
+
+		@Override
+		public boolean equals(@Nullable final Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			final Key that = (Key) obj;
+			return type.equals(that.type) && Arrays.deepEquals(parts, that.parts);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(type, Arrays.deepHashCode(parts));
+		}
+
+		@Override
+		public String toString() {
+			return "Key[" + type + "]";
+		}
+	}
+
+	/**
+	 * The actual upstream call
+	 *
+	 * @param <V> the type of the fetched data
+	 * @param <E> the type of exception the call may throw
+	 */
+	@FunctionalInterface
+	public interface Fetcher<V, E extends Exception> {
+		V fetch() throws E;
+	}
+}
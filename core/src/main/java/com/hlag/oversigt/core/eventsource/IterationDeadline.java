@@ -0,0 +1,139 @@
+package com.hlag.oversigt.core.eventsource;
+
+import static com.hlag.oversigt.util.Utils.logWarn;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time budget of a single iteration of an event source. When the budget is
+ * exceeded, the thread running the iteration is interrupted and all registered
+ * clean up actions are run, e.g. cancelling a JDBC statement or disconnecting
+ * an HTTP connection, so that blocking I/O returns as well.
+ *
+ * <p>
+ * Deadlines are created by
+ * {@link EventSourceScheduler#startDeadline(Duration)} and have to be closed
+ * when the iteration has finished.
+ * </p>
+ */
+public final class IterationDeadline implements AutoCloseable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(IterationDeadline.class);
+
+	private final Thread thread;
+
+	private final Duration timeout;
+
+	private final long deadlineNanos;
+
+	private final List<Runnable> cleanUpActions = new CopyOnWriteArrayList<>();
+
+	private volatile boolean expired = false;
+
+	private volatile boolean closed = false;
+
+	private Optional<ScheduledFuture<?>> timerFuture = Optional.empty();
+
+	IterationDeadline(final Thread thread, final Duration timeout) {
+		this.thread = thread;
+		this.timeout = timeout;
+		deadlineNanos = System.nanoTime() + timeout.toNanos();
+	}
+
+	synchronized void setTimerFuture(final ScheduledFuture<?> timerFuture) {
+		this.timerFuture = Optional.of(timerFuture);
+	}
+
+	public Duration getTimeout() {
+		return timeout;
+	}
+
+	/**
+	 * Get the time left until the deadline
+	 *
+	 * @return the remaining time or {@link Duration#ZERO} if the deadline has
+	 *         passed
+	 */
+	public Duration getRemaining() {
+		return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+	}
+
+	/**
+	 * Check whether the iteration took longer than allowed
+	 *
+	 * @return <code>true</code> if the deadline has passed before the iteration
+	 *         finished
+	 */
+	public boolean isExpired() {
+		return expired;
+	}
+
+	/**
+	 * Register an action releasing resources the iteration might block on. The
+	 * action is run in another thread if the deadline passes and is discarded
+	 * when the iteration finishes in time. If the deadline has passed already, the
+	 * action is run immediately.
+	 *
+	 * @param cleanUpAction the action to run
+	 */
+	public void onExpiry(final Runnable cleanUpAction) {
+		cleanUpActions.add(cleanUpAction);
+		if (expired) {
+			runQuietly(cleanUpAction);
+		}
+	}
+
+	/**
+	 * Interrupt the iteration and let the given executor run the clean up
+	 * actions
+	 *
+	 * @param cleanUpExecutor the executor to run the clean up actions with
+	 */
+	void expire(final Executor cleanUpExecutor) {
+		final List<Runnable> actions;
+		synchronized (this) {
+			// once closed the thread might already run something else
+			if (closed) {
+				return;
+			}
+			expired = true;
+			thread.interrupt();
+			actions = new ArrayList<>(cleanUpActions);
+		}
+		logWarn(LOGGER, "Iteration of thread [%s] exceeded its timeout of %s.", thread.getName(), timeout);
+		cleanUpExecutor.execute(() -> actions.forEach(IterationDeadline::runQuietly));
+	}
+
+	private static void runQuietly(final Runnable cleanUpAction) {
+		try {
+			cleanUpAction.run();
+		} catch (final RuntimeException e) {
+			logWarn(LOGGER, "Unable to clean up timed out iteration: %s", e.getMessage());
+		}
+	}
+
+	/**
+	 * Mark the iteration as finished. Afterwards the thread will not be
+	 * interrupted any longer. An interruption caused by this deadline is cleared.
+	 * This method must be called by the thread running the iteration.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			closed = true;
+			timerFuture.ifPresent(future -> future.cancel(false));
+		}
+		cleanUpActions.clear();
+		if (expired) {
+			Thread.interrupted();
+		}
+	}
+}
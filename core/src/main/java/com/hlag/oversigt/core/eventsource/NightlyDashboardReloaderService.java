@@ -5,10 +5,10 @@ import java.util.Collection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.hlag.oversigt.controller.DashboardController;
+import com.hlag.oversigt.core.event.EventPipeline;
 import com.hlag.oversigt.core.event.OversigtEvent;
 import com.hlag.oversigt.sources.event.ReloadEvent;
 
@@ -28,10 +28,10 @@ public class NightlyDashboardReloaderService extends NightlyService {
 	}
 
 	/**
-	 * EventBus to send events
+	 * Pipeline to send events
 	 */
 	@Inject
-	private EventBus eventBus;
+	private EventPipeline eventPipeline;
 
 	@Inject
 	private DashboardController dashboardController;
@@ -43,7 +43,7 @@ public class NightlyDashboardReloaderService extends NightlyService {
 	/**
 	 * Executes one iteration of
 	 * {@link com.google.common.util.concurrent.AbstractScheduledService} Sends
-	 * event to event bus
+	 * event to event pipeline
 	 */
 	@Override
 	protected final void runOneIteration() {
@@ -56,7 +56,7 @@ public class NightlyDashboardReloaderService extends NightlyService {
 
 	private void sendEvent(final OversigtEvent event) {
 		event.setId(getEventId());
-		eventBus.post(event);
+		eventPipeline.publish(event);
 	}
 
 	@Override
@@ -25,7 +25,7 @@ public class NightlyEventSourceRestarterService extends NightlyService {
 	/**
 	 * Executes one iteration of
 	 * {@link com.google.common.util.concurrent.AbstractScheduledService} Sends
-	 * event to event bus
+	 * event to event pipeline
 	 */
 	@Override
 	protected final void runOneIteration() {
@@ -1,6 +1,8 @@
 package com.hlag.oversigt.core.eventsource;
 
+import static com.hlag.oversigt.util.Utils.logDebug;
 import static com.hlag.oversigt.util.Utils.logError;
+import static com.hlag.oversigt.util.Utils.logInfo;
 import static com.hlag.oversigt.util.Utils.logTrace;
 import static com.hlag.oversigt.util.Utils.logWarn;
 
@@ -9,6 +11,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -16,24 +21,52 @@ import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.EventBus;
+import com.google.common.base.Throwables;
 import com.google.common.util.concurrent.AbstractScheduledService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.Inject;
+import com.google.inject.name.Named;
 import com.hlag.oversigt.core.event.ErrorEvent;
+import com.hlag.oversigt.core.event.EventPipeline;
+import com.hlag.oversigt.core.event.EventRoutingIndex;
 import com.hlag.oversigt.core.event.OversigtEvent;
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler.ServiceExecutor;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.EventSourceStatistics;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector;
+import com.hlag.oversigt.util.Utils;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * Scheduled EventSource - produces events with specified time period.
  * Basically, based on Guava's
- * {@link com.google.common.util.concurrent.AbstractScheduledService}
+ * {@link com.google.common.util.concurrent.AbstractScheduledService}. All
+ * scheduled event sources share the threads of the
+ * {@link EventSourceScheduler}.
+ *
+ * <p>
+ * The delay between two runs adapts to the results of the runs. After failed
+ * runs the event source backs off exponentially with jitter. While the
+ * produced events do not change, the delay grows up to the configured maximum
+ * slowdown. As soon as an event changes, the normal frequency is used again.
+ * </p>
+ *
+ * <p>
+ * If demand driven polling is enabled, an event source whose event is not shown
+ * by any connected client runs with the idle frequency only. As soon as a
+ * client showing the event connects, the event source runs immediately and
+ * continues with its normal frequency.
+ * </p>
+ *
+ * <p>
+ * Every iteration has to finish within the iteration timeout. Otherwise the
+ * thread running the iteration is interrupted and the clean up actions
+ * registered using {@link #onIterationTimeout(Runnable)} are run.
+ * </p>
  *
  * @author avarabyeu
  */
 public abstract class ScheduledEventSource<T extends OversigtEvent> extends AbstractScheduledService {
-	private static final int ALLOWED_NUMBER_OF_FAILED_CALLS = 5;
-
 	private static final Map<String, Logger> LOGGERS = Collections.synchronizedMap(new HashMap<>());
 
 	/**
@@ -49,16 +82,68 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 	private String eventId;
 
 	/**
-	 * EventBus to send events
+	 * Pipeline to send events
 	 */
 	@Inject
-	private EventBus eventBus;
+	private EventPipeline eventPipeline;
 
 	@Inject
 	private EventSourceStatisticsManager statisticsManager;
 
+	@Inject
+	private EventSourceScheduler eventSourceScheduler;
+
+	@Inject
+	private EventRoutingIndex routingIndex;
+
+	@Inject
+	@Named("eventSources.demandDriven")
+	private boolean demandDriven;
+
+	@Inject
+	@Named("eventSources.idleFrequency")
+	private Duration idleFrequency;
+
+	@Inject
+	@Named("eventSources.iterationTimeout")
+	private Duration defaultIterationTimeout;
+
+	@Inject
+	@Named("eventSources.maxBackoff")
+	private Duration maxBackoff;
+
+	@Inject
+	@Named("eventSources.maxUnchangedSlowdown")
+	private int maxUnchangedSlowdown;
+
+	/**
+	 * Maximum duration of one iteration or {@link Duration#ZERO} to use the
+	 * configured default
+	 */
+	private Duration iterationTimeout = Duration.ZERO;
+
+	/**
+	 * Delay of the first run after the service has been started
+	 */
+	private volatile Duration initialDelay = Duration.ofMillis(1);
+
+	private volatile Optional<IterationDeadline> iterationDeadline = Optional.empty();
+
+	private volatile Optional<ServiceExecutor> serviceExecutor = Optional.empty();
+
+	/**
+	 * Whether the event source is waiting with the idle frequency because nobody
+	 * is showing its event
+	 */
+	private final AtomicBoolean idle = new AtomicBoolean(false);
+
 	private final AtomicInteger numberOfFailedRuns = new AtomicInteger(0);
 
+	/**
+	 * Number of events in a row having the same content as their predecessor
+	 */
+	private final AtomicInteger numberOfUnchangedRuns = new AtomicInteger(0);
+
 	private final AtomicBoolean stoppedBecauseOfError = new AtomicBoolean(false);
 
 	public boolean isStoppedBecauseOfError() {
@@ -71,6 +156,11 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 
 	private Optional<StatisticsCollector> collector = Optional.empty();
 
+	/**
+	 * Fingerprint of the last event sent to the clients
+	 */
+	private Optional<String> lastFingerprint = Optional.empty();
+
 	protected StatisticsCollector getStatisticsCollector() {
 		return collector.orElseThrow(() -> new RuntimeException("The statistics collector has not been created."));
 	}
@@ -82,7 +172,7 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 	/**
 	 * Executes one iteration of
 	 * {@link com.google.common.util.concurrent.AbstractScheduledService} Sends
-	 * event to event bus
+	 * event to event pipeline
 	 */
 	@Override
 	@SuppressWarnings("checkstyle:XIllegalCatchDefault")
@@ -90,11 +180,14 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 		stoppedBecauseOfError.set(false);
 		logTrace(getLogger(), "Run one iteration");
 
+		final IterationDeadline deadline = eventSourceScheduler.startDeadline(getEffectiveIterationTimeout());
+		iterationDeadline = Optional.of(deadline);
 		try {
 			logTrace(getLogger(), "Produce event");
 			collector = Optional.of(statisticsManager.createCollector(getEventId()));
 			final OversigtEvent event = produceEvent()
 					.orElseThrow(() -> new EventSourceException("Event source was unable to produce event."));
+			deadline.close();
 			getStatisticsCollector().success();
 
 			logTrace(getLogger(), "Send event");
@@ -102,13 +195,22 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 			logTrace(getLogger(), "Done with iteration");
 			numberOfFailedRuns.set(0);
 		} catch (final Throwable e) {
+			// do not interrupt the error handling
+			deadline.close();
 			logError(getLogger(), "Error while producing event.", e);
 			numberOfFailedRuns.incrementAndGet();
 
 			// prepare error messages
+			final boolean timedOut = deadline.isExpired() || isInterruption(e);
 			final String message;
 			final Optional<Throwable> cause;
-			if (e instanceof EventSourceException) {
+			if (deadline.isExpired()) {
+				message = "Event source did not finish within " + Utils.formatDuration(deadline.getTimeout()) + ".";
+				cause = Optional.of(e);
+			} else if (timedOut) {
+				message = "Event source has been interrupted before it finished.";
+				cause = Optional.of(e);
+			} else if (e instanceof EventSourceException) {
 				message = e.getMessage(); // an EventSourceException always has an exception
 				cause = Optional.ofNullable(e.getCause());
 			} else {
@@ -116,7 +218,11 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 				cause = Optional.of(e);
 			}
 			// collect stats
-			getStatisticsCollector().failure(message, cause);
+			if (timedOut) {
+				getStatisticsCollector().timeout(message, cause);
+			} else {
+				getStatisticsCollector().failure(message, cause);
+			}
 			logTrace(getLogger(), "Send error event");
 			sendEvent(new ErrorEvent(message, cause));
 
@@ -124,44 +230,116 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 			logTrace(getLogger(), "Remove event from cache: " + eventId);
 			removeLastEvent();
 
-			// count failures
+			// failed runs are retried with backoff, see AdaptiveScheduler
 			if (getEventSourceStatistics().isAutomticallyStarted()) {
 				logWarn(getLogger(), "Nightly restart resulted in error. Stopping again.");
 				stopAsync();
-			} else if (numberOfFailedRuns.get() > ALLOWED_NUMBER_OF_FAILED_CALLS) {
-				logWarn(getLogger(),
-						"Running the event source resulted in %s errors in a row. Maximum allowed errors in a row is %s. Stopping service.",
-						numberOfFailedRuns.get(),
-						ALLOWED_NUMBER_OF_FAILED_CALLS);
-				stoppedBecauseOfError.set(true);
-				stopAsync();
 			} else if (!(e instanceof Exception)) /* Throwable is some kind of Error or similar - stop immediately */ {
 				logError(getLogger(), "Error occurred. Stopping service immediately.");
 				stoppedBecauseOfError.set(true);
 				stopAsync();
 			}
+		} finally {
+			iterationDeadline = Optional.empty();
+			deadline.close();
 		}
 	}
 
+	/**
+	 * Check whether the iteration failed because it has been interrupted while
+	 * waiting, e.g. for a fetch shared by the {@link FetchCoalescer}
+	 *
+	 * @param throwable the exception thrown by the iteration
+	 * @return <code>true</code> if the exception has been caused by an
+	 *         interruption
+	 */
+	private static boolean isInterruption(final Throwable throwable) {
+		return Throwables.getCausalChain(throwable)
+				.stream()
+				.anyMatch(cause -> cause instanceof InterruptedException || cause instanceof CancellationException);
+	}
+
 	protected abstract Optional<T> produceEvent() throws EventSourceException;
 
 	protected final void sendEvent(final OversigtEvent event) {
 		event.setId(eventId);
+		final boolean unchanged;
+		if (event instanceof ErrorEvent) {
+			lastFingerprint = Optional.empty();
+			numberOfUnchangedRuns.set(0);
+			unchanged = false;
+		} else {
+			// events having the same content as the previous event only refresh the cache
+			final String fingerprint = event.getFingerprint();
+			unchanged = lastFingerprint.map(fingerprint::equals).orElse(false);
+			lastFingerprint = Optional.of(fingerprint);
+			getEventSourceStatistics().countProducedEvent(unchanged);
+			if (unchanged) {
+				numberOfUnchangedRuns.incrementAndGet();
+			} else {
+				numberOfUnchangedRuns.set(0);
+			}
+		}
+
 		try {
-			event.setLifetime(getEventLifetime());
+			// the event has to live until the next run even if the scheduler slows down
+			event.setLifetime(getEventLifetime().plus(getMaximumNextDelay()).minus(getFrequency()));
 		} catch (final Exception e) {
 			logWarn(getLogger(), "Unable to compute event life time", e);
 		}
-		this.eventBus.post(event);
+		if (unchanged) {
+			logTrace(getLogger(), "Event is unchanged");
+			this.eventPipeline.publishUnchanged(event);
+		} else {
+			this.eventPipeline.publish(event);
+		}
 	}
 
 	protected final void removeLastEvent() {
-		this.eventBus.post(eventId);
+		lastFingerprint = Optional.empty();
+		numberOfUnchangedRuns.set(0);
+		this.eventPipeline.removeEvent(eventId);
+	}
+
+	/**
+	 * Use the shared scheduler instead of creating a thread for every event
+	 * source. Unlike the default implementation's executor, the shared scheduler
+	 * is not shut down when this event source stops.
+	 */
+	@Override
+	protected final ScheduledExecutorService executor() {
+		final ServiceExecutor executor = eventSourceScheduler.createServiceExecutor();
+		serviceExecutor = Optional.of(executor);
+		return executor;
 	}
 
 	@Override
 	protected final Scheduler scheduler() {
-		return Scheduler.newFixedDelaySchedule(1, getFrequency().toMillis(), TimeUnit.MILLISECONDS);
+		if (!demandDriven) {
+			return new AdaptiveScheduler();
+		}
+
+		final Runnable viewerListener = this::viewerConnected;
+		routingIndex.addViewerListener(eventId, viewerListener);
+		addListener(new Listener() {
+			@Override
+			public void terminated(@SuppressWarnings("unused") @Nullable final State from) {
+				routingIndex.removeViewerListener(eventId, viewerListener);
+			}
+
+			@Override
+			public void failed(@SuppressWarnings("unused") @Nullable final State from,
+					@SuppressWarnings("unused") @Nullable final Throwable failure) {
+				routingIndex.removeViewerListener(eventId, viewerListener);
+			}
+		}, MoreExecutors.directExecutor());
+		return new AdaptiveScheduler();
+	}
+
+	private void viewerConnected() {
+		if (idle.compareAndSet(true, false) && serviceExecutor.map(ServiceExecutor::runNow).orElse(false)) {
+			logDebug(getLogger(), "Viewer connected. Running idle event source [%s] now.", eventId);
+		}
 	}
 
 	@Override
@@ -188,4 +366,167 @@ public abstract class ScheduledEventSource<T extends OversigtEvent> extends Abst
 	public final void setFrequency(final Duration frequency) {
 		this.frequency = frequency;
 	}
+
+	/**
+	 * Delay the first run of this event source, e.g. to spread the first runs of
+	 * all event sources when the server starts. Has to be called before the
+	 * service is started.
+	 *
+	 * @param initialDelay the time to wait after start before the first run
+	 */
+	public final void setInitialDelay(final Duration initialDelay) {
+		this.initialDelay = initialDelay.isNegative() || initialDelay.isZero() ? Duration.ofMillis(1) : initialDelay;
+	}
+
+	@Property(name = "Iteration Timeout",
+			description = "The maximum duration of a single run. Runs taking longer will be interrupted. Zero uses the server's default timeout.")
+	public Duration getIterationTimeout() {
+		return iterationTimeout;
+	}
+
+	public void setIterationTimeout(final Duration iterationTimeout) {
+		this.iterationTimeout = iterationTimeout;
+	}
+
+	/**
+	 * Get the maximum duration of a single run of this event source
+	 *
+	 * @return the configured iteration timeout or the server's default timeout
+	 */
+	protected final Duration getEffectiveIterationTimeout() {
+		return iterationTimeout.isZero() || iterationTimeout.isNegative() ? defaultIterationTimeout : iterationTimeout;
+	}
+
+	/**
+	 * Get the time left for the current iteration. Blocking calls should not wait
+	 * longer than this.
+	 *
+	 * @return the remaining time of the current iteration or the whole timeout if
+	 *         no iteration is running
+	 */
+	protected final Duration getRemainingIterationTime() {
+		return iterationDeadline.map(IterationDeadline::getRemaining).orElseGet(this::getEffectiveIterationTimeout);
+	}
+
+	/**
+	 * Register an action releasing a resource the current iteration might block
+	 * on, e.g. cancelling a statement or closing a connection. The action is run
+	 * from another thread if the iteration exceeds its timeout. It is discarded
+	 * when the iteration ends.
+	 *
+	 * @param cleanUpAction the action to run if the iteration times out
+	 */
+	protected final void onIterationTimeout(final Runnable cleanUpAction) {
+		iterationDeadline.ifPresent(deadline -> deadline.onExpiry(cleanUpAction));
+	}
+
+	/**
+	 * Get the longest delay the scheduler may choose for the next run based on
+	 * the current number of failed or unchanged runs in a row
+	 *
+	 * @return the maximum delay until the next run
+	 */
+	private Duration getMaximumNextDelay() {
+		final int failures = numberOfFailedRuns.get();
+		if (failures > 0) {
+			return computeBackoff(getFrequency(), failures, maxBackoff, 1.0);
+		}
+		return getFrequency().multipliedBy(computeSlowdownFactor(numberOfUnchangedRuns.get(), maxUnchangedSlowdown));
+	}
+
+	/**
+	 * Compute the delay after failed runs. The delay doubles with every failure
+	 * in a row, starting with twice the frequency and limited by the given
+	 * maximum. The lower half of the delay is fixed, the upper half is random, so
+	 * event sources failing because of the same outage do not retry at the same
+	 * time.
+	 *
+	 * @param frequency  the normal frequency of the event source
+	 * @param failures   the number of failed runs in a row
+	 * @param maxBackoff the maximum delay
+	 * @param random     random value between 0 and 1 choosing the jitter
+	 * @return the delay until the next run
+	 */
+	static Duration computeBackoff(final Duration frequency,
+			final int failures,
+			final Duration maxBackoff,
+			final double random) {
+		final long frequencyMillis = Math.max(1, frequency.toMillis());
+		final long maxMillis = Math.max(frequencyMillis, maxBackoff.toMillis());
+		long backoffMillis = frequencyMillis;
+		for (int i = 0; i < failures && backoffMillis < maxMillis; i += 1) {
+			backoffMillis *= 2;
+		}
+		backoffMillis = Math.min(backoffMillis, maxMillis);
+		final long fixedMillis = backoffMillis / 2;
+		return Duration.ofMillis(fixedMillis + (long) (random * (backoffMillis - fixedMillis)));
+	}
+
+	/**
+	 * Compute the factor to slow down an event source producing unchanged
+	 * events. The factor doubles with every unchanged event in a row and is
+	 * limited by the given maximum.
+	 *
+	 * @param unchangedRuns the number of unchanged events in a row
+	 * @param maxFactor     the maximum factor, 1 to disable slowing down
+	 * @return the factor to multiply the frequency with
+	 */
+	static int computeSlowdownFactor(final int unchangedRuns, final int maxFactor) {
+		final int limit = Math.max(1, maxFactor);
+		int factor = 1;
+		for (int i = 0; i < unchangedRuns && factor < limit; i += 1) {
+			factor *= 2;
+		}
+		return Math.min(factor, limit);
+	}
+
+	/**
+	 * Schedules the next run depending on the outcome of the previous runs:
+	 * <ul>
+	 * <li>after failed runs using exponential backoff with jitter</li>
+	 * <li>while the events do not change using a slowly growing delay</li>
+	 * <li>otherwise using the normal frequency</li>
+	 * </ul>
+	 * If demand driven polling is enabled and no client is showing the event, the
+	 * idle frequency is used if it is longer.
+	 */
+	private final class AdaptiveScheduler extends CustomScheduler {
+		private boolean firstRun = true;
+
+		private AdaptiveScheduler() {
+			// no fields to be initialized
+		}
+
+		@Override
+		protected Schedule getNextSchedule() {
+			if (firstRun) {
+				firstRun = false;
+				return new Schedule(initialDelay.toMillis(), TimeUnit.MILLISECONDS);
+			}
+
+			final int failures = numberOfFailedRuns.get();
+			Duration delay;
+			if (failures > 0) {
+				delay = computeBackoff(getFrequency(),
+						failures,
+						maxBackoff,
+						ThreadLocalRandom.current().nextDouble());
+				logInfo(getLogger(),
+						"Event source [%s] failed %s times in a row. Retrying in %s.",
+						eventId,
+						failures,
+						Utils.formatDuration(delay));
+			} else {
+				delay = getMaximumNextDelay();
+			}
+
+			final boolean useIdleFrequency
+					= demandDriven && idleFrequency.compareTo(delay) > 0 && !routingIndex.hasViewers(eventId);
+			idle.set(useIdleFrequency);
+			if (useIdleFrequency) {
+				delay = idleFrequency;
+			}
+			return new Schedule(delay.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
 }
@@ -4,8 +4,8 @@ import java.util.Objects;
 
 import javax.inject.Inject;
 
-import com.google.common.eventbus.EventBus;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.hlag.oversigt.core.event.EventPipeline;
 import com.hlag.oversigt.core.event.OversigtEvent;
 
 /**
@@ -13,10 +13,10 @@ import com.hlag.oversigt.core.event.OversigtEvent;
  */
 abstract class SimpleEventSource<T extends OversigtEvent> extends AbstractExecutionThreadService {
 	/**
-	 * EventBus to send events
+	 * Pipeline to send events
 	 */
 	@Inject
-	private EventBus eventBus;
+	private EventPipeline eventPipeline;
 
 	/**
 	 * ID of event this event source bound to
@@ -28,7 +28,7 @@ abstract class SimpleEventSource<T extends OversigtEvent> extends AbstractExecut
 	protected final void sendEvent(final T event) {
 		Objects.requireNonNull(event, "The event must not be null.");
 		event.setId(eventId);
-		this.eventBus.post(event);
+		this.eventPipeline.publish(event);
 	}
 
 	@Override
@@ -2,10 +2,12 @@ package com.hlag.oversigt.sources;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import com.hlag.oversigt.connect.db.DatabaseCache;
+import com.hlag.oversigt.connect.db.DatabaseCache.CacheStatistics;
 import com.hlag.oversigt.core.event.OversigtEvent;
 import com.hlag.oversigt.core.eventsource.Property;
 
@@ -14,6 +16,12 @@ import com.hlag.oversigt.core.eventsource.Property;
  *
  */
 public abstract class AbstractCachingJdbcEventSource<X, T extends OversigtEvent> extends AbstractJdbcEventSource<T> {
+	/**
+	 * Items are served for this many query intervals if they cannot be read
+	 * again, e.g. because the database is not available.
+	 */
+	private static final int MAXIMUM_AGE_IN_QUERY_INTERVALS = 4;
+
 	private Optional<DatabaseCache<X>> cache = Optional.empty();
 
 	private long limit = 5;
@@ -29,6 +37,16 @@ public abstract class AbstractCachingJdbcEventSource<X, T extends OversigtEvent>
 
 	protected abstract DatabaseCache<X> createCache();
 
+	/**
+	 * Get the refresh metrics of the database cache of this event source
+	 *
+	 * @return the statistics of the cache or an empty {@link Optional} if the
+	 *         cache has not been used, yet
+	 */
+	public synchronized Optional<CacheStatistics> getCacheStatistics() {
+		return cache.map(DatabaseCache::getStatistics);
+	}
+
 	@Property(name = "Max item count",
 			description = "The maximum number of items to be listed. Set to 0 for unlimited number of items.")
 	public long getLimit() {
@@ -39,6 +57,18 @@ public abstract class AbstractCachingJdbcEventSource<X, T extends OversigtEvent>
 		this.limit = limit;
 	}
 
+	/**
+	 * Push the item limit down to the database. This assumes that every row read
+	 * by the cache results in one item. Subclasses whose items do not correspond
+	 * to single rows have to override this method.
+	 *
+	 * @return the item limit or zero for no limit
+	 */
+	@Override
+	protected int getMaxRows() {
+		return getLimit() > 0 && getLimit() <= Integer.MAX_VALUE ? (int) getLimit() : 0;
+	}
+
 	protected Stream<X> stream() {
 		Stream<X> stream = getCache().stream();
 		if (getLimit() > 0) {
@@ -48,7 +78,17 @@ public abstract class AbstractCachingJdbcEventSource<X, T extends OversigtEvent>
 	}
 
 	@Override
-	protected void gatherDatabaseInfo(final Connection connection) throws SQLException {
-		getCache().getItems(connection);
+	protected void gatherDatabaseInfo(@SuppressWarnings("unused") final Connection connection)
+			throws SQLException {
+		final DatabaseCache<X> cache = getCache();
+		final Duration interval = getDatabaseQueryInterval();
+		cache.setDurationBetweenReads(interval);
+		// the items must at least be served by the iteration that read them
+		final Duration maximumAge = interval.multipliedBy(MAXIMUM_AGE_IN_QUERY_INTERVALS);
+		cache.setMaximumAge(maximumAge.compareTo(getEffectiveIterationTimeout()) > 0
+				? maximumAge
+				: getEffectiveIterationTimeout());
+		// the cache uses its own connection, so it can read in the background after this iteration
+		cache.refresh(this::createBackgroundConnection);
 	}
 }
@@ -27,6 +27,7 @@ import java.util.Optional;
 import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.net.ssl.HttpsURLConnection;
 
@@ -36,8 +37,10 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.base.Strings;
 import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
 import com.hlag.oversigt.core.event.OversigtEvent;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector.StartedAction;
+import com.hlag.oversigt.core.eventsource.FetchCoalescer;
 import com.hlag.oversigt.core.eventsource.Property;
 import com.hlag.oversigt.properties.Credentials;
 import com.hlag.oversigt.properties.HttpProxy;
@@ -50,8 +53,13 @@ import com.hlag.oversigt.util.text.TextProcessor;
 import de.larssh.utils.text.StringConverters;
 
 public abstract class AbstractDownloadEventSource<T extends OversigtEvent> extends AbstractSslAwareEventSource<T> {
+	private static final int DEFAULT_TIMEOUT_MILLIS = 30 * 1000;
+
 	private static final Pattern PATTERN_URL_MATCHER_REPLACEMENT = Pattern.compile("\\$\\{([0-9]+)\\.([0-9]+)\\}");
 
+	@Inject
+	private FetchCoalescer fetchCoalescer;
+
 	private HttpProxy proxy = HttpProxy.EMPTY;
 
 	private InternetAddress[] urls = new InternetAddress[] {
@@ -81,8 +89,7 @@ public abstract class AbstractDownloadEventSource<T extends OversigtEvent> exten
 			final Collection<LoginData> loginData) throws IOException {
 		final URL url = new URL(urlString);
 		final URLConnection con = url.openConnection(getHttpProxy().getProxy());
-		con.setConnectTimeout(30 * 1000);
-		con.setReadTimeout(30 * 1000);
+		limitToIterationTime(con);
 		con.setRequestProperty("User-Agent",
 				"Mozilla/5.0 Java/" + System.getProperty("java.version") + " Oversigt/0.9");
 
@@ -130,6 +137,24 @@ public abstract class AbstractDownloadEventSource<T extends OversigtEvent> exten
 		return con;
 	}
 
+	/**
+	 * Limit the connection's timeouts to the time left for the current iteration
+	 * and disconnect it if the iteration times out. Without this, chained
+	 * addresses and redirects could wait for the default timeout once per
+	 * connection.
+	 *
+	 * @param connection the connection to limit
+	 */
+	private void limitToIterationTime(final URLConnection connection) {
+		final int timeout
+				= (int) Math.max(1, Math.min(DEFAULT_TIMEOUT_MILLIS, getRemainingIterationTime().toMillis()));
+		connection.setConnectTimeout(timeout);
+		connection.setReadTimeout(timeout);
+		if (connection instanceof HttpURLConnection) {
+			onIterationTimeout(((HttpURLConnection) connection)::disconnect);
+		}
+	}
+
 	protected URLConnection createConnection(final String urlString) throws IOException {
 		return createConnection(Arrays.asList(InternetAddress.fromUrl(new URL(urlString))));
 	}
@@ -209,6 +234,41 @@ public abstract class AbstractDownloadEventSource<T extends OversigtEvent> exten
 		return createConnection(new ArrayList<>(Arrays.asList(getUrls())));
 	}
 
+	/**
+	 * Download the content of the configured internet addresses as string. Event
+	 * sources downloading the same addresses with the same settings share the
+	 * download using the {@link FetchCoalescer}.
+	 *
+	 * @return the downloaded content
+	 * @throws IOException if the download fails
+	 */
+	protected String downloadConfiguredString() throws IOException {
+		return fetchCoalescer.fetch(createFetchKey(),
+				getStatisticsCollector(),
+				Arrays.stream(getUrls()).map(InternetAddress::getUrlString).collect(Collectors.joining(", ")),
+				() -> downloadString(createConfiguredConnection()));
+	}
+
+	private FetchCoalescer.Key createFetchKey() {
+		return FetchCoalescer.Key.of("download",
+				Arrays.stream(getUrls())
+						.map(address -> Arrays.asList(address.getUrlString(),
+								address.pattern,
+								Arrays.stream(address.getLoginDatas())
+										.map(data -> Arrays.asList(data.getName(), data.getValue()))
+										.collect(Collectors.toList())))
+						.collect(Collectors.toList()),
+				Arrays.stream(getHttpHeaders())
+						.map(header -> Arrays.asList(header.getName(), header.getValue()))
+						.collect(Collectors.toList()),
+				getCredentials().getUsername(),
+				getCredentials().getPassword(),
+				getCredentials().getDomain(),
+				getHttpProxy().getHostname(),
+				getHttpProxy().getPort(),
+				isCheckSSL());
+	}
+
 	protected DownloadData downloadBytes(final URLConnection connectionToRead) throws IOException {
 		return read(connectionToRead, //
 				(connection, inputStream) -> //
@@ -291,12 +351,11 @@ public abstract class AbstractDownloadEventSource<T extends OversigtEvent> exten
 
 			// copy settings from old connection
 			newConnection.setAllowUserInteraction(connection.getAllowUserInteraction());
-			newConnection.setConnectTimeout(connection.getConnectTimeout());
 			newConnection.setDefaultUseCaches(connection.getDefaultUseCaches());
 			newConnection.setDoInput(connection.getDoInput());
 			newConnection.setDoOutput(connection.getDoOutput());
 			newConnection.setIfModifiedSince(connection.getIfModifiedSince());
-			newConnection.setReadTimeout(connection.getReadTimeout());
+			limitToIterationTime(newConnection);
 			newConnection.setUseCaches(connection.getUseCaches());
 			headerParameters.entrySet()
 					.stream()
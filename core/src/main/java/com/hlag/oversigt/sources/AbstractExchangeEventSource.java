@@ -32,7 +32,7 @@ public abstract class AbstractExchangeEventSource<T extends OversigtEvent> exten
 
 	private ZoneId zoneId = ZoneId.systemDefault();
 
-	private Optional<ExchangeClient> exchangeClient = Optional.empty();
+	private volatile Optional<ExchangeClient> exchangeClient = Optional.empty();
 
 	@Override
 	protected void startUp() throws Exception {
@@ -41,6 +41,23 @@ public abstract class AbstractExchangeEventSource<T extends OversigtEvent> exten
 		super.startUp();
 	}
 
+	/**
+	 * Close the current exchange client to abort its pending requests and replace
+	 * it by a new one for the next iteration
+	 */
+	private void replaceExchangeClient() {
+		final Optional<ExchangeClient> timedOutClient = exchangeClient;
+		try {
+			exchangeClient
+					= Optional.of(ExchangeClientFactory.createExchangeClient(getServerConnection(), getCredentials()));
+			if (timedOutClient.isPresent()) {
+				timedOutClient.get().close();
+			}
+		} catch (final Exception e) {
+			getLogger().warn("Unable to replace timed out exchange client", e);
+		}
+	}
+
 	@Override
 	protected void shutDown() throws Exception {
 		if (exchangeClient.isPresent()) {
@@ -82,6 +99,7 @@ public abstract class AbstractExchangeEventSource<T extends OversigtEvent> exten
 
 	@Override
 	protected final Optional<T> produceEvent() throws EventSourceException {
+		onIterationTimeout(this::replaceExchangeClient);
 		try {
 			return produceExchangeEvent();
 		} catch (final Exception e) {
@@ -1,16 +1,17 @@
 package com.hlag.oversigt.sources;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -18,10 +19,14 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.hlag.oversigt.connect.db.JdbcConnectionPools;
 import com.hlag.oversigt.core.event.OversigtEvent;
 import com.hlag.oversigt.core.eventsource.EventSourceException;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector.StartedAction;
+import com.hlag.oversigt.core.eventsource.FetchCoalescer;
 import com.hlag.oversigt.core.eventsource.Property;
 import com.hlag.oversigt.core.eventsource.ScheduledEventSource;
 import com.hlag.oversigt.properties.Credentials;
@@ -35,6 +40,16 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 public abstract class AbstractJdbcEventSource<T extends OversigtEvent> extends ScheduledEventSource<T> {
 	protected static final Logger DB_LOGGER = LoggerFactory.getLogger("db");
 
+	@Inject
+	private FetchCoalescer fetchCoalescer;
+
+	@Inject
+	private JdbcConnectionPools connectionPools;
+
+	@Inject
+	@Named("eventSources.jdbcFetchSize")
+	private int fetchSize;
+
 	private DatabaseConnection databaseConnection = DatabaseConnection.EMPTY;
 
 	private Credentials credentials = Credentials.EMPTY;
@@ -68,37 +83,108 @@ public abstract class AbstractJdbcEventSource<T extends OversigtEvent> extends S
 		this.databaseQueryInterval = databaseQueryInterval;
 	}
 
-	private Connection wrapConnection(final Connection connection) {
-		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
-				new Class[] { Connection.class },
-				new UnpreparedStatementPreventingInvocationHandler(connection));
+	/**
+	 * Get the maximum number of rows any query of this event source needs. The
+	 * limit is pushed down to the database using
+	 * {@link PreparedStatement#setMaxRows(int)}, so surplus rows are never
+	 * transferred.
+	 *
+	 * @return the maximum number of rows per query or zero for no limit
+	 */
+	protected int getMaxRows() {
+		return 0;
 	}
 
-	@SuppressWarnings("resource")
+	/**
+	 * Create a connection that borrows a connection from the shared pool when it
+	 * is used for the first time. This way no connection is used if all queries
+	 * can be answered by the {@link FetchCoalescer}.
+	 *
+	 * @return the connection to use
+	 * @throws EventSourceException if the connection is not configured
+	 */
 	private Connection getConnection() throws EventSourceException {
 		if (getDatabaseConnection() == DatabaseConnection.EMPTY) {
 			throw new EventSourceException("Database connection is not configured.");
 		}
-		try {
-			// Load the driver
-			getDatabaseConnection().loadDriverClass();
-			getLogger().info("Loaded JDBC driver.");
-
-			// Create the connection using the IBM Data Server Driver for JDBC and SQLJ
-			final Connection con = DriverManager.getConnection(getDatabaseConnection().getJdbcUrl(),
-					getCredentials().getUsername(),
-					getCredentials().getPassword());
-			// Commit changes manually
-			con.setAutoCommit(false);
-			con.setReadOnly(true);
-			con.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
-			getLogger().info("Created JDBC connection to the data source.");
-			return wrapConnection(con);
-		} catch (final ClassNotFoundException e) {
-			throw new EventSourceException("Could not load JDBC driver.", e);
-		} catch (final SQLException e) {
-			throw new EventSourceException("Failed connecting to data base.", e);
+		return createConnection(() -> openConnection(getRemainingIterationTime()), this::prepareStatement);
+	}
+
+	/**
+	 * Create another connection to the configured database, e.g. to read data in
+	 * the background while the event source continues to serve its current data.
+	 * Like the connection handed to {@link #gatherDatabaseInfo(Connection)} it
+	 * borrows a connection from the shared pool when it is used for the first
+	 * time. The caller has to close the connection.
+	 *
+	 * <p>
+	 * As the connection may outlive the current iteration, it is not bound to
+	 * the iteration's deadline. Waiting for a pooled connection and each
+	 * statement are limited to the iteration timeout instead.
+	 * </p>
+	 *
+	 * @return the new connection
+	 */
+	protected final Connection createBackgroundConnection() {
+		final Duration timeout = getEffectiveIterationTimeout();
+		return createConnection(() -> openConnection(timeout),
+				statement -> limitStatement(statement, getMaxRows(), fetchSize, timeout));
+	}
+
+	private static Connection createConnection(final DBConnectionOpener opener, final DBStatementPreparer preparer) {
+		return (Connection) Proxy.newProxyInstance(AbstractJdbcEventSource.class.getClassLoader(),
+				new Class<?>[] { Connection.class },
+				new UnpreparedStatementPreventingInvocationHandler(opener, preparer));
+	}
+
+	/**
+	 * Make sure the statement does not run longer than the current iteration is
+	 * allowed to run and cancel it if the iteration times out. Also limit the
+	 * number of rows to {@link #getMaxRows()} and apply the configured fetch
+	 * size.
+	 *
+	 * @param statement the statement to limit
+	 * @throws SQLException if the statement cannot be configured
+	 */
+	private void prepareStatement(final PreparedStatement statement) throws SQLException {
+		limitStatement(statement, getMaxRows(), fetchSize, getRemainingIterationTime());
+		onIterationTimeout(() -> {
+			try {
+				statement.cancel();
+			} catch (final SQLException e) {
+				getLogger().warn("Unable to cancel timed out SQL statement", e);
+			}
+		});
+	}
+
+	/**
+	 * Limit the number of rows, the fetch size and the run time of a statement
+	 *
+	 * @param statement the statement to limit
+	 * @param maxRows   the maximum number of rows to read or zero for no limit
+	 * @param fetchSize the number of rows to fetch at once or zero for the
+	 *                  driver's default
+	 * @param timeout   the time the statement may run
+	 * @throws SQLException if the statement cannot be configured
+	 */
+	static void limitStatement(final PreparedStatement statement,
+			final int maxRows,
+			final int fetchSize,
+			final Duration timeout) throws SQLException {
+		if (maxRows > 0) {
+			statement.setMaxRows(maxRows);
 		}
+		// there is no need to fetch more rows at once than the query may return
+		final int rowsPerFetch = maxRows > 0 && fetchSize > 0 ? Math.min(fetchSize, maxRows) : fetchSize;
+		if (rowsPerFetch > 0) {
+			statement.setFetchSize(rowsPerFetch);
+		}
+		// the query timeout is measured in seconds and zero means no limit
+		statement.setQueryTimeout((int) Math.max(1, timeout.getSeconds()));
+	}
+
+	private Connection openConnection(final Duration timeout) throws SQLException {
+		return connectionPools.getPool(getDatabaseConnection(), getCredentials()).getConnection(timeout);
 	}
 
 	@SuppressWarnings("resource")
@@ -135,11 +221,83 @@ public abstract class AbstractJdbcEventSource<T extends OversigtEvent> extends S
 
 	protected abstract Optional<T> produceEventFromData();
 
+	/**
+	 * Create the key identifying a query for the {@link FetchCoalescer}
+	 *
+	 * @param sql        the SQL to execute
+	 * @param parameters parameters to be inserted into the SQL
+	 * @return the key of the query
+	 */
+	FetchCoalescer.Key createFetchKey(final String sql, final Object... parameters) {
+		// the class and the row mapping are part of the key because they define how the lines are read
+		return FetchCoalescer.Key.of("jdbc",
+				getClass(),
+				getRowMappingConfiguration(),
+				getDatabaseConnection().getJdbcUrl(),
+				getCredentials().getUsername(),
+				getCredentials().getPassword(),
+				getMaxRows(),
+				sql,
+				parameters);
+	}
+
+	/**
+	 * Get the configuration of this event source that influences how the lines
+	 * of a result set are read. Event sources executing the same query only share
+	 * the result if this configuration is equal, too.
+	 *
+	 * @return a list of values describing how the lines are read. The values must
+	 *         implement {@link Object#equals(Object)}.
+	 */
+	protected List<?> getRowMappingConfiguration() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Read objects from the configured database. Other instances of the same event
+	 * source class with the same {@link #getRowMappingConfiguration()} executing
+	 * the same SQL with the same parameters and row limit against the same
+	 * database share the query's result using the {@link FetchCoalescer}.
+	 *
+	 * @param <X>         the type to read
+	 * @param connection  the connection to read from
+	 * @param readOneLine a function to read one single object from a
+	 *                    {@link ResultSet}
+	 * @param sql         the SQL to execute
+	 * @param parameters  parameters to be inserted into the SQL
+	 * @return the list of read objects
+	 * @throws SQLException if something fails
+	 */
 	protected <X> List<X> readFromDatabase(final Connection connection,
 			final ResultSetFunction<X> readOneLine,
 			final String sql,
 			final Object... parameters) throws SQLException {
-		return readFromDatabase(connection, readOneLine, getStatisticsCollector(), sql, parameters);
+		return new ArrayList<>(fetchCoalescer.fetch(createFetchKey(sql, parameters),
+				getStatisticsCollector(),
+				sql,
+				() -> readFromDatabase(connection, readOneLine, getStatisticsCollector(), sql, parameters)));
+	}
+
+	/**
+	 * Hand the rows of a query to a consumer while the result set is being read.
+	 * In contrast to
+	 * {@link #readFromDatabase(Connection, ResultSetFunction, String, Object...)}
+	 * no list of the rows is created, so the consumer can aggregate the rows or
+	 * map them directly into the data of the event. The result is not shared
+	 * with other event sources.
+	 *
+	 * @param connection the connection to read from
+	 * @param consumer   called for each row with the {@link ResultSet}
+	 *                   positioned at this row
+	 * @param sql        the SQL to execute
+	 * @param parameters parameters to be inserted into the SQL
+	 * @throws SQLException if something fails
+	 */
+	protected void streamFromDatabase(final Connection connection,
+			final ResultSetConsumer consumer,
+			final String sql,
+			final Object... parameters) throws SQLException {
+		query(connection, consumer, Optional.of(getStatisticsCollector()), sql, parameters);
 	}
 
 	/**
@@ -188,14 +346,26 @@ public abstract class AbstractJdbcEventSource<T extends OversigtEvent> extends S
 			final Optional<StatisticsCollector> statisticsCollector,
 			final String sql,
 			final Object... parameters) throws SQLException {
+		final List<X> list = new ArrayList<>();
+		query(connection, rs -> list.add(readOneLine.readLine(rs)), statisticsCollector, sql, parameters);
+		return list;
+	}
+
+	static void query(final Connection connection,
+			final ResultSetConsumer consumer,
+			final Optional<StatisticsCollector> statisticsCollector,
+			final String sql,
+			final Object... parameters) throws SQLException {
 		final long time = System.currentTimeMillis();
 		try (PreparedStatement stmt = connection.prepareStatement(sql)) {
 			for (int i = 0; i < parameters.length; i += 1) {
 				stmt.setObject(i + 1, parameters[i]);
 			}
 			final Optional<StartedAction> action = statisticsCollector.map(sc -> sc.startAction("SQL-Query", sql));
-			try {
-				return readFromDatabase(stmt, readOneLine);
+			try (ResultSet rs = stmt.executeQuery()) {
+				while (rs.next()) {
+					consumer.accept(rs);
+				}
 			} finally {
 				action.ifPresent(StartedAction::close);
 			}
@@ -208,26 +378,19 @@ public abstract class AbstractJdbcEventSource<T extends OversigtEvent> extends S
 		}
 	}
 
-	private static <T> List<T> readFromDatabase(final PreparedStatement statement,
-			final ResultSetFunction<T> readOneLine) throws SQLException {
-		try (ResultSet rs = statement.executeQuery()) {
-			return readFromDatabase(rs, readOneLine);
-		}
+	@FunctionalInterface
+	private interface DBConnectionConsumer {
+		void apply(Connection connection) throws SQLException;
 	}
 
-	private static <T> List<T> readFromDatabase(final ResultSet rs, final ResultSetFunction<T> readOneLine)
-			throws SQLException {
-		final List<T> list = new ArrayList<>();
-		while (rs.next()) {
-			final T item = readOneLine.readLine(rs);
-			list.add(item);
-		}
-		return list;
+	@FunctionalInterface
+	private interface DBConnectionOpener {
+		Connection open() throws SQLException;
 	}
 
 	@FunctionalInterface
-	private interface DBConnectionConsumer {
-		void apply(Connection connection) throws SQLException;
+	private interface DBStatementPreparer {
+		void prepare(PreparedStatement statement) throws SQLException;
 	}
 
 	@FunctionalInterface
@@ -235,15 +398,34 @@ public abstract class AbstractJdbcEventSource<T extends OversigtEvent> extends S
 		T readLine(ResultSet resultSet) throws SQLException;
 	}
 
+	@FunctionalInterface
+	public interface ResultSetConsumer {
+		void accept(ResultSet resultSet) throws SQLException;
+	}
+
+	/**
+	 * Prevents unprepared statements and opens the actual connection when it is
+	 * needed for the first time. Rolling back or closing a connection that has not
+	 * been opened does nothing. All prepared statements are handed to the preparer
+	 * before they are used.
+	 */
 	private static final class UnpreparedStatementPreventingInvocationHandler implements InvocationHandler {
-		private final Connection connection;
+		private final DBConnectionOpener opener;
+
+		private final DBStatementPreparer preparer;
 
-		private UnpreparedStatementPreventingInvocationHandler(final Connection connection) {
-			this.connection = connection;
+		@Nullable
+		private Connection connection = null;
+
+		private UnpreparedStatementPreventingInvocationHandler(final DBConnectionOpener opener,
+				final DBStatementPreparer preparer) {
+			this.opener = opener;
+			this.preparer = preparer;
 		}
 
 		@Override
-		public Object invoke(@SuppressWarnings("unused") @Nullable final Object proxy,
+		@Nullable
+		public synchronized Object invoke(@SuppressWarnings("unused") @Nullable final Object proxy,
 				@Nullable final Method method,
 				@Nullable final Object[] args) throws Throwable {
 			if (Objects.requireNonNull(method).getDeclaringClass() == Connection.class
@@ -251,7 +433,22 @@ public abstract class AbstractJdbcEventSource<T extends OversigtEvent> extends S
 				throw new RuntimeException(
 						"Oversigt does not allow unprepared statements. Please use #prepareStatement instead.");
 			}
-			return method.invoke(connection, args);
+			if (connection == null) {
+				if ("rollback".equals(method.getName()) || "close".equals(method.getName())) {
+					return null;
+				}
+				connection = opener.open();
+			}
+			final Object result;
+			try {
+				result = method.invoke(connection, args);
+			} catch (final InvocationTargetException e) {
+				throw e.getCause();
+			}
+			if (result instanceof PreparedStatement) {
+				preparer.prepare((PreparedStatement) result);
+			}
+			return result;
 		}
 	}
 }
@@ -31,12 +31,14 @@ import com.atlassian.jira.rest.client.api.domain.IssueField;
 import com.atlassian.jira.rest.client.api.domain.User;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.inject.Inject;
 import com.hlag.oversigt.connect.jira.JiraClient;
 import com.hlag.oversigt.connect.jira.JiraClientException;
 import com.hlag.oversigt.connect.jira.JiraClientFactory;
 import com.hlag.oversigt.core.event.OversigtEvent;
 import com.hlag.oversigt.core.eventsource.EventSourceException;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector.StartedAction;
+import com.hlag.oversigt.core.eventsource.FetchCoalescer;
 import com.hlag.oversigt.core.eventsource.Property;
 import com.hlag.oversigt.core.eventsource.ScheduledEventSource;
 import com.hlag.oversigt.properties.Credentials;
@@ -50,6 +52,9 @@ import de.larssh.utils.Nullables;
 public abstract class AbstractJiraEventSource<T extends OversigtEvent> extends ScheduledEventSource<T> {
 	private static final Pattern HANDLE_AUTHENTICATION_EXCEPTION_PATTERN = Pattern.compile("[\r\n]+");
 
+	@Inject
+	private FetchCoalescer fetchCoalescer;
+
 	private ServerConnection jiraConnection = ServerConnection.EMPTY;
 
 	private Credentials jiraCredentials = Credentials.EMPTY;
@@ -73,14 +78,18 @@ public abstract class AbstractJiraEventSource<T extends OversigtEvent> extends S
 	}
 
 	protected Map<DisplayOption, Set<Issue>> getJiraTickets() throws EventSourceException {
-		// List all issues as defined by JQL query
+		// List all issues as defined by JQL query - instances with the same query
+		// share the search
 		final List<Issue> issues;
 		try {
-			final JiraClient client = JiraClientFactory.createJiraClient(getJiraConnection(), getJiraCredentials());
-			try (StartedAction action = getStatisticsCollector().startAction("JIRA query", getQuery())) {
-				issues = client.search(getQuery());
-			}
-		} catch (final JiraClientException | TimeoutException e) {
+			issues = fetchCoalescer.fetch(FetchCoalescer.Key.of("jira",
+					getJiraConnection().getUrl(),
+					getJiraCredentials().getUsername(),
+					getJiraCredentials().getPassword(),
+					getJiraCredentials().getDomain(),
+					getQuery()), getStatisticsCollector(), getQuery(), this::searchJiraTickets);
+		} catch (final Exception e) {
+			Throwables.throwIfUnchecked(e);
 			return handleException(e);
 		}
 
@@ -130,6 +139,13 @@ public abstract class AbstractJiraEventSource<T extends OversigtEvent> extends S
 		return issuesPerCategory;
 	}
 
+	private List<Issue> searchJiraTickets() throws JiraClientException, TimeoutException {
+		final JiraClient client = JiraClientFactory.createJiraClient(getJiraConnection(), getJiraCredentials());
+		try (StartedAction action = getStatisticsCollector().startAction("JIRA query", getQuery())) {
+			return client.search(getQuery());
+		}
+	}
+
 	private DisplayOption getUnknownDisplayOptions(final AggregationType aggregationType,
 			final Issue issue,
 			final String value) {
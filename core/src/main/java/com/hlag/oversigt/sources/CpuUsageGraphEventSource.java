@@ -1,18 +1,21 @@
 package com.hlag.oversigt.sources;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import javax.validation.constraints.NotNull;
 
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
 import com.hlag.oversigt.connect.ssh.SshConnection;
 import com.hlag.oversigt.core.eventsource.EventSource;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector.StartedAction;
@@ -22,8 +25,11 @@ import com.hlag.oversigt.properties.JsonBasedData;
 import com.hlag.oversigt.sources.data.JsonHint;
 import com.hlag.oversigt.sources.data.JsonHint.ArrayStyle;
 import com.hlag.oversigt.sources.event.ComplexGraphEvent;
-import com.hlag.oversigt.sources.event.ComplexGraphEvent.Point;
 import com.hlag.oversigt.sources.event.ComplexGraphEvent.Series;
+import com.hlag.oversigt.storage.timeseries.TimeSeries;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesBuffer;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesFile;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesStore;
 import com.hlag.oversigt.util.Utils;
 
 import de.larssh.utils.Nullables;
@@ -31,7 +37,20 @@ import de.larssh.utils.text.Strings;
 
 @EventSource(view = "Rickshawgraph", displayName = "CPU Usage")
 public class CpuUsageGraphEventSource extends ScheduledEventSource<ComplexGraphEvent> {
-	private final Map<ZonedDateTime, Map<Server, Integer>> values = new TreeMap<>();
+	/**
+	 * Maximum number of points per series. Longer histories are downsampled.
+	 */
+	private static final int MAX_POINTS = 300;
+
+	@Inject
+	private TimeSeriesStore timeSeriesStore;
+
+	private Optional<TimeSeriesFile> history = Optional.empty();
+
+	/**
+	 * The rows of {@link #history} within the history length
+	 */
+	private Optional<TimeSeriesBuffer> recentValues = Optional.empty();
 
 	private Server[] servers = new Server[] { new Server() };
 
@@ -44,31 +63,73 @@ public class CpuUsageGraphEventSource extends ScheduledEventSource<ComplexGraphE
 	@Override
 	protected Optional<ComplexGraphEvent> produceEvent() {
 		final ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+		final long from = now.minusMinutes(getHistoryLength()).toEpochSecond();
+		final Server[] servers = getServers();
+		if (servers.length == 0) {
+			return Optional.of(new ComplexGraphEvent(new ArrayList<>()));
+		}
 
 		// get usages from hosts
-		final Map<Server, Integer> usages = Arrays.stream(getServers())
-				.parallel()
-				.collect(Collectors.toMap(Function.identity(), this::getCpuUsage));
-		values.put(now, usages);
+		final long[] usages = Arrays.stream(servers).parallel().mapToLong(this::getCpuUsage).toArray();
+		final TimeSeriesFile file;
+		try {
+			file = getHistory(servers);
+			file.append(now.toEpochSecond(), usages);
+		} catch (final IOException e) {
+			throw new UncheckedIOException("Unable to store history", e);
+		}
+		final TimeSeriesBuffer buffer = recentValues.get();
+		buffer.append(now.toEpochSecond(), usages);
 
 		// remove old values
-		values.keySet().removeIf(now.minusMinutes(getHistoryLength())::isAfter);
+		file.removeBefore(from);
+		buffer.removeBefore(from);
+
+		// long histories are downsampled
+		final TimeSeries values
+				= buffer.size() > MAX_POINTS ? file.query(from, now.toEpochSecond(), MAX_POINTS) : buffer;
 
 		// graphen berechnen
 		final long secondsOffset = now.withHour(0).withMinute(0).withSecond(0).toEpochSecond();
+		final long[] x = values.getTimestamps();
+		for (int row = 0; row < x.length; row += 1) {
+			x[row] -= secondsOffset;
+		}
 		final Map<String, Series> series = new TreeMap<>(String.CASE_INSENSITIVE_ORDER.reversed());
-		for (final Server server : getServers()) {
-			final List<Point> points = values.entrySet()
-					.stream()
-					.map(e -> new Point(e.getKey().toEpochSecond() - secondsOffset,
-							e.getValue().get(server).longValue()))
-					.collect(Collectors.toList());
-			series.put(server.hostname, new Series(server.getDisplayName(), points));
+		for (int column = 0; column < servers.length; column += 1) {
+			series.put(servers[column].hostname,
+					new Series(servers[column].getDisplayName(), x, values.getValues(column)));
 		}
 
 		return Optional.of(new ComplexGraphEvent(new ArrayList<>(series.values())));
 	}
 
+	/**
+	 * Get the stored history of this event source. The history is reset if the
+	 * list of servers changes. When the history is opened, its recent rows are
+	 * loaded into memory.
+	 *
+	 * @param servers the servers to store the CPU usage of
+	 * @return the history
+	 * @throws IOException if the history cannot be opened
+	 */
+	private TimeSeriesFile getHistory(final Server[] servers) throws IOException {
+		final StringBuilder layout = new StringBuilder();
+		for (final Server server : servers) {
+			layout.append(server.hostname).append(':').append(server.port).append('\n');
+		}
+		final TimeSeriesFile file = timeSeriesStore.open(getEventId(),
+				Hashing.sha256().hashString(layout, StandardCharsets.UTF_8).asLong(),
+				servers.length);
+		if (!history.isPresent() || history.get() != file) {
+			final long now = ZonedDateTime.now(ZoneOffset.UTC).toEpochSecond();
+			final long from = now - Duration.ofMinutes(getHistoryLength()).getSeconds();
+			history = Optional.of(file);
+			recentValues = Optional.of(TimeSeriesBuffer.copyOf(file.query(from, now, Integer.MAX_VALUE)));
+		}
+		return file;
+	}
+
 	private int getCpuUsage(final Server server) {
 		final int usage;
 		try (StartedAction action = getStatisticsCollector().startAction("Retreive CPU usage", server.hostname)) {
@@ -90,7 +151,7 @@ public class CpuUsageGraphEventSource extends ScheduledEventSource<ComplexGraphE
 
 	private int getUnixCpuUsage(final Server server) {
 		final double usage = SshConnection.getConnection(server.hostname, server.port, server.username, server.password)
-				.getCpuUsage();
+				.getCpuUsage(getRemainingIterationTime());
 		if (Double.isNaN(usage)) {
 			return 0;
 		}
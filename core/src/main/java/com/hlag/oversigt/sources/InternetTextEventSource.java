@@ -61,7 +61,7 @@ public class InternetTextEventSource extends AbstractDownloadEventSource<TextEve
 
 		final String body;
 		try {
-			body = downloadString(createConfiguredConnection());
+			body = downloadConfiguredString();
 			logDebug(getLogger(), "Downloaded body");
 			logTrace(getLogger(), "Body content %s", body);
 		} catch (final IOException e) {
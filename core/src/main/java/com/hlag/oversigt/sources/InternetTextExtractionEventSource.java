@@ -59,7 +59,7 @@ public class InternetTextExtractionEventSource extends AbstractDownloadEventSour
 
 	private String downloadText() {
 		try {
-			final String body = downloadString(createConfiguredConnection());
+			final String body = downloadConfiguredString();
 			logDebug(getLogger(), "Downloaded body");
 			logTrace(getLogger(), "Body content %s", body);
 			return body;
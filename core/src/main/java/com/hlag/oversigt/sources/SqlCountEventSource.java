@@ -67,14 +67,14 @@ public class SqlCountEventSource extends AbstractJdbcEventSource<ComplexGraphEve
 
 		if (yesterdayPoints.isEmpty() || loadDateYesterdayPoints.get().isBefore(yesterday)) {
 			yesterdayPoints.clear();
-			yesterdayPoints.addAll(getRpMessagesPointsByDate(connection, yesterday));
+			readRpMessagesPointsByDate(connection, yesterday, yesterdayPoints);
 			loadDateYesterdayPoints = Optional.of(yesterday);
 		}
 
 		if (!loadDateTimeTodayPoints.isPresent()
 				|| loadDateTimeTodayPoints.get().plusMinutes(15).isBefore(ZonedDateTime.now(ZoneId.of("UTC")))) {
 			todayPoints.clear();
-			todayPoints.addAll(getRpMessagesPointsByDate(connection, today));
+			readRpMessagesPointsByDate(connection, today, todayPoints);
 			loadDateTimeTodayPoints = Optional.of(ZonedDateTime.now(ZoneId.of("UTC")));
 		}
 
@@ -95,12 +95,13 @@ public class SqlCountEventSource extends AbstractJdbcEventSource<ComplexGraphEve
 		return Optional.of(new ComplexGraphEvent(allSeries, sumTodayString));
 	}
 
-	private Collection<Point> getRpMessagesPointsByDate(final Connection con, final LocalDate date)
-			throws SQLException {
-		return readFromDatabase(con, rs -> {
+	private void readRpMessagesPointsByDate(final Connection con,
+			final LocalDate date,
+			final Collection<Point> points) throws SQLException {
+		streamFromDatabase(con, rs -> {
 			final int hour = rs.getInt(1);
-			final Long msgs = rs.getLong(2);
-			return new ComplexGraphEvent.Point(hour * 60 * 60L, msgs);
+			final long msgs = rs.getLong(2);
+			points.add(new ComplexGraphEvent.Point(hour * 60 * 60L, msgs));
 		}, sqlStatement.replace(":DATE:", "?"), Date.valueOf(date));
 	}
 }
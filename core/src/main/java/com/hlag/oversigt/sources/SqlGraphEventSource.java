@@ -2,34 +2,49 @@ package com.hlag.oversigt.sources;
 
 import static java.util.stream.Collectors.toList;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.IllegalFormatException;
 import java.util.List;
 import java.util.Optional;
-import java.util.OptionalLong;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
 import com.hlag.oversigt.core.eventsource.EventSource;
 import com.hlag.oversigt.core.eventsource.Property;
 import com.hlag.oversigt.sources.data.JsonHint;
 import com.hlag.oversigt.sources.data.JsonHint.ArrayStyle;
 import com.hlag.oversigt.sources.event.ComplexGraphEvent;
-import com.hlag.oversigt.sources.event.ComplexGraphEvent.Point;
 import com.hlag.oversigt.sources.event.ComplexGraphEvent.Series;
+import com.hlag.oversigt.storage.timeseries.TimeSeries;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesBuffer;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesFile;
+import com.hlag.oversigt.storage.timeseries.TimeSeriesStore;
 import com.hlag.oversigt.util.Utils;
 import com.hlag.oversigt.util.function.ThrowingIntFunction;
 
 @EventSource(displayName = "SQL Graph", view = "Rickshawgraph")
 public class SqlGraphEventSource extends AbstractJdbcEventSource<ComplexGraphEvent> {
+	/**
+	 * Maximum number of points per series. Longer histories are downsampled.
+	 */
+	private static final int MAX_POINTS = 300;
+
+	@Inject
+	private TimeSeriesStore timeSeriesStore;
+
 	private int historyLength = 10;
 
 	private String labelFormat = "";
@@ -40,7 +55,14 @@ public class SqlGraphEventSource extends AbstractJdbcEventSource<ComplexGraphEve
 
 	private int columnCount = 0;
 
-	private final SortedMap<ZonedDateTime, List<Long>> values = new TreeMap<>();
+	private Optional<TimeSeriesFile> history = Optional.empty();
+
+	/**
+	 * The rows of {@link #history} within the history length
+	 */
+	private Optional<TimeSeriesBuffer> recentValues = Optional.empty();
+
+	private long[] latestValues = new long[0];
 
 	public SqlGraphEventSource() {
 		// no fields to be initialized
@@ -49,46 +71,58 @@ public class SqlGraphEventSource extends AbstractJdbcEventSource<ComplexGraphEve
 	@Override
 	protected Optional<ComplexGraphEvent> produceEventFromData() {
 		final ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+		final long from = now.minusMinutes(getHistoryLength()).toEpochSecond();
 
-		// Remove too old history
-		values.keySet().removeIf(now.minusMinutes(getHistoryLength())::isAfter);
-
-		// Calculate graph values
-		final long secondsOffset = now.withHour(0).withMinute(0).withSecond(0).toEpochSecond();
 		final List<Series> series = new ArrayList<>();
-		IntStream.range(0, columnCount).forEach(column -> {
-			final List<Point> points = new ArrayList<>();
-
-			if (!values.isEmpty()) {
-				// Get maximum value of each series to normalize
-				final OptionalLong optionalMaxValue = values.values().stream().mapToLong(v -> v.get(column)).max();
-				final long maxValue = optionalMaxValue.getAsLong() == 0 ? 1 : optionalMaxValue.getAsLong();
-
-				points.addAll(values.entrySet()
-						.stream()
-						.map(e -> new Point(e.getKey().toEpochSecond() - secondsOffset,
-								100 * e.getValue().get(column) / maxValue))
-						.collect(Collectors.toList()));
+		if (history.isPresent() && recentValues.isPresent()) {
+			// Remove too old history
+			history.get().removeBefore(from);
+			recentValues.get().removeBefore(from);
+
+			// Long histories are downsampled
+			final TimeSeries values = recentValues.get().size() > MAX_POINTS
+					? history.get().query(from, now.toEpochSecond(), MAX_POINTS)
+					: recentValues.get();
+
+			// Calculate graph values
+			final long secondsOffset = now.withHour(0).withMinute(0).withSecond(0).toEpochSecond();
+			final long[] x = values.getTimestamps();
+			for (int row = 0; row < x.length; row += 1) {
+				x[row] -= secondsOffset;
 			}
+			for (int column = 0; column < Math.min(columnCount, values.getColumns()); column += 1) {
+				// Get maximum value of each series to normalize
+				final long maxValue = values.getMaximum(column) == 0 ? 1 : values.getMaximum(column);
 
-			series.add(new Series(titles.length > column ? titles[column] : "", points));
-		});
+				final long[] y = values.getValues(column);
+				for (int row = 0; row < y.length; row += 1) {
+					y[row] = 100 * y[row] / maxValue;
+				}
+				series.add(new Series(titles.length > column ? titles[column] : "", x, y));
+			}
+		}
 
 		Collections.reverse(series);
 
-		final List<Long> displayValues = new ArrayList<>();
-		if (!values.isEmpty()) {
-			displayValues.addAll(values.get(values.lastKey()));
-		}
 		String text = "";
 		try {
-			text = String.format(labelFormat, displayValues.toArray());
+			text = String.format(labelFormat, Arrays.stream(latestValues).boxed().toArray());
 		} catch (final IllegalFormatException e) {
 			getLogger().warn("Unable to fill format: " + getLabelFormat(), e);
 		}
 		return Optional.of(new ComplexGraphEvent(series, text));
 	}
 
+	/**
+	 * Only the first row of the result is used.
+	 *
+	 * @return always one
+	 */
+	@Override
+	protected int getMaxRows() {
+		return 1;
+	}
+
 	@Override
 	protected void gatherDatabaseInfo(final Connection connection) throws SQLException {
 		final List<List<Long>> data = readFromDatabase(connection,
@@ -98,8 +132,15 @@ public class SqlGraphEventSource extends AbstractJdbcEventSource<ComplexGraphEve
 				getSqlStatement());
 
 		if (!data.isEmpty()) {
-			values.put(ZonedDateTime.now(ZoneOffset.UTC), data.get(0));
 			columnCount = data.get(0).size();
+			latestValues = data.get(0).stream().mapToLong(Long::longValue).toArray();
+			final long timestamp = ZonedDateTime.now(ZoneOffset.UTC).toEpochSecond();
+			try {
+				getHistory(columnCount).append(timestamp, latestValues);
+			} catch (final IOException e) {
+				throw new UncheckedIOException("Unable to store history", e);
+			}
+			recentValues.ifPresent(buffer -> buffer.append(timestamp, latestValues));
 			Utils.logInfo(getSpecialLogger(),
 					"%s",
 					(Supplier<String>) () -> IntStream.range(0, columnCount)
@@ -111,6 +152,27 @@ public class SqlGraphEventSource extends AbstractJdbcEventSource<ComplexGraphEve
 		}
 	}
 
+	/**
+	 * Get the stored history of this event source. The history is reset if the
+	 * SQL statement or the number of columns changes. When the history is opened,
+	 * its recent rows are loaded into memory.
+	 *
+	 * @param columns the number of columns returned by the SQL statement
+	 * @return the history
+	 * @throws IOException if the history cannot be opened
+	 */
+	private TimeSeriesFile getHistory(final int columns) throws IOException {
+		final long layout = Hashing.sha256().hashString(getSqlStatement(), StandardCharsets.UTF_8).asLong();
+		final TimeSeriesFile file = timeSeriesStore.open(getEventId(), layout, columns);
+		if (!history.isPresent() || history.get() != file) {
+			final long now = ZonedDateTime.now(ZoneOffset.UTC).toEpochSecond();
+			final long from = now - Duration.ofMinutes(getHistoryLength()).getSeconds();
+			history = Optional.of(file);
+			recentValues = Optional.of(TimeSeriesBuffer.copyOf(file.query(from, now, Integer.MAX_VALUE)));
+		}
+		return file;
+	}
+
 	@Property(name = "History length", description = "in minutes")
 	public int getHistoryLength() {
 		return historyLength;
@@ -3,7 +3,9 @@ package com.hlag.oversigt.sources;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -82,6 +84,11 @@ public class WorldMapEventSource extends AbstractCachingJdbcEventSource<Point, M
 		this.typeMappings = typeMappings;
 	}
 
+	@Override
+	protected List<?> getRowMappingConfiguration() {
+		return Arrays.stream(getTypeMappings()).map(TypeMapping::getRowMappingConfiguration).collect(Collectors.toList());
+	}
+
 	@Override
 	protected Optional<MapEvent> produceEventFromData() {
 		return Optional.of(new MapEvent(stream().collect(Collectors.toList())));
@@ -116,5 +123,15 @@ public class WorldMapEventSource extends AbstractCachingJdbcEventSource<Point, M
 			this.stroke = stroke;
 			this.size = size;
 		}
+
+		private List<Object> getRowMappingConfiguration() {
+			return Arrays.asList(field,
+					value,
+					fill.getHexColor(),
+					fill.getAlpha(),
+					stroke.getHexColor(),
+					stroke.getAlpha(),
+					size);
+		}
 	}
 }
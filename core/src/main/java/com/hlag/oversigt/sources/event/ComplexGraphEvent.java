@@ -1,9 +1,18 @@
 package com.hlag.oversigt.sources.event;
 
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.hlag.oversigt.core.event.DeltaEncoded;
 import com.hlag.oversigt.core.event.OversigtEvent;
 
+@DeltaEncoded
 public class ComplexGraphEvent extends OversigtEvent {
 	private List<Series> series;
 
@@ -67,6 +76,18 @@ public class ComplexGraphEvent extends OversigtEvent {
 			this.data = data;
 		}
 
+		/**
+		 * Create a series from primitive arrays. The arrays are used as they are,
+		 * so they must not be modified afterwards.
+		 *
+		 * @param name the name of the series
+		 * @param x    the x values of the points
+		 * @param y    the y values of the points
+		 */
+		public Series(final String name, final long[] x, final long[] y) {
+			this(name, new Points(x, y));
+		}
+
 		public String getName() {
 			return name;
 		}
@@ -75,4 +96,55 @@ public class ComplexGraphEvent extends OversigtEvent {
 			return data;
 		}
 	}
+
+	/**
+	 * Points backed by primitive arrays. When serialized, the values are written
+	 * directly from the arrays without creating {@link Point} objects.
+	 */
+	@JsonSerialize(using = PointsSerializer.class)
+	private static final class Points extends AbstractList<Point> implements RandomAccess {
+		private final long[] x;
+
+		private final long[] y;
+
+		private Points(final long[] x, final long[] y) {
+			if (x.length != y.length) {
+				throw new IllegalArgumentException("Got " + x.length + " x values but " + y.length + " y values.");
+			}
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public Point get(final int index) {
+			return new Point(x[index], y[index]);
+		}
+
+		@Override
+		public int size() {
+			return x.length;
+		}
+	}
+
+	private static final class PointsSerializer extends StdSerializer<Points> {
+		private static final long serialVersionUID = 1L;
+
+		@SuppressWarnings("unused")
+		private PointsSerializer() {
+			super(Points.class);
+		}
+
+		@Override
+		public void serialize(final Points points, final JsonGenerator generator, final SerializerProvider provider)
+				throws IOException {
+			generator.writeStartArray();
+			for (int index = 0; index < points.x.length; index += 1) {
+				generator.writeStartObject();
+				generator.writeNumberField("x", points.x[index]);
+				generator.writeNumberField("y", points.y[index]);
+				generator.writeEndObject();
+			}
+			generator.writeEndArray();
+		}
+	}
 }
@@ -5,11 +5,13 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
+import com.hlag.oversigt.core.event.DeltaEncoded;
 import com.hlag.oversigt.core.event.OversigtEvent;
 import com.hlag.oversigt.properties.Color;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 
+@DeltaEncoded
 public class MapEvent extends OversigtEvent {
 	private final List<Point> points = new ArrayList<>();
 
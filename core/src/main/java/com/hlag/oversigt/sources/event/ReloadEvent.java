@@ -26,5 +26,6 @@ public class ReloadEvent extends OversigtEvent {
 
 	public void setDashboards(final Collection<String> dashboards) {
 		this.dashboards = dashboards;
+		invalidateFrame();
 	}
 }
@@ -6,10 +6,12 @@ import java.util.Map.Entry;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import com.hlag.oversigt.core.event.DeltaEncoded;
 import com.hlag.oversigt.sources.event.TwoColumnListEvent.ListEventItem;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
 
+@DeltaEncoded
 public class TwoColumnListEvent<T> extends ListEvent<ListEventItem<T>> {
 	public TwoColumnListEvent(final List<? extends ListEventItem<T>> items) {
 		super(items);
@@ -0,0 +1,40 @@
+package com.hlag.oversigt.storage.timeseries;
+
+/**
+ * Read access to rows consisting of a timestamp and a fixed number of
+ * <code>long</code> values, ordered by their timestamps
+ */
+public interface TimeSeries {
+	int size();
+
+	boolean isEmpty();
+
+	int getColumns();
+
+	long getTimestamp(int row);
+
+	long getValue(int column, int row);
+
+	/**
+	 * Get the largest value of a column
+	 *
+	 * @param column the column to check
+	 * @return the largest value or zero if there are no rows
+	 */
+	long getMaximum(int column);
+
+	/**
+	 * Copy the timestamps of all rows into a new array
+	 *
+	 * @return the timestamps from the oldest to the newest row
+	 */
+	long[] getTimestamps();
+
+	/**
+	 * Copy the values of a column into a new array
+	 *
+	 * @param column the column to copy
+	 * @return the values from the oldest to the newest row
+	 */
+	long[] getValues(int column);
+}
@@ -0,0 +1,232 @@
+package com.hlag.oversigt.storage.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * In-memory ring buffer of rows consisting of a timestamp and a fixed number of
+ * <code>long</code> values. All data is kept in primitive arrays. Rows are
+ * appended at the end and removed from the beginning. If the buffer is full,
+ * its capacity is doubled.
+ *
+ * <p>
+ * The maximum of every column is tracked incrementally: for every column the
+ * buffer keeps the rows that may still become the maximum once older rows have
+ * been removed, i.e. a monotonic queue. So appending, removing and getting the
+ * maximum take constant amortized time.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread safe.
+ * </p>
+ */
+public final class TimeSeriesBuffer implements TimeSeries {
+	/**
+	 * Create a buffer containing the rows of another time series, e.g. to keep
+	 * the recent rows of a {@link TimeSeriesFile} in memory
+	 *
+	 * @param series the rows to copy
+	 * @return the new buffer
+	 */
+	public static TimeSeriesBuffer copyOf(final TimeSeries series) {
+		final TimeSeriesBuffer buffer = new TimeSeriesBuffer(series.getColumns(), Math.max(16, series.size()));
+		final long[] row = new long[series.getColumns()];
+		for (int index = 0; index < series.size(); index += 1) {
+			for (int column = 0; column < row.length; column += 1) {
+				row[column] = series.getValue(column, index);
+			}
+			buffer.append(series.getTimestamp(index), row);
+		}
+		return buffer;
+	}
+
+	private final int columns;
+
+	private int capacity;
+
+	private long[] timestamps;
+
+	private long[][] values;
+
+	/**
+	 * Sequence number of the oldest row
+	 */
+	private long first = 0;
+
+	/**
+	 * Sequence number of the next row to be appended
+	 */
+	private long next = 0;
+
+	/**
+	 * Per column the sequence numbers of the rows that are candidates for the
+	 * maximum. Their values decrease from head to tail, so the head is the
+	 * current maximum.
+	 */
+	private long[][] maxima;
+
+	private final int[] maximaHeads;
+
+	private final int[] maximaSizes;
+
+	/**
+	 * Create a new buffer
+	 *
+	 * @param columns         the number of values per row
+	 * @param initialCapacity the number of rows the buffer can hold before it has
+	 *                        to grow
+	 */
+	public TimeSeriesBuffer(final int columns, final int initialCapacity) {
+		if (columns < 1) {
+			throw new IllegalArgumentException("A time series needs at least one column: " + columns);
+		}
+		this.columns = columns;
+		capacity = Math.max(1, initialCapacity);
+		timestamps = new long[capacity];
+		values = new long[columns][capacity];
+		maxima = new long[columns][capacity];
+		maximaHeads = new int[columns];
+		maximaSizes = new int[columns];
+	}
+
+	@Override
+	public int getColumns() {
+		return columns;
+	}
+
+	@Override
+	public int size() {
+		return (int) (next - first);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return next == first;
+	}
+
+	/**
+	 * Append a row. Timestamps are expected to be ascending.
+	 *
+	 * @param timestamp the timestamp of the row, e.g. in epoch seconds
+	 * @param rowValues the values of the row
+	 */
+	public void append(final long timestamp, final long... rowValues) {
+		if (rowValues.length != columns) {
+			throw new IllegalArgumentException("Expected " + columns + " values but got " + rowValues.length);
+		}
+		if (size() == capacity) {
+			grow();
+		}
+		final int index = index(next);
+		timestamps[index] = timestamp;
+		for (int column = 0; column < columns; column += 1) {
+			final long value = rowValues[column];
+			values[column][index] = value;
+
+			// rows with smaller values can never become the maximum again
+			while (maximaSizes[column] > 0 && values[column][index(getLastCandidate(column))] <= value) {
+				maximaSizes[column] -= 1;
+			}
+			maxima[column][(maximaHeads[column] + maximaSizes[column]) % capacity] = next;
+			maximaSizes[column] += 1;
+		}
+		next += 1;
+	}
+
+	private long getLastCandidate(final int column) {
+		return maxima[column][(maximaHeads[column] + maximaSizes[column] - 1) % capacity];
+	}
+
+	/**
+	 * Remove all rows older than the given timestamp
+	 *
+	 * @param timestamp the oldest timestamp to keep
+	 */
+	public void removeBefore(final long timestamp) {
+		while (!isEmpty() && timestamps[index(first)] < timestamp) {
+			for (int column = 0; column < columns; column += 1) {
+				if (maximaSizes[column] > 0 && maxima[column][maximaHeads[column]] == first) {
+					maximaHeads[column] = (maximaHeads[column] + 1) % capacity;
+					maximaSizes[column] -= 1;
+				}
+			}
+			first += 1;
+		}
+	}
+
+	/**
+	 * Remove all rows
+	 */
+	public void clear() {
+		first = next;
+		Arrays.fill(maximaSizes, 0);
+	}
+
+	@Override
+	public long getTimestamp(final int row) {
+		return timestamps[index(sequence(row))];
+	}
+
+	@Override
+	public long getValue(final int column, final int row) {
+		return values[column][index(sequence(row))];
+	}
+
+	@Override
+	public long getMaximum(final int column) {
+		if (maximaSizes[column] == 0) {
+			return 0;
+		}
+		return values[column][index(maxima[column][maximaHeads[column]])];
+	}
+
+	@Override
+	public long[] getTimestamps() {
+		return copy(timestamps);
+	}
+
+	@Override
+	public long[] getValues(final int column) {
+		return copy(values[column]);
+	}
+
+	private long[] copy(final long[] ring) {
+		final long[] copy = new long[size()];
+		final int start = index(first);
+		final int firstPart = Math.min(copy.length, capacity - start);
+		System.arraycopy(ring, start, copy, 0, firstPart);
+		System.arraycopy(ring, 0, copy, firstPart, copy.length - firstPart);
+		return copy;
+	}
+
+	private long sequence(final int row) {
+		if (row < 0 || row >= size()) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + size());
+		}
+		return first + row;
+	}
+
+	private int index(final long sequence) {
+		return (int) (sequence % capacity);
+	}
+
+	private void grow() {
+		final int newCapacity = capacity * 2;
+		final long[] newTimestamps = copy(timestamps);
+		final long[][] newValues = new long[columns][];
+		final long[][] newMaxima = new long[columns][newCapacity];
+		for (int column = 0; column < columns; column += 1) {
+			newValues[column] = Arrays.copyOf(copy(values[column]), newCapacity);
+			for (int candidate = 0; candidate < maximaSizes[column]; candidate += 1) {
+				newMaxima[column][candidate]
+						= maxima[column][(maximaHeads[column] + candidate) % capacity] - first;
+			}
+			maximaHeads[column] = 0;
+		}
+		timestamps = Arrays.copyOf(newTimestamps, newCapacity);
+		values = newValues;
+		maxima = newMaxima;
+		next -= first;
+		first = 0;
+		capacity = newCapacity;
+	}
+}
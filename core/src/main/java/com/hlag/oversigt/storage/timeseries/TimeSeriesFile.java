@@ -0,0 +1,404 @@
+package com.hlag.oversigt.storage.timeseries;
+
+import static com.hlag.oversigt.util.Utils.logWarn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memory mapped file storing rows of a timestamp and a fixed number of
+ * <code>long</code> values. The rows are grouped into blocks. Within a block
+ * every column is stored on its own and every value is stored as the
+ * difference to the previous value of the same column using a variable length
+ * encoding. So slowly changing values and regular timestamps need one or two
+ * bytes per value.
+ *
+ * <p>
+ * The last block of the file is kept in memory as primitive arrays and is
+ * written again whenever a row is appended. Once it is full it is sealed and a
+ * new block is started. Sealed blocks are never changed, they are only removed
+ * when all their rows are older than the retention requested by
+ * {@link #removeBefore(long)}.
+ * </p>
+ *
+ * <p>
+ * The file starts with a header containing the number of columns and a layout
+ * identifier. If an existing file does not match the requested layout, it is
+ * reset.
+ * </p>
+ */
+public final class TimeSeriesFile implements Closeable {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TimeSeriesFile.class);
+
+	private static final int MAGIC = 0x4F565453;
+
+	private static final int VERSION = 1;
+
+	/**
+	 * magic, version, columns, rows per block, layout
+	 */
+	private static final int FILE_HEADER_BYTES = 4 + 4 + 4 + 4 + 8;
+
+	/**
+	 * rows, payload length, first timestamp, last timestamp
+	 */
+	private static final int BLOCK_HEADER_BYTES = 4 + 4 + 8 + 8;
+
+	private static final int MAX_VAR_LONG_BYTES = 10;
+
+	static final int DEFAULT_ROWS_PER_BLOCK = 256;
+
+	private static final int INITIAL_FILE_SIZE = 64 * 1024;
+
+	private final Path path;
+
+	private final long layout;
+
+	private final int columns;
+
+	private final int rowsPerBlock;
+
+	private final FileChannel channel;
+
+	private MappedByteBuffer buffer;
+
+	/**
+	 * Sealed blocks in the order of the file
+	 */
+	private final List<Block> blocks = new ArrayList<>();
+
+	/**
+	 * Position of the block currently being filled
+	 */
+	private int openBlockPosition = FILE_HEADER_BYTES;
+
+	/**
+	 * The rows of the block currently being filled. Index 0 contains the
+	 * timestamps, the other indexes contain the value columns.
+	 */
+	private final long[][] openBlock;
+
+	private int openBlockRows = 0;
+
+	private final ByteBuffer encodeBuffer;
+
+	/**
+	 * Open or create a time series file
+	 *
+	 * @param path    the file to use
+	 * @param layout  identifier of the meaning of the columns. If the file has
+	 *                been created with another layout, its content is discarded.
+	 * @param columns the number of values per row
+	 * @throws IOException if the file cannot be opened
+	 */
+	public TimeSeriesFile(final Path path, final long layout, final int columns) throws IOException {
+		this(path, layout, columns, DEFAULT_ROWS_PER_BLOCK);
+	}
+
+	TimeSeriesFile(final Path path, final long layout, final int columns, final int rowsPerBlock)
+			throws IOException {
+		if (columns < 1) {
+			throw new IllegalArgumentException("A time series needs at least one column: " + columns);
+		}
+		this.path = path;
+		this.layout = layout;
+		this.columns = columns;
+		this.rowsPerBlock = rowsPerBlock;
+		openBlock = new long[columns + 1][rowsPerBlock];
+		encodeBuffer = ByteBuffer.allocate((columns + 1) * rowsPerBlock * MAX_VAR_LONG_BYTES);
+
+		Files.createDirectories(path.toAbsolutePath().getParent());
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_FILE_SIZE));
+		if (!readHeader()) {
+			writeHeader();
+		} else {
+			readBlocks();
+		}
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	public long getLayout() {
+		return layout;
+	}
+
+	public int getColumns() {
+		return columns;
+	}
+
+	private boolean readHeader() {
+		return buffer.getInt(0) == MAGIC
+				&& buffer.getInt(4) == VERSION
+				&& buffer.getInt(8) == columns
+				&& buffer.getInt(12) == rowsPerBlock
+				&& buffer.getLong(16) == layout;
+	}
+
+	private void writeHeader() {
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putInt(8, columns);
+		buffer.putInt(12, rowsPerBlock);
+		buffer.putLong(16, layout);
+		clearBlockHeader(FILE_HEADER_BYTES);
+		blocks.clear();
+		openBlockPosition = FILE_HEADER_BYTES;
+		openBlockRows = 0;
+	}
+
+	private void readBlocks() {
+		int position = FILE_HEADER_BYTES;
+		while (position + BLOCK_HEADER_BYTES <= buffer.capacity()) {
+			final int rows = buffer.getInt(position);
+			final int length = buffer.getInt(position + 4);
+			if (rows <= 0
+					|| rows > rowsPerBlock
+					|| length <= 0
+					|| position + BLOCK_HEADER_BYTES + length > buffer.capacity()) {
+				break;
+			}
+			final Block block = readBlockHeader(position);
+			if (rows < rowsPerBlock) {
+				// only the last block may be incomplete
+				try {
+					decode(block, openBlock);
+					openBlockRows = rows;
+				} catch (final RuntimeException e) {
+					logWarn(LOGGER, "Discarding damaged block of time series %s: %s", path, e.toString());
+					clearBlockHeader(position);
+				}
+				openBlockPosition = position;
+				return;
+			}
+			blocks.add(block);
+			position += BLOCK_HEADER_BYTES + length;
+		}
+		openBlockPosition = position;
+		clearBlockHeader(position);
+	}
+
+	private void clearBlockHeader(final int position) {
+		if (position + BLOCK_HEADER_BYTES <= buffer.capacity()) {
+			buffer.putInt(position, 0);
+			buffer.putInt(position + 4, 0);
+		}
+	}
+
+	/**
+	 * Append a row. Timestamps are expected to be ascending.
+	 *
+	 * @param timestamp the timestamp of the row, e.g. in epoch seconds
+	 * @param values    the values of the row
+	 * @throws IOException if the file cannot be enlarged
+	 */
+	public synchronized void append(final long timestamp, final long... values) throws IOException {
+		if (values.length != columns) {
+			throw new IllegalArgumentException("Expected " + columns + " values but got " + values.length);
+		}
+		if (openBlockRows == rowsPerBlock) {
+			// seal the full block and start a new one
+			final Block block = readBlockHeader(openBlockPosition);
+			blocks.add(block);
+			openBlockPosition = block.position + BLOCK_HEADER_BYTES + block.length;
+			openBlockRows = 0;
+		}
+		openBlock[0][openBlockRows] = timestamp;
+		for (int column = 0; column < columns; column += 1) {
+			openBlock[column + 1][openBlockRows] = values[column];
+		}
+		openBlockRows += 1;
+		writeOpenBlock();
+	}
+
+	private void writeOpenBlock() throws IOException {
+		encodeBuffer.clear();
+		for (final long[] column : openBlock) {
+			long previous = 0;
+			for (int row = 0; row < openBlockRows; row += 1) {
+				putVarLong(encodeBuffer, column[row] - previous);
+				previous = column[row];
+			}
+		}
+		encodeBuffer.flip();
+		final int length = encodeBuffer.remaining();
+		ensureCapacity(openBlockPosition + BLOCK_HEADER_BYTES + length + BLOCK_HEADER_BYTES);
+
+		final ByteBuffer target = buffer.duplicate();
+		target.position(openBlockPosition + BLOCK_HEADER_BYTES);
+		target.put(encodeBuffer);
+		// terminate the list of blocks in case the file contains old data
+		clearBlockHeader(openBlockPosition + BLOCK_HEADER_BYTES + length);
+		buffer.putLong(openBlockPosition + 8, openBlock[0][0]);
+		buffer.putLong(openBlockPosition + 16, openBlock[0][openBlockRows - 1]);
+		buffer.putInt(openBlockPosition + 4, length);
+		buffer.putInt(openBlockPosition, openBlockRows);
+	}
+
+	private void ensureCapacity(final int size) throws IOException {
+		if (size > buffer.capacity()) {
+			buffer.force();
+			buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(size, 2L * buffer.capacity()));
+		}
+	}
+
+	private Block readBlockHeader(final int position) {
+		return new Block(position,
+				buffer.getInt(position),
+				buffer.getInt(position + 4),
+				buffer.getLong(position + 8),
+				buffer.getLong(position + 16));
+	}
+
+	/**
+	 * Read the rows within a time window. If the window contains more rows than
+	 * requested, the window is split into equally long buckets and the rows of
+	 * each bucket are combined into one row containing the last timestamp and the
+	 * average values of the bucket.
+	 *
+	 * @param from      the first timestamp to include
+	 * @param to        the last timestamp to include
+	 * @param maxPoints the maximum number of rows to return
+	 * @return the rows within the window
+	 */
+	public synchronized TimeSeriesWindow query(final long from, final long to, final int maxPoints) {
+		final TimeSeriesWindow.Builder window = new TimeSeriesWindow.Builder(columns, from, to, maxPoints);
+		final long[][] decoded = new long[columns + 1][rowsPerBlock];
+		for (final Block block : blocks) {
+			if (block.lastTimestamp >= from && block.firstTimestamp <= to) {
+				decode(block, decoded);
+				window.addRows(decoded, block.rows);
+			}
+		}
+		window.addRows(openBlock, openBlockRows);
+		return window.build();
+	}
+
+	private void decode(final Block block, final long[][] target) {
+		final ByteBuffer source = buffer.duplicate();
+		source.position(block.position + BLOCK_HEADER_BYTES);
+		source.limit(block.position + BLOCK_HEADER_BYTES + block.length);
+		for (final long[] column : target) {
+			long previous = 0;
+			for (int row = 0; row < block.rows; row += 1) {
+				previous += getVarLong(source);
+				column[row] = previous;
+			}
+		}
+	}
+
+	/**
+	 * Remove all sealed blocks only containing rows older than the given
+	 * timestamp. The remaining blocks are moved to the beginning of the file.
+	 *
+	 * @param timestamp the oldest timestamp to keep
+	 */
+	public synchronized void removeBefore(final long timestamp) {
+		int removable = 0;
+		while (removable < blocks.size() && blocks.get(removable).lastTimestamp < timestamp) {
+			removable += 1;
+		}
+		if (removable == 0) {
+			return;
+		}
+
+		final int start = removable < blocks.size() ? blocks.get(removable).position : openBlockPosition;
+		final int shift = start - FILE_HEADER_BYTES;
+		final int end = openBlockPosition + BLOCK_HEADER_BYTES + buffer.getInt(openBlockPosition + 4);
+		final ByteBuffer source = buffer.duplicate();
+		source.position(start);
+		source.limit(end);
+		final ByteBuffer target = buffer.duplicate();
+		target.position(FILE_HEADER_BYTES);
+		// copying to a lower position is safe for overlapping regions
+		target.put(source);
+		clearBlockHeader(end - shift);
+
+		final List<Block> remaining = new ArrayList<>(blocks.subList(removable, blocks.size()));
+		blocks.clear();
+		remaining.forEach(block -> blocks.add(new Block(block.position - shift,
+				block.rows,
+				block.length,
+				block.firstTimestamp,
+				block.lastTimestamp)));
+		openBlockPosition -= shift;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TimeSeriesFile [path=%s, columns=%s, blocks=%s, openBlockRows=%s]",
+				path,
+				columns,
+				blocks.size(),
+				openBlockRows);
+	}
+
+	private static void putVarLong(final ByteBuffer target, final long value) {
+		// zig zag encoding, so small negative values need few bytes as well
+		long remaining = value << 1 ^ value >> 63;
+		while ((remaining & ~0x7FL) != 0) {
+			target.put((byte) (remaining & 0x7F | 0x80));
+			remaining >>>= 7;
+		}
+		target.put((byte) remaining);
+	}
+
+	private static long getVarLong(final ByteBuffer source) {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte current = source.get();
+			result |= (long) (current & 0x7F) << shift;
+			if ((current & 0x80) == 0) {
+				return result >>> 1 ^ -(result & 1);
+			}
+		}
+		throw new IllegalStateException("Invalid variable length number.");
+	}
+
+	/**
+	 * Position and summary of a block within the file
+	 */
+	private static final class Block {
+		private final int position;
+
+		private final int rows;
+
+		private final int length;
+
+		private final long firstTimestamp;
+
+		private final long lastTimestamp;
+
+		private Block(final int position,
+				final int rows,
+				final int length,
+				final long firstTimestamp,
+				final long lastTimestamp) {
+			this.position = position;
+			this.rows = rows;
+			this.length = length;
+			this.firstTimestamp = firstTimestamp;
+			this.lastTimestamp = lastTimestamp;
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.hlag.oversigt.storage.timeseries;
+
+import static com.hlag.oversigt.util.Utils.logInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Hands out the {@link TimeSeriesFile}s of the event sources. Each time series
+ * is stored in its own file within the configured folder, so the history of a
+ * graph survives restarts of the event source and of the server.
+ */
+@Singleton
+public class TimeSeriesStore {
+	private static final Logger LOGGER = LoggerFactory.getLogger(TimeSeriesStore.class);
+
+	private static final String FILE_EXTENSION = ".ts";
+
+	private final Path folder;
+
+	private final Map<String, TimeSeriesFile> files = new HashMap<>();
+
+	@Inject
+	public TimeSeriesStore(@Named("eventSources.historyFolder") final String folder) {
+		this.folder = Paths.get(folder);
+	}
+
+	/**
+	 * Get the time series with the given name. If the time series has been
+	 * stored with another layout or number of columns, it is reset.
+	 *
+	 * @param name    the name of the time series, e.g. the ID of the event source
+	 * @param layout  identifier of the meaning of the columns, e.g. a hash of the
+	 *                configuration of the event source
+	 * @param columns the number of values per row
+	 * @return the time series
+	 * @throws IOException if the time series file cannot be opened
+	 */
+	public synchronized TimeSeriesFile open(final String name, final long layout, final int columns)
+			throws IOException {
+		final TimeSeriesFile current = files.get(name);
+		if (current != null) {
+			if (current.getLayout() == layout && current.getColumns() == columns) {
+				return current;
+			}
+			logInfo(LOGGER, "Layout of time series [%s] changed. Discarding history.", name);
+			current.close();
+		}
+		final TimeSeriesFile file = new TimeSeriesFile(getPath(name), layout, columns);
+		files.put(name, file);
+		return file;
+	}
+
+	/**
+	 * Close the time series with the given name and delete its file, e.g.
+	 * because the event source owning it has been deleted
+	 *
+	 * @param name the name of the time series
+	 * @throws IOException if the time series file cannot be deleted
+	 */
+	public synchronized void delete(final String name) throws IOException {
+		final TimeSeriesFile file = files.remove(name);
+		if (file != null) {
+			file.close();
+		}
+		Files.deleteIfExists(getPath(name));
+	}
+
+	/**
+	 * Write all open time series to the disk and close their files
+	 */
+	public synchronized void close() {
+		for (final Entry<String, TimeSeriesFile> entry : files.entrySet()) {
+			try {
+				entry.getValue().close();
+			} catch (final IOException e) {
+				LOGGER.error("Unable to close time series " + entry.getKey(), e);
+			}
+		}
+		files.clear();
+	}
+
+	private Path getPath(final String name) {
+		return folder.resolve(name.replaceAll("[^-_.a-zA-Z0-9]", "_") + FILE_EXTENSION);
+	}
+}
@@ -0,0 +1,159 @@
+package com.hlag.oversigt.storage.timeseries;
+
+import java.util.Arrays;
+
+/**
+ * Rows of a {@link TimeSeriesFile} within a time window, possibly downsampled.
+ * The data is kept in primitive arrays.
+ */
+public final class TimeSeriesWindow implements TimeSeries {
+	private final int size;
+
+	private final long[] timestamps;
+
+	private final long[][] values;
+
+	private TimeSeriesWindow(final int size, final long[] timestamps, final long[][] values) {
+		this.size = size;
+		this.timestamps = timestamps;
+		this.values = values;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int getColumns() {
+		return values.length;
+	}
+
+	@Override
+	public long getTimestamp(final int row) {
+		checkRow(row);
+		return timestamps[row];
+	}
+
+	@Override
+	public long getValue(final int column, final int row) {
+		checkRow(row);
+		return values[column][row];
+	}
+
+	@Override
+	public long getMaximum(final int column) {
+		long maximum = size == 0 ? 0 : Long.MIN_VALUE;
+		for (int row = 0; row < size; row += 1) {
+			maximum = Math.max(maximum, values[column][row]);
+		}
+		return maximum;
+	}
+
+	@Override
+	public long[] getTimestamps() {
+		return Arrays.copyOf(timestamps, size);
+	}
+
+	@Override
+	public long[] getValues(final int column) {
+		return Arrays.copyOf(values[column], size);
+	}
+
+	private void checkRow(final int row) {
+		if (row < 0 || row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+		}
+	}
+
+	/**
+	 * Collects the rows of a window and combines rows falling into the same
+	 * bucket
+	 */
+	static final class Builder {
+		private final long from;
+
+		private final long to;
+
+		private final long bucketLength;
+
+		private int size = 0;
+
+		private long[] timestamps;
+
+		private long[][] values;
+
+		private long currentBucket = Long.MIN_VALUE;
+
+		private int rowsInBucket = 0;
+
+		private final long[] bucketSums;
+
+		Builder(final int columns, final long from, final long to, final int maxPoints) {
+			this.from = from;
+			this.to = to;
+			final long windowLength = Math.max(1, to - from + 1);
+			final long points = Math.max(1, maxPoints);
+			bucketLength = Math.max(1, (windowLength + points - 1) / points);
+			final int initialCapacity = (int) Math.min(points, 64);
+			timestamps = new long[initialCapacity];
+			values = new long[columns][initialCapacity];
+			bucketSums = new long[columns];
+		}
+
+		/**
+		 * Add rows in ascending order of their timestamps
+		 *
+		 * @param rows  the timestamps at index 0 and the values at the following
+		 *              indexes
+		 * @param count the number of rows to add
+		 */
+		void addRows(final long[][] rows, final int count) {
+			for (int row = 0; row < count; row += 1) {
+				final long timestamp = rows[0][row];
+				if (timestamp < from || timestamp > to) {
+					continue;
+				}
+				final long bucket = (timestamp - from) / bucketLength;
+				if (bucket != currentBucket) {
+					finishBucket();
+					currentBucket = bucket;
+				}
+				for (int column = 0; column < bucketSums.length; column += 1) {
+					bucketSums[column] += rows[column + 1][row];
+				}
+				rowsInBucket += 1;
+				// the bucket is represented by its latest timestamp
+				timestamps[size] = timestamp;
+			}
+		}
+
+		private void finishBucket() {
+			if (rowsInBucket == 0) {
+				return;
+			}
+			for (int column = 0; column < bucketSums.length; column += 1) {
+				values[column][size] = bucketSums[column] / rowsInBucket;
+				bucketSums[column] = 0;
+			}
+			rowsInBucket = 0;
+			size += 1;
+			if (size == timestamps.length) {
+				timestamps = Arrays.copyOf(timestamps, size * 2);
+				for (int column = 0; column < values.length; column += 1) {
+					values[column] = Arrays.copyOf(values[column], size * 2);
+				}
+			}
+		}
+
+		TimeSeriesWindow build() {
+			finishBucket();
+			return new TimeSeriesWindow(size, timestamps, values);
+		}
+	}
+}
@@ -0,0 +1,2 @@
+@de.larssh.utils.annotations.NonNullByDefault
+package com.hlag.oversigt.storage.timeseries;
@@ -1,6 +1,7 @@
 package com.hlag.oversigt.util;
 
 import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
@@ -30,6 +31,31 @@ public class CountingThreadFactory implements ThreadFactory {
 		});
 	}
 
+	/**
+	 * Create a thread factory creating virtual threads with the given name
+	 * prefix. Virtual threads are only available in Java 21 and later (or as
+	 * preview feature in Java 19 and 20), so they are looked up using
+	 * reflection.
+	 *
+	 * @param namePrefix the prefix to be prepended to every newly created thread
+	 *                   name
+	 * @return the thread factory or an empty {@link Optional} if the running JVM
+	 *         does not support virtual threads
+	 * @throws NullPointerException if one of the parameter is <code>null</code>
+	 */
+	public static Optional<ThreadFactory> createVirtualThreadFactory(final String namePrefix) {
+		Objects.requireNonNull(namePrefix);
+		try {
+			final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			final Object builder = builderClass.getMethod("name", String.class, long.class)
+					.invoke(Thread.class.getMethod("ofVirtual").invoke(null), namePrefix, 1L);
+			return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+		} catch (final ReflectiveOperationException | RuntimeException e) {
+			// virtual threads are not available or not enabled
+			return Optional.empty();
+		}
+	}
+
 	/**
 	 * A counter to identify every thread by a number
 	 */
@@ -20,12 +20,14 @@ import org.slf4j.LoggerFactory;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.hlag.oversigt.connect.db.DatabaseCache.CacheStatistics;
 import com.hlag.oversigt.controller.EventSourceInstanceController;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.EventSourceStatistics;
 import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.RunStatistic;
 import com.hlag.oversigt.model.EventSourceInstance;
 import com.hlag.oversigt.security.Role;
+import com.hlag.oversigt.sources.AbstractCachingJdbcEventSource;
 import com.hlag.oversigt.web.api.ApiAuthenticationFilter;
 import com.hlag.oversigt.web.api.ErrorResponse;
 import com.hlag.oversigt.web.api.JwtSecured;
@@ -127,7 +129,13 @@ public class EventSourceStatusResource {
 					stats.getLastRuns(),
 					stats.getLastRun(),
 					stats.getLastSuccessfulRun(),
-					stats.getLastFailedRun());
+					stats.getLastFailedRun(),
+					stats.getProducedEvents(),
+					stats.getSkipRatio(),
+					stats.getTimedOutRuns(),
+					controller.getRunningService(instance)
+							.filter(AbstractCachingJdbcEventSource.class::isInstance)
+							.flatMap(service -> ((AbstractCachingJdbcEventSource<?, ?>) service).getCacheStatistics()));
 		}
 
 		@NotBlank
@@ -151,6 +159,14 @@ public class EventSourceStatusResource {
 
 		private final Optional<RunStatistic> lastFailedRun;
 
+		private final long producedEvents;
+
+		private final double skipRatio;
+
+		private final long timedOutRuns;
+
+		private final Optional<CacheStatistics> cacheStatistics;
+
 		public EventSourceInstanceState(@NotBlank final String id,
 				final Optional<String> serviceClass,
 				final String createdBy,
@@ -160,7 +176,11 @@ public class EventSourceStatusResource {
 				final List<RunStatistic> statistics,
 				final Optional<RunStatistic> lastRun,
 				final Optional<RunStatistic> lastSuccessfulRun,
-				final Optional<RunStatistic> lastFailedRun) {
+				final Optional<RunStatistic> lastFailedRun,
+				final long producedEvents,
+				final double skipRatio,
+				final long timedOutRuns,
+				final Optional<CacheStatistics> cacheStatistics) {
 			this.id = id;
 			this.serviceClass = serviceClass;
 			this.createdBy = createdBy;
@@ -171,6 +191,10 @@ public class EventSourceStatusResource {
 			this.lastRun = lastRun;
 			this.lastSuccessfulRun = lastSuccessfulRun;
 			this.lastFailedRun = lastFailedRun;
+			this.producedEvents = producedEvents;
+			this.skipRatio = skipRatio;
+			this.timedOutRuns = timedOutRuns;
+			this.cacheStatistics = cacheStatistics;
 		}
 
 		public String getId() {
@@ -212,5 +236,33 @@ public class EventSourceStatusResource {
 		public Optional<RunStatistic> getLastFailedRun() {
 			return lastFailedRun;
 		}
+
+		public long getProducedEvents() {
+			return producedEvents;
+		}
+
+		/**
+		 * Get the share of produced events that have not been sent to the clients
+		 * because their content did not change
+		 *
+		 * @return the skip ratio between 0 and 1
+		 */
+		public double getSkipRatio() {
+			return skipRatio;
+		}
+
+		public long getTimedOutRuns() {
+			return timedOutRuns;
+		}
+
+		/**
+		 * Get the refresh metrics of the database cache if the event source reads
+		 * its items through a {@link com.hlag.oversigt.connect.db.DatabaseCache}
+		 *
+		 * @return the cache statistics or an empty {@link Optional}
+		 */
+		public Optional<CacheStatistics> getCacheStatistics() {
+			return cacheStatistics;
+		}
 	}
 }
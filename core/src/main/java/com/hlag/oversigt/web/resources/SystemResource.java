@@ -45,12 +45,19 @@ import com.google.common.collect.EvictingQueue;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.name.Named;
+import com.hlag.oversigt.connect.db.JdbcConnectionPool.PoolStatistics;
+import com.hlag.oversigt.connect.db.JdbcConnectionPools;
 import com.hlag.oversigt.controller.DashboardController;
 import com.hlag.oversigt.controller.EventSourceInstanceController;
 import com.hlag.oversigt.core.Oversigt;
 import com.hlag.oversigt.core.configuration.OversigtConfiguration;
+import com.hlag.oversigt.core.event.EventDispatcher.ConnectionStatistics;
+import com.hlag.oversigt.core.event.EventPipeline;
+import com.hlag.oversigt.core.event.EventPipeline.PipelineStatistics;
 import com.hlag.oversigt.core.event.EventSender;
 import com.hlag.oversigt.core.event.OversigtEvent;
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler;
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler.SchedulerStatistics;
 import com.hlag.oversigt.model.EventSourceInstance;
 import com.hlag.oversigt.properties.SerializablePropertyController;
 import com.hlag.oversigt.security.Authenticator;
@@ -86,6 +93,12 @@ public class SystemResource {
 	@Inject
 	private EventSender eventSender;
 
+	@Inject
+	private EventPipeline eventPipeline;
+
+	@Inject
+	private EventSourceScheduler eventSourceScheduler;
+
 	@Inject
 	private MailSender mailSender;
 
@@ -101,6 +114,9 @@ public class SystemResource {
 	@Inject
 	private SerializablePropertyController spController;
 
+	@Inject
+	private JdbcConnectionPools connectionPools;
+
 	@Inject
 	private OversigtConfiguration configuration;
 
@@ -321,6 +337,68 @@ public class SystemResource {
 		return ok(json).build();
 	}
 
+	@GET
+	@Path("/event-connections")
+	@ApiResponses({
+			@ApiResponse(code = 200,
+					message = "A list of the currently open event connections",
+					response = ConnectionStatistics.class,
+					responseContainer = "list") })
+	@JwtSecured
+	@ApiOperation(value = "Retrieve the delivery state of the event connections",
+			authorizations = { @Authorization(value = ApiAuthenticationFilter.API_OPERATION_AUTHENTICATION) })
+	@RolesAllowed(Role.ROLE_NAME_GENERAL_DASHBOARD_OWNER)
+	@NoChangeLog
+	public List<ConnectionStatistics> getEventConnections() {
+		return eventSender.getConnectionStatistics();
+	}
+
+	@GET
+	@Path("/event-pipeline")
+	@ApiResponses({
+			@ApiResponse(code = 200,
+					message = "The state of the event pipeline",
+					response = PipelineStatistics.class) })
+	@JwtSecured
+	@ApiOperation(value = "Retrieve the state of the pipeline passing events to the event connections",
+			authorizations = { @Authorization(value = ApiAuthenticationFilter.API_OPERATION_AUTHENTICATION) })
+	@RolesAllowed(Role.ROLE_NAME_GENERAL_DASHBOARD_OWNER)
+	@NoChangeLog
+	public PipelineStatistics getEventPipeline() {
+		return eventPipeline.getStatistics();
+	}
+
+	@GET
+	@Path("/event-source-scheduler")
+	@ApiResponses({
+			@ApiResponse(code = 200,
+					message = "The state of the event source scheduler",
+					response = SchedulerStatistics.class) })
+	@JwtSecured
+	@ApiOperation(value = "Retrieve the state of the scheduler running the event sources",
+			authorizations = { @Authorization(value = ApiAuthenticationFilter.API_OPERATION_AUTHENTICATION) })
+	@RolesAllowed(Role.ROLE_NAME_GENERAL_DASHBOARD_OWNER)
+	@NoChangeLog
+	public SchedulerStatistics getEventSourceScheduler() {
+		return eventSourceScheduler.getStatistics();
+	}
+
+	@GET
+	@Path("/database-pools")
+	@ApiResponses({
+			@ApiResponse(code = 200,
+					message = "A list of the database connection pools used by the event sources",
+					response = PoolStatistics.class,
+					responseContainer = "list") })
+	@JwtSecured
+	@ApiOperation(value = "Retrieve the state of the database connection pools",
+			authorizations = { @Authorization(value = ApiAuthenticationFilter.API_OPERATION_AUTHENTICATION) })
+	@RolesAllowed(Role.ROLE_NAME_GENERAL_DASHBOARD_OWNER)
+	@NoChangeLog
+	public List<PoolStatistics> getDatabasePools() {
+		return connectionPools.getStatistics();
+	}
+
 	@GET
 	@Path("/users/{userId}/validity")
 	@ApiResponses({
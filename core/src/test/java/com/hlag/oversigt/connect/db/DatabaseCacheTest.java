@@ -0,0 +1,101 @@
+package com.hlag.oversigt.connect.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class DatabaseCacheTest {
+	private static final DatabaseCache.ConnectionOpener OPENER = () -> mock(Connection.class);
+
+	@Test
+	public void testFirstReadIsSynchronous() throws SQLException {
+		final DatabaseCache<Integer> cache = DatabaseCache.createCache(connection -> Collections.singletonList(1));
+
+		assertThat(cache.getItems()).isEmpty();
+		assertThat(cache.refresh(OPENER)).containsExactly(1);
+		assertThat(cache.getStatistics().getRefreshes()).isEqualTo(1);
+	}
+
+	@Test
+	public void testStaleItemsAreServedWhileRefreshing() throws SQLException, InterruptedException {
+		final AtomicInteger reads = new AtomicInteger(0);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(1);
+		final DatabaseCache<Integer> cache = DatabaseCache.createCache(connection -> {
+			final int read = reads.incrementAndGet();
+			if (read > 1) {
+				release.await();
+				finished.countDown();
+			}
+			return Collections.singletonList(read);
+		});
+		cache.setDurationBetweenReads(Duration.ZERO);
+		cache.refresh(OPENER);
+
+		assertThat(cache.refresh(OPENER)).containsExactly(1);
+		assertThat(cache.isRefreshing()).isTrue();
+		// a running refresh is not started again
+		assertThat(cache.refresh(OPENER)).containsExactly(1);
+
+		release.countDown();
+		assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+		while (cache.isRefreshing()) {
+			Thread.sleep(1);
+		}
+		assertThat(cache.getItems()).containsExactly(2);
+		assertThat(reads.get()).isEqualTo(2);
+	}
+
+	@Test
+	public void testBackgroundFailureIsReportedByNextRefresh() throws SQLException, InterruptedException {
+		final AtomicInteger reads = new AtomicInteger(0);
+		final DatabaseCache<Integer> cache = DatabaseCache.createCache(connection -> {
+			final int read = reads.incrementAndGet();
+			if (read == 2) {
+				throw new SQLException("broken");
+			}
+			return Collections.singletonList(read);
+		});
+		cache.setDurationBetweenReads(Duration.ZERO);
+		cache.refresh(OPENER);
+
+		assertThat(cache.refresh(OPENER)).containsExactly(1);
+		while (cache.isRefreshing()) {
+			Thread.sleep(1);
+		}
+		assertThatThrownBy(() -> cache.refresh(OPENER)).isInstanceOf(SQLException.class)
+				.hasRootCauseMessage("broken");
+		assertThat(cache.getStatistics().getFailedRefreshes()).isEqualTo(1);
+
+		// the failure is reported once and the next call retries
+		cache.refresh(OPENER);
+		while (cache.isRefreshing()) {
+			Thread.sleep(1);
+		}
+		assertThat(cache.getItems()).containsExactly(3);
+	}
+
+	@Test
+	public void testExpiredItemsAreReadSynchronously() throws SQLException {
+		final AtomicInteger reads = new AtomicInteger(0);
+		final DatabaseCache<Integer> cache
+				= DatabaseCache.createCache(connection -> Collections.singletonList(reads.incrementAndGet()));
+		cache.refresh(OPENER);
+		cache.setMaximumAge(Duration.ZERO);
+
+		assertThat(cache.getItems()).isEmpty();
+		assertThat(cache.refresh(OPENER)).isEmpty();
+		cache.setMaximumAge(Duration.ofHours(1));
+		assertThat(cache.getItems()).containsExactly(2);
+	}
+}
@@ -0,0 +1,89 @@
+package com.hlag.oversigt.connect.db;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class JdbcConnectionPoolTest {
+	private final List<Connection> openedConnections = new ArrayList<>();
+
+	private JdbcConnectionPool createPool(final int maxSize, final Duration idleTimeout) {
+		return new JdbcConnectionPool("test", () -> {
+			final Connection connection = mock(Connection.class);
+			openedConnections.add(connection);
+			return connection;
+		}, maxSize, idleTimeout);
+	}
+
+	@Test
+	public void testReturnedConnectionIsReused() throws SQLException {
+		final JdbcConnectionPool pool = createPool(2, Duration.ofMinutes(5));
+
+		pool.getConnection(Duration.ZERO).close();
+		pool.getConnection(Duration.ZERO).close();
+
+		assertThat(openedConnections).hasSize(1);
+		verify(openedConnections.get(0), times(2)).rollback();
+		assertThat(pool.getStatistics().getCreatedConnections()).isEqualTo(1);
+		assertThat(pool.getStatistics().getReusedConnections()).isEqualTo(1);
+		assertThat(pool.getStatistics().getIdleConnections()).isEqualTo(1);
+	}
+
+	@Test
+	public void testMaximumSizeIsEnforced() throws SQLException {
+		final JdbcConnectionPool pool = createPool(1, Duration.ofMinutes(5));
+
+		final Connection connection = pool.getConnection(Duration.ZERO);
+		try {
+			assertThatThrownBy(() -> pool.getConnection(Duration.ofMillis(10)))
+					.isInstanceOf(SQLTimeoutException.class);
+			assertThat(pool.getStatistics().getActiveConnections()).isEqualTo(1);
+		} finally {
+			connection.close();
+		}
+
+		assertThat(pool.getStatistics().getTimeouts()).isEqualTo(1);
+		assertThat(pool.getStatistics().getActiveConnections()).isEqualTo(0);
+		pool.getConnection(Duration.ZERO).close();
+	}
+
+	@Test
+	public void testBrokenConnectionIsDiscarded() throws SQLException {
+		final JdbcConnectionPool pool = createPool(1, Duration.ofMinutes(5));
+
+		final Connection connection = pool.getConnection(Duration.ZERO);
+		when(openedConnections.get(0).prepareStatement(anyString()))
+				.thenThrow(new SQLException("Connection reset", "08006"));
+		assertThatThrownBy(() -> connection.prepareStatement("SELECT 1")).isInstanceOf(SQLException.class);
+		connection.close();
+
+		verify(openedConnections.get(0)).close();
+		pool.getConnection(Duration.ZERO).close();
+		assertThat(openedConnections).hasSize(2);
+	}
+
+	@Test
+	public void testIdleConnectionsAreEvicted() throws SQLException {
+		final JdbcConnectionPool pool = createPool(1, Duration.ZERO);
+
+		pool.getConnection(Duration.ZERO).close();
+		pool.evictIdleConnections();
+
+		verify(openedConnections.get(0)).close();
+		assertThat(pool.getStatistics().getIdleConnections()).isEqualTo(0);
+		assertThat(pool.getStatistics().getEvictedConnections()).isEqualTo(1);
+	}
+}
@@ -0,0 +1,25 @@
+package com.hlag.oversigt.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class EventSourceInstanceControllerTest {
+	@Test
+	public void testInitialDelaysAreSpreadAcrossWarmUp() {
+		final Duration warmUp = Duration.ofMinutes(1);
+
+		assertThat(EventSourceInstanceController.computeInitialDelay(0, 4, warmUp)).isEqualTo(Duration.ZERO);
+		assertThat(EventSourceInstanceController.computeInitialDelay(1, 4, warmUp)).isEqualTo(Duration.ofSeconds(15));
+		assertThat(EventSourceInstanceController.computeInitialDelay(3, 4, warmUp)).isEqualTo(Duration.ofSeconds(45));
+	}
+
+	@Test
+	public void testNoInitialDelayWithoutWarmUp() {
+		assertThat(EventSourceInstanceController.computeInitialDelay(0, 1, Duration.ofMinutes(1)))
+				.isEqualTo(Duration.ZERO);
+		assertThat(EventSourceInstanceController.computeInitialDelay(3, 4, Duration.ZERO)).isEqualTo(Duration.ZERO);
+	}
+}
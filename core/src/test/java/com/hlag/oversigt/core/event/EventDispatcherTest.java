@@ -0,0 +1,335 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import com.hlag.oversigt.core.event.EventDispatcher.EventWriter;
+
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+import io.undertow.server.handlers.sse.ServerSentEventConnection.EventCallback;
+
+public class EventDispatcherTest {
+	private final List<Write> writes = Collections.synchronizedList(new ArrayList<>());
+
+	private static ServerSentEventConnection createConnection() {
+		final Map<Object, Object> attachments = new ConcurrentHashMap<>();
+		final ServerSentEventConnection connection = mock(ServerSentEventConnection.class);
+		when(connection.isOpen()).thenReturn(true);
+		when(connection.getAttachment(any())).thenAnswer(invocation -> attachments.get(invocation.getArgument(0)));
+		when(connection.putAttachment(any(), any()))
+				.thenAnswer(invocation -> attachments.put(invocation.getArgument(0), invocation.getArgument(1)));
+		return connection;
+	}
+
+	private static OversigtEvent createEvent(final String id) {
+		final OversigtEvent event = new OversigtEvent();
+		event.setId(id);
+		return event;
+	}
+
+	private static OversigtEvent createEvent(final String id, final long sequence) {
+		final OversigtEvent event = createEvent(id);
+		event.setSequence(sequence);
+		return event;
+	}
+
+	private static void await(final BooleanSupplier condition) throws InterruptedException {
+		final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private static void complete(final Write write) {
+		write.callback.done(write.connection, null, null, null);
+	}
+
+	/**
+	 * Occupy all in-flight slots of the given connection so that further events
+	 * remain in its queue
+	 */
+	private void blockConnection(final EventDispatcher dispatcher, final ServerSentEventConnection connection)
+			throws InterruptedException {
+		for (int i = 0; i < 4; i += 1) {
+			final int expectedWrites = writes.size() + 1;
+			dispatcher.dispatch(connection, createEvent("busy" + i));
+			await(() -> writes.size() >= expectedWrites);
+		}
+	}
+
+	private EventDispatcher createDispatcher(final int workerThreads,
+			final int queueSize,
+			final boolean completeWrites) {
+		final EventWriter writer = (connection, event, resumeSequence, callback) -> {
+			final Write write = new Write(connection, event, resumeSequence, callback);
+			writes.add(write);
+			if (completeWrites) {
+				complete(write);
+			}
+			return Optional.of(EventFrame.of("{}"));
+		};
+		return new EventDispatcher(workerThreads, queueSize, connection -> 0, writer);
+	}
+
+	@Test
+	public void testEventsInFlightAreLimited() throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher(2, 100, false);
+		final ServerSentEventConnection connection = createConnection();
+
+		for (int i = 0; i < 10; i += 1) {
+			dispatcher.dispatch(connection, createEvent("event" + i));
+		}
+		await(() -> writes.size() >= 4);
+		Thread.sleep(100);
+
+		assertThat(writes).hasSize(4);
+		assertThat(dispatcher.getConnectionStatistics()).singleElement().satisfies(statistics -> {
+			assertThat(statistics.getEventsInFlight()).isEqualTo(4);
+			assertThat(statistics.getQueueDepth()).isEqualTo(6);
+		});
+
+		complete(writes.get(0));
+		await(() -> writes.size() >= 5);
+		Thread.sleep(100);
+
+		assertThat(writes).hasSize(5);
+		assertThat(writes.get(4).event.getId()).isEqualTo("event4");
+		assertThat(dispatcher.getConnectionStatistics().get(0).getSentEvents()).isEqualTo(1);
+	}
+
+	@Test
+	public void testConnectionsTakeTurns() throws InterruptedException {
+		final CountDownLatch release = new CountDownLatch(1);
+		final EventWriter writer = (connection, event, resumeSequence, callback) -> {
+			if ("block".equals(event.getId())) {
+				try {
+					release.await(5, TimeUnit.SECONDS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			writes.add(new Write(connection, event, resumeSequence, callback));
+			callback.done(connection, null, null, null);
+			return Optional.of(EventFrame.of("{}"));
+		};
+		final EventDispatcher dispatcher = new EventDispatcher(1, 100, connection -> 0, writer);
+		final ServerSentEventConnection first = createConnection();
+		final ServerSentEventConnection second = createConnection();
+
+		// keep the only worker busy until both connections have queued their events
+		dispatcher.dispatch(first, createEvent("block"));
+		for (int i = 0; i < 40; i += 1) {
+			dispatcher.dispatch(first, createEvent("first" + i));
+			dispatcher.dispatch(second, createEvent("second" + i));
+		}
+		release.countDown();
+		await(() -> writes.size() >= 81);
+
+		final List<Integer> runs = new ArrayList<>();
+		ServerSentEventConnection current = null;
+		for (final Write write : writes) {
+			if (write.connection == current) {
+				runs.set(runs.size() - 1, runs.get(runs.size() - 1) + 1);
+			} else {
+				current = write.connection;
+				runs.add(1);
+			}
+		}
+		assertThat(writes).hasSize(81);
+		assertThat(runs).containsExactly(16, 16, 16, 16, 9, 8);
+	}
+
+	@Test
+	public void testConflatedEventKeepsQueuePosition() throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher(1, 100, false);
+		final ServerSentEventConnection connection = createConnection();
+		blockConnection(dispatcher, connection);
+
+		final OversigtEvent olderA = createEvent("a");
+		final OversigtEvent newerA = createEvent("a");
+		dispatcher.dispatch(connection, olderA);
+		Thread.sleep(100);
+		dispatcher.dispatch(connection, createEvent("b"));
+		dispatcher.dispatch(connection, newerA);
+
+		assertThat(dispatcher.getConnectionStatistics()).singleElement().satisfies(statistics -> {
+			assertThat(statistics.getQueueDepth()).isEqualTo(2);
+			assertThat(statistics.getConflatedEvents()).isEqualTo(1);
+			assertThat(statistics.getDroppedEvents()).isEqualTo(0);
+			assertThat(statistics.getOldestPendingEventAge()).isGreaterThanOrEqualTo(Duration.ofMillis(100));
+		});
+
+		complete(writes.get(0));
+		complete(writes.get(1));
+		await(() -> writes.size() >= 6);
+
+		assertThat(writes.get(4).event).isSameAs(newerA);
+		assertThat(writes.get(5).event.getId()).isEqualTo("b");
+	}
+
+	@Test
+	public void testNoCacheEventsAreNotConflated() throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher(1, 3, false);
+		final ServerSentEventConnection connection = createConnection();
+		blockConnection(dispatcher, connection);
+
+		for (int i = 0; i < 5; i += 1) {
+			final OversigtEvent event = new UncachedEvent();
+			event.setId("reload");
+			dispatcher.dispatch(connection, event);
+		}
+
+		assertThat(dispatcher.getConnectionStatistics()).singleElement().satisfies(statistics -> {
+			assertThat(statistics.getQueueDepth()).isEqualTo(3);
+			assertThat(statistics.getConflatedEvents()).isEqualTo(0);
+			assertThat(statistics.getDroppedEvents()).isEqualTo(2);
+		});
+	}
+
+	@Test
+	public void testFullQueueDropsOldestEvent() throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher(1, 2, false);
+		final ServerSentEventConnection connection = createConnection();
+		blockConnection(dispatcher, connection);
+
+		dispatcher.dispatch(connection, createEvent("a"));
+		dispatcher.dispatch(connection, createEvent("b"));
+		dispatcher.dispatch(connection, createEvent("c"));
+		dispatcher.dispatch(connection, createEvent("c"));
+
+		assertThat(dispatcher.getConnectionStatistics()).singleElement().satisfies(statistics -> {
+			assertThat(statistics.getQueueDepth()).isEqualTo(2);
+			assertThat(statistics.getConflatedEvents()).isEqualTo(1);
+			assertThat(statistics.getDroppedEvents()).isEqualTo(1);
+		});
+
+		complete(writes.get(0));
+		complete(writes.get(1));
+		await(() -> writes.size() >= 6);
+
+		assertThat(writes.get(4).event.getId()).isEqualTo("b");
+		assertThat(writes.get(5).event.getId()).isEqualTo("c");
+	}
+
+	@Test
+	public void testSkippedEventsDoNotUseUpRateLimit() throws InterruptedException {
+		final EventWriter writer = (connection, event, resumeSequence, callback) -> {
+			if (event.getId().startsWith("skipped")) {
+				return Optional.empty();
+			}
+			writes.add(new Write(connection, event, resumeSequence, callback));
+			callback.done(connection, null, null, null);
+			return Optional.of(EventFrame.of("{}"));
+		};
+		final EventDispatcher dispatcher = new EventDispatcher(1, 100, connection -> 1, writer);
+		final ServerSentEventConnection connection = createConnection();
+
+		for (int i = 0; i < 5; i += 1) {
+			dispatcher.dispatch(connection, createEvent("skipped" + i));
+		}
+		dispatcher.dispatch(connection, createEvent("a"));
+		await(() -> writes.size() >= 1);
+
+		assertThat(writes).singleElement().satisfies(write -> assertThat(write.event.getId()).isEqualTo("a"));
+		assertThat(dispatcher.getConnectionStatistics().get(0).getThrottlings()).isEqualTo(0);
+
+		dispatcher.dispatch(connection, createEvent("b"));
+		Thread.sleep(100);
+
+		assertThat(writes).hasSize(1);
+		assertThat(dispatcher.getConnectionStatistics().get(0).getThrottlings()).isEqualTo(1);
+	}
+
+	@Test
+	public void testDroppedEventLimitsResumeSequence() throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher(1, 2, false);
+		final ServerSentEventConnection connection = createConnection();
+		blockConnection(dispatcher, connection);
+
+		dispatcher.dispatch(connection, createEvent("a", 5));
+		dispatcher.dispatch(connection, createEvent("b", 6));
+		dispatcher.dispatch(connection, createEvent("c", 7));
+		writes.subList(0, 4).forEach(EventDispatcherTest::complete);
+		await(() -> writes.size() >= 6);
+
+		assertThat(writes.subList(4, 6)).extracting(write -> write.event.getId()).containsExactly("b", "c");
+		assertThat(writes.subList(4, 6)).extracting(write -> write.resumeSequence).containsExactly(4L, 4L);
+	}
+
+	@Test
+	public void testConflatedEventDoesNotSkipWaitingEvents() throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher(1, 100, false);
+		final ServerSentEventConnection connection = createConnection();
+		blockConnection(dispatcher, connection);
+
+		dispatcher.dispatch(connection, createEvent("a", 5));
+		dispatcher.dispatch(connection, createEvent("b", 6));
+		dispatcher.dispatch(connection, createEvent("a", 7));
+		writes.subList(0, 4).forEach(EventDispatcherTest::complete);
+		await(() -> writes.size() >= 6);
+
+		// "a" with sequence 7 is sent first, but "b" with sequence 6 is still waiting
+		assertThat(writes.subList(4, 6)).extracting(write -> write.event.getId()).containsExactly("a", "b");
+		assertThat(writes.subList(4, 6)).extracting(write -> write.resumeSequence).containsExactly(5L, 7L);
+	}
+
+	@Test
+	public void testPendingSnapshotLimitsResumeSequence() throws InterruptedException {
+		final EventDispatcher dispatcher = createDispatcher(1, 100, false);
+		final ServerSentEventConnection connection = createConnection();
+		blockConnection(dispatcher, connection);
+
+		dispatcher.dispatch(connection, createEvent("a", 8));
+		dispatcher.dispatch(connection, new SnapshotEvent(Arrays.asList(createEvent("b", 2), createEvent("c", 9))));
+		writes.subList(0, 4).forEach(EventDispatcherTest::complete);
+		await(() -> writes.size() >= 6);
+
+		// the snapshot still waiting contains the event with sequence 2
+		assertThat(writes.subList(4, 6)).extracting(write -> write.event.getId())
+				.containsExactly("a", SnapshotEvent.SNAPSHOT_EVENT_TYPE);
+		assertThat(writes.subList(4, 6)).extracting(write -> write.resumeSequence).containsExactly(1L, 9L);
+	}
+
+	@NoCache
+	private static final class UncachedEvent extends OversigtEvent {
+		private UncachedEvent() {
+			// nothing to initialize
+		}
+	}
+
+	private static final class Write {
+		private final ServerSentEventConnection connection;
+
+		private final OversigtEvent event;
+
+		private final long resumeSequence;
+
+		private final EventCallback callback;
+
+		private Write(final ServerSentEventConnection connection,
+				final OversigtEvent event,
+				final long resumeSequence,
+				final EventCallback callback) {
+			this.connection = connection;
+			this.event = event;
+			this.resumeSequence = resumeSequence;
+			this.callback = callback;
+		}
+	}
+}
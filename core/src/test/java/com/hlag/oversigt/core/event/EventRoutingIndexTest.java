@@ -0,0 +1,174 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.xnio.ChannelListener;
+
+import com.hlag.oversigt.model.Dashboard;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+import io.undertow.server.handlers.sse.ServerSentEventConnection;
+
+public class EventRoutingIndexTest {
+	private final Map<ServerSentEventConnection, List<ChannelListener<ServerSentEventConnection>>> closeTasks
+			= new HashMap<>();
+
+	private ServerSentEventConnection createConnection(@Nullable final String dashboardId) {
+		final ServerSentEventConnection connection = mock(ServerSentEventConnection.class);
+		if (dashboardId != null) {
+			when(connection.getAttachment(EventSender.DASHBOARD_KEY))
+					.thenReturn(new Dashboard(dashboardId, "owner", true));
+		}
+		doAnswer(invocation -> closeTasks.computeIfAbsent(connection, x -> new ArrayList<>())
+				.add(invocation.getArgument(0))).when(connection).addCloseTask(any());
+		return connection;
+	}
+
+	private void close(final ServerSentEventConnection connection) {
+		closeTasks.getOrDefault(connection, Collections.emptyList()).forEach(task -> task.handleEvent(connection));
+	}
+
+	@Test
+	public void testConnectionsReceiveEventsOfTheirDashboard() {
+		final EventRoutingIndex index = new EventRoutingIndex();
+		final ServerSentEventConnection first = createConnection("first");
+		final ServerSentEventConnection second = createConnection("second");
+		index.updateDashboard("first", Arrays.asList("a", "b"));
+		index.updateDashboard("second", Arrays.asList("b"));
+		index.addConnection(first);
+		index.addConnection(second);
+
+		assertThat(index.getConnections("a")).containsExactly(first);
+		assertThat(index.getConnections("b")).containsExactlyInAnyOrder(first, second);
+		assertThat(index.getConnections("c")).isEmpty();
+		assertThat(index.isEventShownOnDashboard("first", "a")).isTrue();
+		assertThat(index.isEventShownOnDashboard("second", "a")).isFalse();
+	}
+
+	@Test
+	public void testWidgetMovesBetweenDashboards() {
+		final EventRoutingIndex index = new EventRoutingIndex();
+		final ServerSentEventConnection first = createConnection("first");
+		final ServerSentEventConnection second = createConnection("second");
+		index.updateDashboard("first", Arrays.asList("a"));
+		index.updateDashboard("second", Collections.emptyList());
+		index.addConnection(first);
+		index.addConnection(second);
+
+		index.updateDashboard("first", Collections.emptyList());
+		index.updateDashboard("second", Arrays.asList("a"));
+
+		assertThat(index.getConnections("a")).containsExactly(second);
+		assertThat(index.isEventShownOnDashboard("first", "a")).isFalse();
+		assertThat(index.isEventShownOnDashboard("second", "a")).isTrue();
+	}
+
+	@Test
+	public void testRemovedDashboardReceivesNoEvents() {
+		final EventRoutingIndex index = new EventRoutingIndex();
+		final ServerSentEventConnection connection = createConnection("first");
+		index.updateDashboard("first", Arrays.asList("a"));
+		index.addConnection(connection);
+
+		index.removeDashboard("first");
+
+		assertThat(index.getConnections("a")).isEmpty();
+		assertThat(index.isEventShownOnDashboard("first", "a")).isFalse();
+	}
+
+	@Test
+	public void testUnboundConnectionsReceiveAllEvents() {
+		final EventRoutingIndex index = new EventRoutingIndex();
+		final ServerSentEventConnection bound = createConnection("first");
+		final ServerSentEventConnection unbound = createConnection(null);
+		index.updateDashboard("first", Arrays.asList("a"));
+		index.addConnection(bound);
+		index.addConnection(unbound);
+
+		assertThat(index.getConnections("a")).containsExactlyInAnyOrder(bound, unbound);
+		assertThat(index.getConnections("b")).containsExactly(unbound);
+		assertThat(index.getAllConnections()).containsExactlyInAnyOrder(bound, unbound);
+	}
+
+	@Test
+	public void testClosedConnectionsAreRemoved() {
+		final EventRoutingIndex index = new EventRoutingIndex();
+		final ServerSentEventConnection bound = createConnection("first");
+		final ServerSentEventConnection unbound = createConnection(null);
+		index.updateDashboard("first", Arrays.asList("a"));
+		index.addConnection(bound);
+		index.addConnection(unbound);
+
+		close(bound);
+
+		assertThat(index.getConnections("a")).containsExactly(unbound);
+		assertThat(index.getAllConnections()).containsExactly(unbound);
+
+		close(unbound);
+
+		assertThat(index.getConnections("a")).isEmpty();
+		assertThat(index.getAllConnections()).isEmpty();
+	}
+
+	@Test
+	public void testHasViewers() {
+		final EventRoutingIndex index = new EventRoutingIndex();
+		final ServerSentEventConnection connection = createConnection("first");
+		index.updateDashboard("first", Arrays.asList("a"));
+		index.updateDashboard("second", Arrays.asList("b"));
+
+		assertThat(index.hasViewers("a")).isFalse();
+
+		index.addConnection(connection);
+
+		assertThat(index.hasViewers("a")).isTrue();
+		assertThat(index.hasViewers("b")).isFalse();
+
+		close(connection);
+
+		assertThat(index.hasViewers("a")).isFalse();
+
+		index.addConnection(createConnection(null));
+
+		assertThat(index.hasViewers("b")).isTrue();
+	}
+
+	@Test
+	public void testViewerListenersAreNotifiedOnConnect() {
+		final EventRoutingIndex index = new EventRoutingIndex();
+		final AtomicInteger aNotifications = new AtomicInteger(0);
+		final AtomicInteger bNotifications = new AtomicInteger(0);
+		final Runnable aListener = aNotifications::incrementAndGet;
+		index.updateDashboard("first", Arrays.asList("a"));
+		index.addViewerListener("a", aListener);
+		index.addViewerListener("b", bNotifications::incrementAndGet);
+
+		index.addConnection(createConnection("first"));
+
+		assertThat(aNotifications).hasValue(1);
+		assertThat(bNotifications).hasValue(0);
+
+		index.addConnection(createConnection(null));
+
+		assertThat(aNotifications).hasValue(2);
+		assertThat(bNotifications).hasValue(1);
+
+		index.removeViewerListener("a", aListener);
+		index.addConnection(createConnection("first"));
+
+		assertThat(aNotifications).hasValue(2);
+	}
+}
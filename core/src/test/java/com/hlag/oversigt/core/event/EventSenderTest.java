@@ -0,0 +1,57 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.inject.Guice;
+import com.google.inject.name.Names;
+
+public class EventSenderTest {
+	private static EventSender createEventSender() {
+		final EventSender sender = new EventSender(Duration.ofHours(1),
+				0,
+				Collections.emptyMap(),
+				1,
+				100,
+				false,
+				10,
+				"",
+				Duration.ofSeconds(10));
+		Guice.createInjector(binder -> {
+			binder.bindConstant().annotatedWith(Names.named("application-id")).to("test");
+			binder.bind(EventRoutingIndex.class).toInstance(new EventRoutingIndex());
+		}).injectMembers(sender);
+		return sender;
+	}
+
+	private static JsonEvent createEvent(final String id, final Duration lifetime) {
+		final JsonEvent event = new JsonEvent("{\"id\":\"" + id + "\"}");
+		event.setLifetime(lifetime);
+		return event;
+	}
+
+	private static void awaitExpiration(final EventSender sender) throws InterruptedException {
+		final long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!sender.getCachedEvents().isEmpty() && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	public void testEventWithSameIdExpiresAgain() throws InterruptedException {
+		final EventSender sender = createEventSender();
+
+		sender.cacheEvent(createEvent("a", Duration.ofMillis(50)));
+		awaitExpiration(sender);
+		assertThat(sender.getCachedEvents()).isEmpty();
+
+		sender.cacheEvent(createEvent("a", Duration.ofMillis(50)));
+		assertThat(sender.getCachedEvents()).hasSize(1);
+		awaitExpiration(sender);
+		assertThat(sender.getCachedEvents()).isEmpty();
+	}
+}
@@ -0,0 +1,57 @@
+package com.hlag.oversigt.core.event;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.hlag.oversigt.core.event.EventSnapshotFile.Entry;
+
+public class EventSnapshotFileTest {
+	@Test
+	public void testLastEntryOfEventWins() throws IOException {
+		final Path path = Files.createTempDirectory("oversigt").resolve("events.snapshot");
+		final EventSnapshotFile file = new EventSnapshotFile(path);
+		final Instant now = Instant.now();
+		final Instant later = now.plus(Duration.ofMinutes(5));
+
+		file.append(asList(Entry.cached("a", "{\"id\":\"a\",\"value\":1}", later),
+				Entry.cached("b", "{\"id\":\"b\",\"value\":1}", later),
+				Entry.cached("c", "{\"id\":\"c\",\"value\":1}", now.minusSeconds(1))));
+		file.append(asList(Entry.cached("a", "{\"id\":\"a\",\"value\":2,\"applicationId\":\"x\"}", later),
+				Entry.removed("b")));
+
+		final List<Entry> entries = new EventSnapshotFile(path).read(now);
+		assertThat(entries).extracting(Entry::getEventId).containsExactly("a");
+		assertThat(entries.get(0).getJson()).contains("{\"id\":\"a\",\"value\":2}");
+		assertThat(entries.get(0).getExpiresAt()).isEqualTo(Instant.ofEpochMilli(later.toEpochMilli()));
+	}
+
+	@Test
+	public void testIncompleteLinesAreIgnored() throws IOException {
+		final Path path = Files.createTempDirectory("oversigt").resolve("events.snapshot");
+		final EventSnapshotFile file = new EventSnapshotFile(path);
+		final Instant later = Instant.now().plus(Duration.ofMinutes(5));
+
+		file.append(asList(Entry.cached("a", "{\"id\":\"a\"}", later)));
+		Files.write(path, "{\"id\":\"b\",\"expi".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+		assertThat(file.read(Instant.now())).extracting(Entry::getEventId).containsExactly("a");
+	}
+
+	@Test
+	public void testMissingFileIsEmpty() throws IOException {
+		final Path path = Files.createTempDirectory("oversigt").resolve("events.snapshot");
+
+		assertThat(new EventSnapshotFile(path).read(Instant.now())).isEmpty();
+	}
+}
@@ -0,0 +1,159 @@
+package com.hlag.oversigt.core.event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the {@link EventStore} with the synchronized map the
+ * {@link EventSender} used before. Few threads publish events while many
+ * threads look up events and take snapshots for new connections, like a busy
+ * dashboard server does.
+ *
+ * <p>
+ * Run the benchmark using the main method of this class.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EventStoreBenchmark {
+	private static final int EVENT_IDS = 500;
+
+	private static final int SNAPSHOT_RATIO = 100;
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventStoreBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	private static String[] createEventIds() {
+		final String[] ids = new String[EVENT_IDS];
+		for (int i = 0; i < ids.length; i += 1) {
+			ids[i] = "widget-" + i;
+		}
+		return ids;
+	}
+
+	private static OversigtEvent createEvent(final String id, final long sequence) {
+		final OversigtEvent event = new OversigtEvent();
+		event.setId(id);
+		event.setSequence(sequence);
+		return event;
+	}
+
+	/**
+	 * The event cache as it has been implemented before the {@link EventStore}
+	 */
+	@State(Scope.Group)
+	public static class SynchronizedState {
+		private final Map<String, OversigtEvent> cachedEvents = Collections.synchronizedMap(new HashMap<>());
+
+		private final String[] ids = createEventIds();
+
+		private long sequence = 0;
+
+		@Setup
+		public void setup() {
+			for (final String id : ids) {
+				put(id);
+			}
+		}
+
+		void put(final String id) {
+			synchronized (cachedEvents) {
+				sequence += 1;
+				cachedEvents.put(id, createEvent(id, sequence));
+			}
+		}
+
+		Object read(final String id) {
+			if (ThreadLocalRandom.current().nextInt(SNAPSHOT_RATIO) == 0) {
+				synchronized (cachedEvents) {
+					return new ArrayList<>(cachedEvents.values());
+				}
+			}
+			return cachedEvents.get(id);
+		}
+	}
+
+	@State(Scope.Group)
+	public static class LockFreeState {
+		private final EventStore store = new EventStore();
+
+		private final String[] ids = createEventIds();
+
+		private final AtomicLong sequence = new AtomicLong(0);
+
+		@Setup
+		public void setup() {
+			for (final String id : ids) {
+				put(id);
+			}
+		}
+
+		void put(final String id) {
+			store.put(createEvent(id, sequence.incrementAndGet()));
+		}
+
+		Object read(final String id) {
+			if (ThreadLocalRandom.current().nextInt(SNAPSHOT_RATIO) == 0) {
+				return store.getEvents();
+			}
+			return store.get(id);
+		}
+	}
+
+	private static String randomId(final String[] ids) {
+		return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+	}
+
+	@Benchmark
+	@Group("synchronized")
+	@GroupThreads(8)
+	public void synchronizedWrite(final SynchronizedState state) {
+		state.put(randomId(state.ids));
+	}
+
+	@Benchmark
+	@Group("synchronized")
+	@GroupThreads(200)
+	public Object synchronizedRead(final SynchronizedState state) {
+		return state.read(randomId(state.ids));
+	}
+
+	@Benchmark
+	@Group("lockFree")
+	@GroupThreads(8)
+	public void lockFreeWrite(final LockFreeState state) {
+		state.put(randomId(state.ids));
+	}
+
+	@Benchmark
+	@Group("lockFree")
+	@GroupThreads(200)
+	public Object lockFreeRead(final LockFreeState state) {
+		return state.read(randomId(state.ids));
+	}
+}
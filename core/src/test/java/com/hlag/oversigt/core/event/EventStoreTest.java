@@ -0,0 +1,63 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+public class EventStoreTest {
+	private static OversigtEvent createEvent(final String id, final long sequence) {
+		final OversigtEvent event = new OversigtEvent();
+		event.setId(id);
+		event.setSequence(sequence);
+		return event;
+	}
+
+	@Test
+	public void testNewerEventReplacesOlderEvent() {
+		final EventStore store = new EventStore();
+		final OversigtEvent first = createEvent("a", 1);
+		final OversigtEvent second = createEvent("a", 2);
+
+		assertThat(store.put(first)).isTrue();
+		assertThat(store.put(second)).isTrue();
+
+		assertThat(store.get("a")).containsSame(second);
+		assertThat(store.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void testOlderEventDoesNotReplaceNewerEvent() {
+		final EventStore store = new EventStore();
+		final OversigtEvent newer = createEvent("a", 2);
+		store.put(newer);
+
+		assertThat(store.put(createEvent("a", 1))).isFalse();
+		assertThat(store.get("a")).containsSame(newer);
+	}
+
+	@Test
+	public void testPutIfChecksCurrentEvent() {
+		final EventStore store = new EventStore();
+		final OversigtEvent first = createEvent("a", 1);
+		store.put(first);
+
+		assertThat(store.putIf(createEvent("a", 2), current -> false)).isFalse();
+		assertThat(store.get("a")).containsSame(first);
+		assertThat(store.putIf(createEvent("b", 3), current -> false)).isTrue();
+	}
+
+	@Test
+	public void testRemoveOnlyRemovesSameEvent() {
+		final EventStore store = new EventStore();
+		final OversigtEvent first = createEvent("a", 1);
+		final OversigtEvent second = createEvent("a", 2);
+		store.put(first);
+		store.put(second);
+
+		assertThat(store.remove(first)).isFalse();
+		assertThat(store.get("a")).containsSame(second);
+		assertThat(store.remove(second)).isTrue();
+		assertThat(store.get("a")).isEmpty();
+		assertThat(store.remove("a")).isFalse();
+	}
+}
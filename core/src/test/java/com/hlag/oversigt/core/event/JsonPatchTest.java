@@ -0,0 +1,46 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class JsonPatchTest {
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private static JsonNode json(final String json) throws IOException {
+		return OBJECT_MAPPER.readTree(json.replace('\'', '"'));
+	}
+
+	@Test
+	public void testEqualDocuments() throws IOException {
+		assertThat(JsonPatch.diff(json("{'a':[1,2],'b':'x'}"), json("{'a':[1,2],'b':'x'}"))).isEmpty();
+	}
+
+	@Test
+	public void testChangedObject() throws IOException {
+		assertThat(JsonPatch.diff(json("{'a':1,'b':{'c':2},'d/e':3}"), json("{'a':1,'b':{'c':4},'f':5}")))
+				.isEqualTo(json("[{'op':'remove','path':'/d~1e'},"
+						+ "{'op':'replace','path':'/b/c','value':4},"
+						+ "{'op':'add','path':'/f','value':5}]"));
+	}
+
+	@Test
+	public void testShiftedArray() throws IOException {
+		assertThat(JsonPatch.diff(json("{'points':[1,2,3,4]}"), json("{'points':[3,4,5,6]}")))
+				.isEqualTo(json("[{'op':'remove','path':'/points/0'},"
+						+ "{'op':'remove','path':'/points/0'},"
+						+ "{'op':'add','path':'/points/-','value':5},"
+						+ "{'op':'add','path':'/points/-','value':6}]"));
+	}
+
+	@Test
+	public void testShortenedArray() throws IOException {
+		assertThat(JsonPatch.diff(json("[1,2,3]"), json("[1,5]")))
+				.isEqualTo(json("[{'op':'replace','path':'/1','value':5},{'op':'remove','path':'/2'}]"));
+	}
+}
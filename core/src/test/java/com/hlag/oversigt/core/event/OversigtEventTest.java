@@ -0,0 +1,66 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import com.google.inject.Guice;
+import com.hlag.oversigt.core.configuration.JsonModule;
+import com.hlag.oversigt.storage.Storage;
+
+public class OversigtEventTest {
+	@BeforeAll
+	public static void initJsonUtils() {
+		// needed to inject static values
+		Guice.createInjector(//
+				new JsonModule(),
+				binder -> binder.bind(Storage.class).toInstance(Mockito.mock(Storage.class))//
+		);
+	}
+
+	private static OversigtEvent createEvent(final String title) {
+		final OversigtEvent event = new OversigtEvent();
+		event.setId("id");
+		event.setTitle(title);
+		return event;
+	}
+
+	@Test
+	public void testFingerprintIgnoresCreationTime() throws InterruptedException {
+		final OversigtEvent first = createEvent("a");
+		Thread.sleep(1100);
+		final OversigtEvent second = createEvent("a");
+
+		assertThat(first.getUpdatedAt()).isNotEqualTo(second.getUpdatedAt());
+		assertThat(first.getFingerprint()).isEqualTo(second.getFingerprint());
+	}
+
+	@Test
+	public void testFingerprintChangesWithContent() {
+		final OversigtEvent event = createEvent("a");
+		final String fingerprint = event.getFingerprint();
+
+		event.setTitle("b");
+
+		assertThat(event.getFingerprint()).isNotEqualTo(fingerprint).isEqualTo(createEvent("b").getFingerprint());
+	}
+
+	@Test
+	public void testExtendLifetime() {
+		final OversigtEvent cached = createEvent("a");
+		cached.setLifetime(Duration.ZERO);
+		final OversigtEvent unchanged = createEvent("a");
+		unchanged.setLifetime(Duration.ofMinutes(5));
+
+		assertThat(cached.isValid()).isFalse();
+		cached.extendLifetime(unchanged);
+
+		assertThat(cached.isValid()).isTrue();
+		assertThat(cached.getLifetime()).isEqualTo(Duration.ofMinutes(5));
+		assertThat(cached.getExpiresAtNanos()).isEqualTo(unchanged.getExpiresAtNanos());
+	}
+}
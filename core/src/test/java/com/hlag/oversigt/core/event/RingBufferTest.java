@@ -0,0 +1,66 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class RingBufferTest {
+	@Test
+	public void testCapacityIsRoundedUpToPowerOfTwo() {
+		assertThat(new RingBuffer<>(1000).getCapacity()).isEqualTo(1024);
+		assertThat(new RingBuffer<>(16).getCapacity()).isEqualTo(16);
+	}
+
+	@Test
+	public void testFifoAndBounds() {
+		final RingBuffer<Integer> buffer = new RingBuffer<>(2);
+
+		assertThat(buffer.poll()).isNull();
+		assertThat(buffer.offer(1)).isTrue();
+		assertThat(buffer.offer(2)).isTrue();
+		assertThat(buffer.offer(3)).isFalse();
+		assertThat(buffer.size()).isEqualTo(2);
+		assertThat(buffer.poll()).isEqualTo(1);
+		assertThat(buffer.offer(4)).isTrue();
+		assertThat(buffer.poll()).isEqualTo(2);
+		assertThat(buffer.poll()).isEqualTo(4);
+		assertThat(buffer.isEmpty()).isTrue();
+	}
+
+	@Test
+	public void testConcurrentProducers() throws InterruptedException {
+		final int producers = 4;
+		final int elementsPerProducer = 10_000;
+		final RingBuffer<Integer> buffer = new RingBuffer<>(64);
+		final ExecutorService executor = Executors.newFixedThreadPool(producers);
+		for (int p = 0; p < producers; p += 1) {
+			executor.execute(() -> {
+				for (int i = 0; i < elementsPerProducer; i += 1) {
+					while (!buffer.offer(i)) {
+						Thread.yield();
+					}
+				}
+			});
+		}
+
+		final List<Integer> received = new ArrayList<>();
+		final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+		while (received.size() < producers * elementsPerProducer && System.nanoTime() < deadline) {
+			final Integer element = buffer.poll();
+			if (element != null) {
+				received.add(element);
+			}
+		}
+		executor.shutdown();
+
+		assertThat(received).hasSize(producers * elementsPerProducer);
+		assertThat(received.stream().mapToLong(Integer::longValue).sum())
+				.isEqualTo(producers * (long) elementsPerProducer * (elementsPerProducer - 1) / 2);
+	}
+}
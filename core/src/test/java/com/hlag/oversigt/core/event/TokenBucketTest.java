@@ -0,0 +1,40 @@
+package com.hlag.oversigt.core.event;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+	@Test
+	public void testFirstTokenIsAvailableImmediately() {
+		final TokenBucket bucket = new TokenBucket(1);
+
+		assertThat(bucket.tryAcquire()).isZero();
+	}
+
+	@Test
+	public void testEmptyBucketReturnsWaitingTime() {
+		final TokenBucket bucket = new TokenBucket(1);
+		bucket.tryAcquire();
+
+		assertThat(bucket.tryAcquire()).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+	}
+
+	@Test
+	public void testReleasedTokenIsAvailableAgain() {
+		final TokenBucket bucket = new TokenBucket(1);
+		bucket.tryAcquire();
+		bucket.release();
+
+		assertThat(bucket.tryAcquire()).isZero();
+		assertThat(bucket.tryAcquire()).isPositive();
+	}
+
+	@Test
+	public void testInvalidRate() {
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0));
+	}
+}
@@ -0,0 +1,108 @@
+package com.hlag.oversigt.core.eventsource;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler.ThreadMode;
+
+/**
+ * Runs 1,000 simulated event sources, each of them blocking for
+ * {@link #SOURCE_LATENCY_MILLIS} like a slow database or HTTP server, and
+ * measures the time until all of them are done. The secondary result
+ * <code>platformThreads</code> shows the peak number of platform threads.
+ *
+ * <p>
+ * Virtual threads are only used when running the benchmark with Java 21 or
+ * later. Run the benchmark using the main method of this class.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EventSourceSchedulerBenchmark {
+	private static final int SOURCES = 1000;
+
+	private static final long SOURCE_LATENCY_MILLIS = 100;
+
+	public static void main(final String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(EventSourceSchedulerBenchmark.class.getSimpleName()).build()).run();
+	}
+
+	@State(Scope.Benchmark)
+	public static class SchedulerState {
+		@Param({ "PLATFORM", "VIRTUAL" })
+		private ThreadMode threadMode;
+
+		@Param({ "16", "200" })
+		private int workerThreads;
+
+		private EventSourceScheduler scheduler;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			scheduler = new EventSourceScheduler(threadMode, workerThreads, SOURCES, SOURCES);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class ThreadCounters {
+		private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+		public long platformThreads;
+
+		@Setup(Level.Invocation)
+		public void reset() {
+			threads.resetPeakThreadCount();
+		}
+
+		void record() {
+			platformThreads = threads.getPeakThreadCount();
+		}
+	}
+
+	@Benchmark
+	public void pollSlowSources(final SchedulerState state, final ThreadCounters counters)
+			throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(SOURCES);
+		for (int i = 0; i < SOURCES; i += 1) {
+			state.scheduler.schedule(() -> {
+				try {
+					Thread.sleep(SOURCE_LATENCY_MILLIS);
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			}, 0, TimeUnit.MILLISECONDS);
+		}
+		done.await();
+		counters.record();
+	}
+}
@@ -0,0 +1,147 @@
+package com.hlag.oversigt.core.eventsource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler.ServiceExecutor;
+import com.hlag.oversigt.core.eventsource.EventSourceScheduler.ThreadMode;
+import com.hlag.oversigt.util.CountingThreadFactory;
+
+public class EventSourceSchedulerTest {
+	@Test
+	public void testFixedDelayTasksRunInWorkers() throws InterruptedException {
+		final EventSourceScheduler scheduler = new EventSourceScheduler(ThreadMode.PLATFORM, 2, 1, 10);
+		final CountDownLatch latch = new CountDownLatch(3);
+		final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+		final ScheduledFuture<?> future = scheduler.scheduleWithFixedDelay(() -> {
+			threadNames.add(Thread.currentThread().getName());
+			latch.countDown();
+		}, 0, 10, TimeUnit.MILLISECONDS);
+
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(future.cancel(false)).isTrue();
+		assertThat(threadNames).allMatch(name -> name.startsWith("EventSourceScheduler-Worker-"));
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testCancelledTaskDoesNotRunAgain() throws InterruptedException {
+		final EventSourceScheduler scheduler = new EventSourceScheduler(ThreadMode.PLATFORM, 1, 1, 10);
+		final AtomicInteger runs = new AtomicInteger(0);
+
+		final ScheduledFuture<?> future
+				= scheduler.scheduleWithFixedDelay(runs::incrementAndGet, 0, 20, TimeUnit.MILLISECONDS);
+		while (runs.get() == 0) {
+			Thread.sleep(5);
+		}
+		future.cancel(false);
+		final int runsAfterCancel = runs.get();
+		Thread.sleep(100);
+
+		assertThat(runs.get()).isEqualTo(runsAfterCancel);
+		assertThat(future.isCancelled()).isTrue();
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testFullQueueDoesNotLoseTasks() throws InterruptedException {
+		final EventSourceScheduler scheduler = new EventSourceScheduler(ThreadMode.PLATFORM, 1, 1, 1);
+		final CountDownLatch blocker = new CountDownLatch(1);
+		final CountDownLatch done = new CountDownLatch(3);
+
+		scheduler.execute(() -> {
+			try {
+				blocker.await();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		});
+		scheduler.execute(done::countDown);
+		scheduler.execute(done::countDown);
+		blocker.countDown();
+
+		assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(scheduler.getStatistics().getRejectedTasks()).isGreaterThanOrEqualTo(1);
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testServiceExecutorRunsScheduledTaskNow() throws InterruptedException {
+		final EventSourceScheduler scheduler = new EventSourceScheduler(ThreadMode.PLATFORM, 1, 1, 10);
+		final ServiceExecutor executor = scheduler.createServiceExecutor();
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		executor.schedule(latch::countDown, 1, TimeUnit.HOURS);
+
+		assertThat(executor.runNow()).isTrue();
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(executor.runNow()).isFalse();
+		executor.shutdown();
+		assertThat(scheduler.isShutdown()).isFalse();
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testExpiredDeadlineInterruptsAndCleansUp() throws InterruptedException {
+		final EventSourceScheduler scheduler = new EventSourceScheduler(ThreadMode.PLATFORM, 1, 1, 10);
+		final CountDownLatch cleanedUp = new CountDownLatch(1);
+		boolean interrupted = false;
+
+		try (IterationDeadline deadline = scheduler.startDeadline(Duration.ofMillis(50))) {
+			deadline.onExpiry(cleanedUp::countDown);
+			try {
+				Thread.sleep(5000);
+			} catch (@SuppressWarnings("unused") final InterruptedException e) {
+				interrupted = true;
+			}
+			assertThat(deadline.isExpired()).isTrue();
+		}
+
+		assertThat(interrupted).isTrue();
+		assertThat(cleanedUp.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(Thread.currentThread().isInterrupted()).isFalse();
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testClosedDeadlineDoesNotInterrupt() throws InterruptedException {
+		final EventSourceScheduler scheduler = new EventSourceScheduler(ThreadMode.PLATFORM, 1, 1, 10);
+		final AtomicInteger cleanUps = new AtomicInteger(0);
+
+		try (IterationDeadline deadline = scheduler.startDeadline(Duration.ofMillis(50))) {
+			deadline.onExpiry(cleanUps::incrementAndGet);
+			assertThat(deadline.getRemaining()).isPositive();
+		}
+		Thread.sleep(200);
+
+		assertThat(Thread.currentThread().isInterrupted()).isFalse();
+		assertThat(cleanUps.get()).isEqualTo(0);
+		scheduler.shutdown();
+	}
+
+	@Test
+	public void testVirtualThreadModeDependsOnJvm() throws InterruptedException {
+		final EventSourceScheduler scheduler = new EventSourceScheduler(ThreadMode.VIRTUAL, 1, 100, 10);
+		final boolean virtualThreadsSupported
+				= CountingThreadFactory.createVirtualThreadFactory("test-").isPresent();
+		final CountDownLatch latch = new CountDownLatch(1);
+
+		scheduler.execute(latch::countDown);
+
+		assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+		assertThat(scheduler.getThreadMode())
+				.isEqualTo(virtualThreadsSupported ? ThreadMode.VIRTUAL : ThreadMode.PLATFORM);
+		scheduler.shutdown();
+	}
+}
@@ -0,0 +1,104 @@
+package com.hlag.oversigt.core.eventsource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.Action;
+import com.hlag.oversigt.core.eventsource.EventSourceStatisticsManager.StatisticsCollector;
+import com.hlag.oversigt.core.eventsource.FetchCoalescer.Key;
+
+public class FetchCoalescerTest {
+	@Test
+	public void testConcurrentFetchesShareOneCall() throws Exception {
+		final FetchCoalescer coalescer = new FetchCoalescer(Duration.ZERO);
+		final AtomicInteger calls = new AtomicInteger(0);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		final Future<String> first = executor.submit(() -> coalescer.fetch(Key.of("test", "query"), () -> {
+			calls.incrementAndGet();
+			started.countDown();
+			release.await();
+			return "result";
+		}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		final Future<String> second
+				= executor.submit(() -> coalescer.fetch(Key.of("test", "query"), () -> "other result"));
+		while (coalescer.getSharedFetches() == 0) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(calls.get()).isEqualTo(1);
+		executor.shutdown();
+	}
+
+	@Test
+	public void testSharedFetchIsRecordedForWaitingCaller() throws Exception {
+		final FetchCoalescer coalescer = new FetchCoalescer(Duration.ZERO);
+		final EventSourceStatisticsManager statisticsManager = new EventSourceStatisticsManager();
+		final StatisticsCollector collector = statisticsManager.createCollector("waiting");
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+		final Future<String> first = executor.submit(() -> coalescer.fetch(Key.of("test", "query"), () -> {
+			started.countDown();
+			release.await();
+			return "result";
+		}));
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		final Future<String> second = executor
+				.submit(() -> coalescer.fetch(Key.of("test", "query"), collector, "query", () -> "other result"));
+		while (coalescer.getSharedFetches() == 0) {
+			Thread.sleep(5);
+		}
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+		collector.success();
+		assertThat(statisticsManager.getEventSourceStatistics("waiting").getLastRun().get().getActions())
+				.extracting(Action::getName, Action::getDetail)
+				.containsExactly(tuple("Shared fetch", "query"));
+		executor.shutdown();
+	}
+
+	@Test
+	public void testResultIsReusedWithinFreshnessWindow() throws IOException {
+		final FetchCoalescer coalescer = new FetchCoalescer(Duration.ofMinutes(1));
+
+		assertThat(coalescer.<String, IOException>fetch(Key.of("test", "query", new Object[] { 1 }), () -> "first"))
+				.isEqualTo("first");
+		assertThat(coalescer.<String, IOException>fetch(Key.of("test", "query", new Object[] { 1 }), () -> "second"))
+				.isEqualTo("first");
+		assertThat(coalescer.<String, IOException>fetch(Key.of("test", "query", new Object[] { 2 }), () -> "third"))
+				.isEqualTo("third");
+		assertThat(coalescer.getUpstreamFetches()).isEqualTo(2);
+	}
+
+	@Test
+	public void testFailuresAreNotReused() throws IOException {
+		final FetchCoalescer coalescer = new FetchCoalescer(Duration.ofMinutes(1));
+
+		assertThatThrownBy(() -> coalescer.fetch(Key.of("test", "query"), () -> {
+			throw new IOException("failed");
+		})).isInstanceOf(IOException.class);
+		assertThat(coalescer.<String, IOException>fetch(Key.of("test", "query"), () -> "result")).isEqualTo("result");
+	}
+}
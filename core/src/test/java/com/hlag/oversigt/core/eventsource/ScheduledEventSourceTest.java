@@ -0,0 +1,41 @@
+package com.hlag.oversigt.core.eventsource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+public class ScheduledEventSourceTest {
+	@Test
+	public void testBackoffGrowsExponentiallyWithJitter() {
+		final Duration frequency = Duration.ofMinutes(1);
+		final Duration maxBackoff = Duration.ofHours(1);
+
+		assertThat(ScheduledEventSource.computeBackoff(frequency, 1, maxBackoff, 0)).isEqualTo(Duration.ofMinutes(1));
+		assertThat(ScheduledEventSource.computeBackoff(frequency, 1, maxBackoff, 1)).isEqualTo(Duration.ofMinutes(2));
+		assertThat(ScheduledEventSource.computeBackoff(frequency, 3, maxBackoff, 0)).isEqualTo(Duration.ofMinutes(4));
+		assertThat(ScheduledEventSource.computeBackoff(frequency, 3, maxBackoff, 0.5))
+				.isEqualTo(Duration.ofMinutes(6));
+	}
+
+	@Test
+	public void testBackoffIsLimited() {
+		final Duration frequency = Duration.ofMinutes(1);
+		final Duration maxBackoff = Duration.ofMinutes(10);
+
+		assertThat(ScheduledEventSource.computeBackoff(frequency, 1000, maxBackoff, 1)).isEqualTo(maxBackoff);
+		assertThat(ScheduledEventSource.computeBackoff(frequency, 1000, maxBackoff, 0))
+				.isEqualTo(Duration.ofMinutes(5));
+	}
+
+	@Test
+	public void testSlowdownForUnchangedEvents() {
+		assertThat(ScheduledEventSource.computeSlowdownFactor(0, 4)).isEqualTo(1);
+		assertThat(ScheduledEventSource.computeSlowdownFactor(1, 4)).isEqualTo(2);
+		assertThat(ScheduledEventSource.computeSlowdownFactor(2, 4)).isEqualTo(4);
+		assertThat(ScheduledEventSource.computeSlowdownFactor(100, 4)).isEqualTo(4);
+		assertThat(ScheduledEventSource.computeSlowdownFactor(2, 3)).isEqualTo(3);
+		assertThat(ScheduledEventSource.computeSlowdownFactor(5, 1)).isEqualTo(1);
+	}
+}
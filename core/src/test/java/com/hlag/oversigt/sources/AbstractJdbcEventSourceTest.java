@@ -0,0 +1,123 @@
+package com.hlag.oversigt.sources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.hlag.oversigt.properties.Color;
+import com.hlag.oversigt.sources.WorldMapEventSource.TypeMapping;
+
+public class AbstractJdbcEventSourceTest {
+	private static WorldMapEventSource createWorldMap(final Color fill) {
+		final WorldMapEventSource source = new WorldMapEventSource();
+		source.setTypeMappings(new TypeMapping[] { new TypeMapping("TYPE", "type-a", fill, Color.WHITE, 6.0) });
+		return source;
+	}
+
+	@Test
+	public void testDifferentRowMappingsDoNotShareFetches() {
+		final WorldMapEventSource red = createWorldMap(Color.RED);
+		final WorldMapEventSource blue = createWorldMap(Color.BLUE);
+
+		assertThat(red.createFetchKey(red.getQuery())).isNotEqualTo(blue.createFetchKey(blue.getQuery()));
+	}
+
+	@Test
+	public void testEqualRowMappingsShareFetches() {
+		final WorldMapEventSource first = createWorldMap(Color.parse("#e75200"));
+		final WorldMapEventSource second = createWorldMap(Color.parse("#e75200"));
+
+		assertThat(first.createFetchKey(first.getQuery())).isEqualTo(second.createFetchKey(second.getQuery()));
+	}
+
+	@Test
+	public void testDifferentQueriesDoNotShareFetches() {
+		final WorldMapEventSource source = createWorldMap(Color.RED);
+
+		assertThat(source.createFetchKey("SELECT 1")).isNotEqualTo(source.createFetchKey("SELECT 2"));
+		assertThat(source.createFetchKey("SELECT ?", 1)).isNotEqualTo(source.createFetchKey("SELECT ?", 2));
+	}
+
+	@Test
+	public void testStatementIsLimited() throws SQLException {
+		final PreparedStatement statement = mock(PreparedStatement.class);
+
+		AbstractJdbcEventSource.limitStatement(statement, 7, 500, Duration.ofSeconds(30));
+
+		verify(statement).setMaxRows(7);
+		verify(statement).setFetchSize(7);
+		verify(statement).setQueryTimeout(30);
+	}
+
+	@Test
+	public void testFetchSizeIsKeptBelowRowLimit() throws SQLException {
+		final PreparedStatement statement = mock(PreparedStatement.class);
+
+		AbstractJdbcEventSource.limitStatement(statement, 1000, 500, Duration.ofSeconds(30));
+
+		verify(statement).setMaxRows(1000);
+		verify(statement).setFetchSize(500);
+	}
+
+	@Test
+	public void testStatementWithoutRowLimit() throws SQLException {
+		final PreparedStatement statement = mock(PreparedStatement.class);
+
+		AbstractJdbcEventSource.limitStatement(statement, 0, 500, Duration.ofMillis(200));
+
+		verify(statement, never()).setMaxRows(anyInt());
+		verify(statement).setFetchSize(500);
+		// zero would mean no timeout at all
+		verify(statement).setQueryTimeout(1);
+	}
+
+	@Test
+	public void testMaxRowsOfEventSources() {
+		final WorldMapEventSource worldMap = new WorldMapEventSource();
+		worldMap.setLimit(7);
+		assertThat(worldMap.getMaxRows()).isEqualTo(7);
+
+		// no limit at all
+		worldMap.setLimit(0);
+		assertThat(worldMap.getMaxRows()).isEqualTo(0);
+
+		assertThat(new SqlGraphEventSource().getMaxRows()).isEqualTo(1);
+	}
+
+	@Test
+	public void testQueryStreamsEveryRow() throws SQLException {
+		final ResultSet resultSet = mock(ResultSet.class);
+		when(resultSet.next()).thenReturn(true, true, true, false);
+		final PreparedStatement statement = mock(PreparedStatement.class);
+		when(statement.executeQuery()).thenReturn(resultSet);
+		final Connection connection = mock(Connection.class);
+		when(connection.prepareStatement("SELECT ? FROM DUAL WHERE ?")).thenReturn(statement);
+		final AtomicInteger rows = new AtomicInteger(0);
+
+		AbstractJdbcEventSource.query(connection,
+				rs -> rows.incrementAndGet(),
+				Optional.empty(),
+				"SELECT ? FROM DUAL WHERE ?",
+				"a",
+				1);
+
+		assertThat(rows).hasValue(3);
+		verify(statement).setObject(1, "a");
+		verify(statement).setObject(2, 1);
+		verify(resultSet).close();
+		verify(statement).close();
+	}
+}
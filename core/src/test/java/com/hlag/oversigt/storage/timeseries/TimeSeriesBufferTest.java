@@ -0,0 +1,44 @@
+package com.hlag.oversigt.storage.timeseries;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeSeriesBufferTest {
+	@Test
+	public void testRunningMaximumFollowsSlidingWindow() {
+		final TimeSeriesBuffer buffer = new TimeSeriesBuffer(1, 2);
+		final long[] values = { 5, 3, 8, 1, 7, 2, 2, 6 };
+		for (int i = 0; i < values.length; i += 1) {
+			buffer.append(i, values[i]);
+		}
+		assertThat(buffer.getMaximum(0)).isEqualTo(8);
+
+		buffer.removeBefore(3);
+		assertThat(buffer.getMaximum(0)).isEqualTo(7);
+		buffer.removeBefore(5);
+		assertThat(buffer.getMaximum(0)).isEqualTo(6);
+		assertThat(buffer.getTimestamps()).containsExactly(5, 6, 7);
+		assertThat(buffer.getValues(0)).containsExactly(2, 2, 6);
+	}
+
+	@Test
+	public void testMaximumMatchesNaiveComputation() {
+		final Random random = new Random(42);
+		final TimeSeriesBuffer buffer = new TimeSeriesBuffer(2, 4);
+		for (int i = 0; i < 1000; i += 1) {
+			buffer.append(i, random.nextInt(100), -random.nextInt(100));
+			buffer.removeBefore(i - random.nextInt(50));
+
+			for (int column = 0; column < 2; column += 1) {
+				long expected = Long.MIN_VALUE;
+				for (int row = 0; row < buffer.size(); row += 1) {
+					expected = Math.max(expected, buffer.getValue(column, row));
+				}
+				assertThat(buffer.getMaximum(column)).isEqualTo(expected);
+			}
+		}
+	}
+}
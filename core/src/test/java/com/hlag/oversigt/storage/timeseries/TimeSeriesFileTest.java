@@ -0,0 +1,86 @@
+package com.hlag.oversigt.storage.timeseries;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeSeriesFileTest {
+	private static Path createPath() throws IOException {
+		return Files.createTempDirectory("oversigt").resolve("history.ts");
+	}
+
+	@Test
+	public void testRowsSurviveReopening() throws IOException {
+		final Path path = createPath();
+		try (TimeSeriesFile file = new TimeSeriesFile(path, 1, 2, 4)) {
+			for (int i = 0; i < 10; i += 1) {
+				file.append(1000 + i * 60, i, -i * 1_000_000_000_000L);
+			}
+		}
+
+		try (TimeSeriesFile file = new TimeSeriesFile(path, 1, 2, 4)) {
+			file.append(1600, 10, -10_000_000_000_000L);
+			final TimeSeriesWindow window = file.query(1000, 2000, 100);
+
+			assertThat(window.size()).isEqualTo(11);
+			for (int i = 0; i <= 10; i += 1) {
+				assertThat(window.getTimestamp(i)).isEqualTo(1000 + i * 60);
+				assertThat(window.getValue(0, i)).isEqualTo(i);
+				assertThat(window.getValue(1, i)).isEqualTo(-i * 1_000_000_000_000L);
+			}
+			assertThat(window.getMaximum(0)).isEqualTo(10);
+		}
+	}
+
+	@Test
+	public void testQueryDownsamplesWindow() throws IOException {
+		try (TimeSeriesFile file = new TimeSeriesFile(createPath(), 1, 1, 4)) {
+			for (int i = 0; i < 100; i += 1) {
+				file.append(i, i);
+			}
+			final TimeSeriesWindow window = file.query(0, 99, 10);
+
+			assertThat(window.size()).isEqualTo(10);
+			assertThat(window.getTimestamp(0)).isEqualTo(9);
+			assertThat(window.getValue(0, 0)).isEqualTo(4);
+			assertThat(window.getTimestamp(9)).isEqualTo(99);
+			assertThat(window.getValue(0, 9)).isEqualTo(94);
+		}
+	}
+
+	@Test
+	public void testOldBlocksAreRemoved() throws IOException {
+		final Path path = createPath();
+		try (TimeSeriesFile file = new TimeSeriesFile(path, 1, 1, 4)) {
+			for (int i = 0; i < 10; i += 1) {
+				file.append(i, i);
+			}
+			file.removeBefore(5);
+			file.append(10, 10);
+
+			assertThat(file.query(0, 10, 100).getTimestamp(0)).isEqualTo(4);
+		}
+
+		try (TimeSeriesFile file = new TimeSeriesFile(path, 1, 1, 4)) {
+			final TimeSeriesWindow window = file.query(0, 10, 100);
+			assertThat(window.size()).isEqualTo(7);
+			assertThat(window.getTimestamp(6)).isEqualTo(10);
+		}
+	}
+
+	@Test
+	public void testChangedLayoutResetsFile() throws IOException {
+		final Path path = createPath();
+		try (TimeSeriesFile file = new TimeSeriesFile(path, 1, 1, 4)) {
+			file.append(1, 1);
+		}
+
+		try (TimeSeriesFile file = new TimeSeriesFile(path, 2, 1, 4)) {
+			assertThat(file.query(0, 10, 100).isEmpty()).isTrue();
+		}
+	}
+}
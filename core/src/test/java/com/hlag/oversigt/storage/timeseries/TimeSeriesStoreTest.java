@@ -0,0 +1,40 @@
+package com.hlag.oversigt.storage.timeseries;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeSeriesStoreTest {
+	private static TimeSeriesStore createStore() throws IOException {
+		return new TimeSeriesStore(Files.createTempDirectory("oversigt").toString());
+	}
+
+	@Test
+	public void testClosedStoreReopensHistory() throws IOException {
+		final TimeSeriesStore store = createStore();
+		store.open("source", 1, 1).append(1000, 42);
+
+		store.close();
+
+		final TimeSeriesWindow window = store.open("source", 1, 1).query(0, 2000, 10);
+		assertThat(window.size()).isEqualTo(1);
+		assertThat(window.getValue(0, 0)).isEqualTo(42);
+		store.close();
+	}
+
+	@Test
+	public void testDeleteRemovesHistory() throws IOException {
+		final TimeSeriesStore store = createStore();
+		final TimeSeriesFile file = store.open("source", 1, 1);
+		file.append(1000, 42);
+
+		store.delete("source");
+
+		assertThat(file.getPath()).doesNotExist();
+		assertThat(store.open("source", 1, 1).query(0, 2000, 10).size()).isEqualTo(0);
+		store.close();
+	}
+}